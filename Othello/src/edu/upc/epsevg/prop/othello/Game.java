@@ -26,12 +26,14 @@ public class Game {
             @Override
             public void run() {
                 
-                IPlayer player1 = new PlayerID();
+                int timeout = 2;
+                PlayerID player1 = new PlayerID();
+                player1.getTimeManager().setMoveTimeLimit(timeout * 1000);
                 //IPlayer player1 = new HumanPlayer("Human1");
                 IPlayer player2 = new DesdemonaPlayer(2);//GB
 
                                 
-                new Board(player1 , player2, 2, false);
+                new Board(player1 , player2, timeout, false);
              }
         });
     }
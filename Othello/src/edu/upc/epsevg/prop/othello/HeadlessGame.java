@@ -9,6 +9,9 @@ import edu.upc.epsevg.prop.othello.players.DesdemonaPlayer;
 import edu.upc.epsevg.prop.othello.players.RandomPlayer;
 import edu.upc.epsevg.prop.othello.players.jeirostoc.PlayerBase;
 import edu.upc.epsevg.prop.othello.players.jeirostoc.PlayerID;
+import edu.upc.epsevg.prop.othello.players.jeirostoc.Status;
+import edu.upc.epsevg.prop.othello.players.jeirostoc.TT;
+import edu.upc.epsevg.prop.othello.players.jeirostoc.TTPool;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -89,12 +92,13 @@ public class HeadlessGame {
                 Logger.getLogger(HeadlessGame.class.getName()).log(Level.SEVERE, null, ex);
             }
             
-            IPlayer player = new PlayerID(fw);
+            PlayerID player = new PlayerID(fw);
             IPlayer desdemona = new DesdemonaPlayer(2);//GB
 
             HeadlessGame game = new HeadlessGame(player, desdemona, timeout, 1);
             GameResult gr = game.start();
             reportUpdate(gr.toString());
+            player.close();
         }
     }
     
@@ -110,11 +114,13 @@ public class HeadlessGame {
             Logger.getLogger(HeadlessGame.class.getName()).log(Level.SEVERE, null, ex);
         }
         
+        // Both players and their tables are alive at once
+        long numEntriesTT = TT.numEntriesPerTable(2);
         PlayerBase.setCreateRestrictedTable(true);
-        PlayerBase playerGenOpeningBook = new PlayerID(fw1);
+        PlayerBase playerGenOpeningBook = new PlayerID(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT, fw1, "", numEntriesTT);
         PlayerBase.setCreateRestrictedTable(false);
         
-        PlayerBase playerAgainstItself = new PlayerID(fw2);
+        PlayerBase playerAgainstItself = new PlayerID(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT, fw2, "", numEntriesTT);
         
         IPlayer desdemona = new DesdemonaPlayer(2);//GB
 
@@ -188,9 +194,15 @@ public class HeadlessGame {
                 Logger.getLogger(HeadlessGame.class.getName()).log(Level.SEVERE, null, ex);
             }
         }
+        
+        // Give back the tables and drop them, they are not needed anymore
+        playerGenOpeningBook.close();
+        playerAgainstItself.close();
+        TTPool.clear();
     }
     
     private static void computeMovement(IPlayer p, int timeout) {
+        setMoveTimeLimit(p, timeout);
         final Semaphore semaphore = new Semaphore(1);
         semaphore.tryAcquire();
         
@@ -228,6 +240,18 @@ public class HeadlessGame {
             }
     }
 
+    /**
+     * Let the time manager of a player of ours know the timeout of its moves.
+     * 
+     * @param p The player.
+     * @param timeout The timeout of a move in seconds.
+     */
+    private static void setMoveTimeLimit(IPlayer p, int timeout) {
+        if (p instanceof PlayerBase) {
+            ((PlayerBase) p).getTimeManager().setMoveTimeLimit(timeout * 1000L);
+        }
+    }
+    
     private static void reportUpdate(String str) {
         System.out.println(str);
         try {
@@ -247,6 +271,9 @@ public class HeadlessGame {
         players[1] = p2;
         this.gameCount = gameCount;
         this.timeout = timeout;
+        for (IPlayer player : players) {
+            setMoveTimeLimit(player, timeout);
+        }
     }
     
     public TwoSidesGameResult doGamesTwoSides() {
@@ -362,6 +389,13 @@ public class HeadlessGame {
             }
         }
         
+        // Write the TT of the players mapped to a file at the end of the game
+        for (IPlayer player : players) {
+            if (player instanceof PlayerBase) {
+                ((PlayerBase) player).checkpointTT();
+            }
+        }
+        
         if (null == status.winnerPlayer ) {
             reportUpdate("Tie.");
         } else switch (status.winnerPlayer) {
@@ -5,6 +5,7 @@ import edu.upc.epsevg.prop.othello.players.DesdemonaPlayer;
 import edu.upc.epsevg.prop.othello.players.jeirostoc.PlayerID;
 import edu.upc.epsevg.prop.othello.players.jeirostoc.Status;
 import edu.upc.epsevg.prop.othello.players.jeirostoc.TT;
+import edu.upc.epsevg.prop.othello.players.jeirostoc.TTPool;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -114,7 +115,7 @@ public class HeuristicComparisions {
             }
             
             // Do game
-            IPlayer player;
+            PlayerID player;
             player = new PlayerID(
                     s.stableScoreConfig,
                     s.discScoresConfig, 
@@ -128,6 +129,7 @@ public class HeuristicComparisions {
             HeadlessGame.currentGameLog = gameLog;
             HeadlessGame game = new HeadlessGame(player, desdemona, timeout, gamesAgainstDesdemona);
             game.doGamesTwoSides();
+            player.close();
         }
     }
     
@@ -151,29 +153,35 @@ public class HeuristicComparisions {
                     Logger.getLogger(HeadlessGame.class.getName()).log(java.util.logging.Level.SEVERE, null, ex);
                 }
             
-                // Do game
-                IPlayer player1 = new PlayerID(
+                // Do game, with both players and their tables alive at once
+                long numEntriesTT = TT.numEntriesPerTable(2);
+                PlayerID player1 = new PlayerID(
                     s1.stableScoreConfig, 
                     s1.discScoresConfig, 
                     s1.neighborScoresConfig, 
                     actions1,
                     s1.name,
-                    TT.DEF_NUM_ENTRIES
+                    numEntriesTT
                 );
                 
-                IPlayer player2 = new PlayerID(
+                PlayerID player2 = new PlayerID(
                     s2.stableScoreConfig, 
                     s2.discScoresConfig, 
                     s2.neighborScoresConfig, 
                     actions2,
                     s2.name,
-                    TT.DEF_NUM_ENTRIES
+                    numEntriesTT
                 );
 
                 HeadlessGame.currentGameLog = gameLog;
                 HeadlessGame game = new HeadlessGame(player1, player2, timeout, gamesAgainstEachOther);
                 game.doGamesTwoSides();
+                player1.close();
+                player2.close();
             }
         }
+        
+        // The tables released by the players are not needed anymore
+        TTPool.clear();
     }
 }
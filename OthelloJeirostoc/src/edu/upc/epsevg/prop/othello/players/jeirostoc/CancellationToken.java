@@ -0,0 +1,130 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Token shared between the searches of a move to request them to stop. The
+ * searches poll it periodically instead of checking the interrupt status of
+ * their thread on every node. It is also cancelled once its deadline, if any, 
+ * has passed, or once its parent token, if any, is cancelled, so the 
+ * cancellation propagates through a tree of tokens. The times are read 
+ * from a clock in nanoseconds, System.nanoTime() by default, shared by the 
+ * tokens of a tree.
+ * 
+ * @author raul
+ * @author josep
+ */
+class CancellationToken {
+    /**
+     * Indicates if the cancellation has been requested.
+     */
+    private volatile boolean _cancelled;
+    
+    /**
+     * The value of the clock when the cancellation was requested.
+     */
+    private volatile long _cancelTime;
+    
+    /**
+     * The value of the clock after which the token is cancelled or 0 if there
+     * is none.
+     */
+    private volatile long _deadline;
+    
+    /**
+     * The token whose cancellation cancels this one or null if there is none.
+     */
+    private final CancellationToken _parent;
+    
+    /**
+     * The clock the times are read from, in nanoseconds.
+     */
+    private final LongSupplier _clock;
+    
+    /**
+     * Default constructor, without parent and with System.nanoTime() as the
+     * clock.
+     */
+    CancellationToken() {
+        this(System::nanoTime);
+    }
+    
+    /**
+     * Constructor of a token without parent that reads the times from clock.
+     * 
+     * @param clock The clock in nanoseconds.
+     */
+    CancellationToken(LongSupplier clock) {
+        _parent = null;
+        _clock = clock;
+    }
+    
+    /**
+     * Constructor of a token that is cancelled when its parent is, with the 
+     * clock of its parent.
+     * 
+     * @param parent The token whose cancellation cancels this one.
+     */
+    CancellationToken(CancellationToken parent) {
+        _parent = parent;
+        _clock = parent._clock;
+    }
+    
+    /**
+     * Request the cancellation. Only the first request is taken into account.
+     */
+    void cancel() {
+        cancel(_clock.getAsLong());
+    }
+    
+    /**
+     * Set the deadline after which the token is cancelled.
+     * 
+     * @param deadline The value of the clock after which the token is
+     * cancelled or 0 to remove it.
+     */
+    void setDeadline(long deadline) {
+        _deadline = deadline;
+    }
+    
+    /**
+     * Check if the cancellation has been requested, the deadline has passed
+     * or the parent has been cancelled.
+     * 
+     * @return True if it has been requested, false otherwise.
+     */
+    boolean isCancelled() {
+        if(!_cancelled) {
+            long deadline = _deadline;
+            if(deadline != 0 && 0 <= _clock.getAsLong() - deadline) {
+                cancel(deadline);
+            } else if(_parent != null && _parent.isCancelled()) {
+                cancel(_parent._cancelTime);
+            }
+        }
+        return _cancelled;
+    }
+    
+    /**
+     * Get the time passed since the cancellation was requested.
+     * 
+     * @return The nanoseconds of the clock passed since the cancellation was
+     * requested or 0 if it has not been requested.
+     */
+    long getNanosSinceCancel() {
+        return _cancelled ? _clock.getAsLong() - _cancelTime : 0;
+    }
+    
+    /**
+     * Request the cancellation as if it had been requested at the given time.
+     * Only the first request is taken into account.
+     * 
+     * @param cancelTime The value of the clock of the request.
+     */
+    private synchronized void cancel(long cancelTime) {
+        if(!_cancelled) {
+            _cancelTime = cancelTime;
+            _cancelled = true;
+        }
+    }
+}
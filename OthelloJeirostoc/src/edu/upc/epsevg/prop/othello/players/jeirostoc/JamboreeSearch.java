@@ -0,0 +1,562 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Jamboree search built on fork/join tasks. At each node the first movement is
+ * searched serially and the rest are tested in parallel with null windows,
+ * searching again with the full window only the ones that may improve the
+ * bounds. The nodes near the leaves are searched sequentially with a
+ * RunnableFutureMiniMax. Each task has its own cancellation token, child of
+ * the token of its parent task, so a cutoff cancels all the tasks below it.
+ * 
+ * @author raul
+ * @author josep
+ */
+class JamboreeSearch {
+    ////////////////////////////////////////////////////////////////////////////
+    // Task class                                                             //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Task that searches a node within some bounds.
+     */
+    private class Task extends RecursiveTask<Float> {
+        /**
+         * Version of the serialized form, the tasks are never serialized.
+         */
+        private static final long serialVersionUID = 1L;
+        
+        /**
+         * The status of the node.
+         */
+        private final Status _node;
+        
+        /**
+         * The depth of the node in the search.
+         */
+        private final int _currentDepth;
+        
+        /**
+         * The depth at which the nodes of this branch are evaluated.
+         */
+        private final int _maxDepth;
+        
+        /**
+         * The lower bound the node is searched with.
+         */
+        private final float _alpha;
+        
+        /**
+         * The upper bound the node is searched with.
+         */
+        private final float _beta;
+        
+        /**
+         * True if the heuristic of the node has to be maximized, false if it
+         * has to be minimized.
+         */
+        private final boolean _isMax;
+        
+        /**
+         * The token to stop the task and the tasks below it.
+         */
+        private final CancellationToken _cancelToken;
+        
+        /**
+         * Indicates if the task has completed successfully.
+         */
+        private boolean _finished;
+        
+        /**
+         * The selected movement of the node or -1 if there is none.
+         */
+        private byte _selectedMovement;
+        
+        /**
+         * Constructor of a task.
+         * 
+         * @param node The status of the node.
+         * @param currentDepth The depth of the node in the search.
+         * @param maxDepth The depth at which the nodes of this branch are
+         * evaluated.
+         * @param alpha The lower bound.
+         * @param beta The upper bound.
+         * @param isMax True if the heuristic has to be maximized.
+         * @param parentToken The token of the parent task.
+         */
+        Task(Status node, int currentDepth, int maxDepth, float alpha, float beta, boolean isMax, CancellationToken parentToken) {
+            _node = node;
+            _currentDepth = currentDepth;
+            _maxDepth = maxDepth;
+            _alpha = alpha;
+            _beta = beta;
+            _isMax = isMax;
+            _cancelToken = new CancellationToken(parentToken);
+            _finished = false;
+            _selectedMovement = -1;
+        }
+        
+        /**
+         * Search the node.
+         * 
+         * @return The heuristic more favorable to the current player within
+         * the bounds of the task.
+         */
+        @Override
+        protected Float compute() {
+            if(_cancelToken.isCancelled())
+                return stop();
+            
+            // Search sequentially near the leaves
+            int depthRemaining = _maxDepth - _currentDepth;
+            if(_node.isTerminal() || depthRemaining <= _config.getJamboreeSerialDepth())
+                return searchSerially(depthRemaining);
+            
+            float alpha = _alpha;
+            float beta = _beta;
+            
+            // Retrieve the entry from transposition table
+            long entry = _tt.readEntry(_node);
+            byte selectedNextMove = TT.extractSelectedMovementIfValidEntry(_node, entry);
+            float lowerBound = TT.extractLowerBound(entry, depthRemaining, _playerColor);
+            float upperBound = TT.extractUpperBound(entry, depthRemaining, _playerColor);
+            if(lowerBound != Float.NEGATIVE_INFINITY || upperBound != Float.POSITIVE_INFINITY) {
+                _depthReached.accumulate(_currentDepth + TT.extractDepthBelow(entry));
+                
+                // Return if it is an exact heuristic
+                if (lowerBound == upperBound)
+                    return finish(lowerBound, selectedNextMove);
+                
+                // Update bounds
+                alpha = Math.max(alpha, lowerBound);
+                beta  = Math.min( beta, upperBound);
+                
+                // Prune if we exceeded lower or upper bound already
+                if(beta <= alpha)
+                    return finish(_isMax ? alpha : beta, selectedNextMove);
+            }
+            
+            // Keep the bounds the node is searched with, to know if the result
+            // is a lower or an upper bound
+            float alphaStart = alpha;
+            float betaStart = beta;
+            
+            // Get next moves
+            byte[] nextMoves = new byte[Status.SIZE*Status.SIZE];
+            int numMoves = _node.getNextMoves(nextMoves);
+            if(_config.getMoveOrdering()) {
+                SearchScratch scratch = _scratch.get();
+                MoveOrdering.sort(
+                        _node,
+                        nextMoves,
+                        numMoves,
+                        selectedNextMove,
+                        _config.getFastestFirstMinDepth() <= depthRemaining,
+                        scratch.moveScores,
+                        scratch.sortStatus
+                );
+            } else {
+                MoveOrdering.moveToFront(nextMoves, numMoves, selectedNextMove, 0);
+            }
+            
+            // Analyze skipped turn if there are no movements
+            if(numMoves == 0) {
+                Status next = new Status(_node);
+                next.skipTurn();
+                Task child = new Task(next, _currentDepth+1, _maxDepth, alpha, beta, !_isMax, _cancelToken);
+                float nextHeuristic = child.invoke();
+                if(!child._finished)
+                    return stop();
+                
+                register(nextHeuristic, selectedNextMove, depthRemaining, alphaStart, betaStart);
+                return finish(nextHeuristic, selectedNextMove);
+            }
+            
+            // Search the eldest brother serially
+            Task eldest = new Task(child(nextMoves[0]), _currentDepth+1, _maxDepth, alpha, beta, !_isMax, _cancelToken);
+            float nextHeuristic = eldest.invoke();
+            if(!eldest._finished)
+                return stop();
+            
+            if(_isMax && alpha < nextHeuristic) {
+                alpha = nextHeuristic;
+                selectedNextMove = nextMoves[0];
+            } else if(!_isMax && nextHeuristic < beta) {
+                beta = nextHeuristic;
+                selectedNextMove = nextMoves[0];
+            } else if (selectedNextMove == -1) {
+                selectedNextMove = nextMoves[0];
+            }
+            
+            // Test the younger brothers in parallel with null windows
+            if(alpha < beta && 1 < numMoves) {
+                Task[] tests = new Task[numMoves-1];
+                for (int i = 1; i < numMoves; i++) {
+                    Status next = child(nextMoves[i]);
+                    if(_isMax) {
+                        tests[i-1] = new Task(next, _currentDepth+1, _maxDepth, alpha, Math.nextUp(alpha), false, _cancelToken);
+                    } else {
+                        tests[i-1] = new Task(next, _currentDepth+1, _maxDepth, Math.nextDown(beta), beta, true, _cancelToken);
+                    }
+                    tests[i-1].fork();
+                }
+                _nullWindowTests.add(numMoves-1);
+                
+                for (int i = 1; i < numMoves; i++) {
+                    Task test = tests[i-1];
+                    float testHeuristic = test.join();
+                    if(!test._finished) {
+                        cancelAndJoin(tests, i);
+                        return stop();
+                    }
+                    
+                    // Search it again with the current bounds if the test
+                    // says it may improve them
+                    boolean mayImprove = _isMax ? test._beta <= testHeuristic : testHeuristic <= test._alpha;
+                    if(mayImprove) {
+                        _reSearches.increment();
+                        Task reSearch = new Task(test._node, _currentDepth+1, _maxDepth, alpha, beta, !_isMax, _cancelToken);
+                        nextHeuristic = reSearch.invoke();
+                        if(!reSearch._finished) {
+                            cancelAndJoin(tests, i);
+                            return stop();
+                        }
+                        
+                        if(_isMax && alpha < nextHeuristic) {
+                            alpha = nextHeuristic;
+                            selectedNextMove = nextMoves[i];
+                        } else if(!_isMax && nextHeuristic < beta) {
+                            beta = nextHeuristic;
+                            selectedNextMove = nextMoves[i];
+                        }
+                    }
+                    
+                    // Cancel the remaining tests on a cutoff
+                    if(beta <= alpha) {
+                        cancelAndJoin(tests, i);
+                        break;
+                    }
+                }
+            }
+            
+            float heuristic = _isMax ? alpha : beta;
+            register(heuristic, selectedNextMove, depthRemaining, alphaStart, betaStart);
+            return finish(heuristic, selectedNextMove);
+        }
+        
+        /**
+         * Search the node sequentially in the current thread.
+         * 
+         * @param depthRemaining The remaining depth of the node.
+         * @return The heuristic within the bounds of the task.
+         */
+        private float searchSerially(int depthRemaining) {
+            RunnableFutureMiniMax serial = new RunnableFutureMiniMax(depthRemaining, _playerColor, _tt, _node, true, _config, _cancelToken, _scratch.get());
+            RunnableFutureMiniMax.Result result = serial.searchWindow(_alpha, _beta, _isMax);
+            if(result == null)
+                return stop();
+            
+            _nodesWithComputedHeuristic.add(result.nodesWithComputedHeuristic);
+            _depthReached.accumulate(_currentDepth + result.depthReached);
+            _lmrReductions.add(result.lmrReductions);
+            _lmrReSearches.add(result.lmrReSearches);
+            _iidSearches.add(result.iidSearches);
+            return finish(result.lastSelectedHeuristic, result.lastSelectedMovement);
+        }
+        
+        /**
+         * Generate the child of the node after a movement.
+         * 
+         * @param movement The movement, expressed in the form SIZE*x + y.
+         * @return The child.
+         */
+        private Status child(byte movement) {
+            Status next = new Status(_node);
+            next.movePiece(movement);
+            return next;
+        }
+        
+        /**
+         * Register the result of the node to the transposition table as a
+         * bound, since parts of it have been searched with null windows.
+         * 
+         * @param heuristic The heuristic of the node.
+         * @param selectedMovement The selected movement of the node.
+         * @param depthRemaining The remaining depth of the node.
+         * @param alphaStart The lower bound the node was searched with.
+         * @param betaStart The upper bound the node was searched with.
+         */
+        private void register(float heuristic, byte selectedMovement, int depthRemaining, float alphaStart, float betaStart) {
+            boolean isLowerBound = _isMax ? alphaStart < heuristic : !(heuristic < betaStart);
+            _tt.registerBounds(
+                    _node,
+                    isLowerBound ? heuristic : Float.NEGATIVE_INFINITY,
+                    isLowerBound ? Float.POSITIVE_INFINITY : heuristic,
+                    _playerColor,
+                    selectedMovement,
+                    (byte)depthRemaining
+            );
+        }
+        
+        /**
+         * Mark the task as completed successfully.
+         * 
+         * @param heuristic The heuristic of the node.
+         * @param selectedMovement The selected movement of the node.
+         * @return The heuristic of the node.
+         */
+        private float finish(float heuristic, byte selectedMovement) {
+            _selectedMovement = selectedMovement;
+            _finished = true;
+            return heuristic;
+        }
+        
+        /**
+         * Leave the task without completing it.
+         * 
+         * @return The bound of the node, to be ignored.
+         */
+        private float stop() {
+            _finished = false;
+            return _isMax ? _alpha : _beta;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Search variables                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Transposition table.
+     */
+    private final TT _tt;
+    
+    /**
+     * The tunable parameters of the search.
+     */
+    private final SearchConfig _config;
+    
+    /**
+     * The player's color.
+     */
+    private final int _playerColor;
+    
+    /**
+     * The token to stop the search.
+     */
+    private final CancellationToken _cancelToken;
+    
+    /**
+     * The scratch structures of each thread for the sequential searches.
+     */
+    private final ThreadLocal<SearchScratch> _scratch;
+    
+    /**
+     * The amount of nodes whose heuristic was computed.
+     */
+    private final LongAdder _nodesWithComputedHeuristic = new LongAdder();
+    
+    /**
+     * The maximum depth the search has computed an heuristic.
+     */
+    private final LongAccumulator _depthReached = new LongAccumulator(Math::max, 0);
+    
+    /**
+     * The amount of moves searched with a late move reduction.
+     */
+    private final LongAdder _lmrReductions = new LongAdder();
+    
+    /**
+     * The amount of reduced moves that had to be searched again at full
+     * depth.
+     */
+    private final LongAdder _lmrReSearches = new LongAdder();
+    
+    /**
+     * The amount of internal iterative deepening searches made.
+     */
+    private final LongAdder _iidSearches = new LongAdder();
+    
+    /**
+     * The amount of movements tested with a null window.
+     */
+    private final LongAdder _nullWindowTests = new LongAdder();
+    
+    /**
+     * The amount of tested movements that had to be searched again with the
+     * full window.
+     */
+    private final LongAdder _reSearches = new LongAdder();
+    
+    /**
+     * The selected movement of the root node or -1 if there is none.
+     */
+    private byte _selectedMovement;
+    
+    /**
+     * The heuristic of the selected movement of the root node.
+     */
+    private float _selectedHeuristic;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Constructor of a search.
+     * 
+     * @param tt A reference to the transposition table to use.
+     * @param config The tunable parameters of the search.
+     * @param playerColor The player's color.
+     * @param cancelToken The token to stop the search.
+     * @param scratch The scratch structures of each thread, which must not be
+     * used by other searches at the same time.
+     */
+    JamboreeSearch(TT tt, SearchConfig config, int playerColor, CancellationToken cancelToken, ThreadLocal<SearchScratch> scratch) {
+        _tt = tt;
+        _config = config;
+        _playerColor = playerColor;
+        _cancelToken = cancelToken;
+        _scratch = scratch;
+        _selectedMovement = -1;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Search                                                                 //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Search the root node to the given depth in the pool.
+     * 
+     * @param pool The pool to execute the tasks in.
+     * @param root The root node.
+     * @param maxDepth The max depth the search is allowed to go.
+     * @return The result of the search if it has ended successfully, null
+     * otherwise. Its heuristic is the one of the selected movement.
+     */
+    Float search(ForkJoinPool pool, Status root, int maxDepth) {
+        int remainingMoves = (Status.SIZE*Status.SIZE - 4) - root.getNumMovements();
+        Task task = new Task(
+                root,
+                0,
+                Math.min(maxDepth, remainingMoves),
+                Float.NEGATIVE_INFINITY,
+                Float.POSITIVE_INFINITY,
+                true,
+                _cancelToken
+        );
+        float heuristic = pool.invoke(task);
+        
+        if(!task._finished)
+            return null;
+        _selectedMovement = task._selectedMovement;
+        _selectedHeuristic = heuristic;
+        return heuristic;
+    }
+    
+    /**
+     * Cancel the tests from the given index on and wait for them to return.
+     * 
+     * @param tests The tests.
+     * @param from The index of the first test to cancel.
+     */
+    private static void cancelAndJoin(Task[] tests, int from) {
+        for (int i = from; i < tests.length; i++) {
+            tests[i]._cancelToken.cancel();
+        }
+        for (int i = from; i < tests.length; i++) {
+            tests[i].join();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Getters                                                                //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the selected movement of the root node.
+     * 
+     * @return The selected movement or -1 if there is none.
+     */
+    byte getSelectedMovement() {
+        return _selectedMovement;
+    }
+    
+    /**
+     * Get the heuristic of the selected movement of the root node.
+     * 
+     * @return The heuristic.
+     */
+    float getSelectedHeuristic() {
+        return _selectedHeuristic;
+    }
+    
+    /**
+     * Get the amount of nodes whose heuristic was computed.
+     * 
+     * @return The amount of nodes.
+     */
+    long getNodesWithComputedHeuristic() {
+        return _nodesWithComputedHeuristic.sum();
+    }
+    
+    /**
+     * Get the maximum depth the search has computed an heuristic.
+     * 
+     * @return The depth reached.
+     */
+    int getDepthReached() {
+        return (int)_depthReached.get();
+    }
+    
+    /**
+     * Get the amount of moves searched with a late move reduction.
+     * 
+     * @return The amount of moves.
+     */
+    long getLmrReductions() {
+        return _lmrReductions.sum();
+    }
+    
+    /**
+     * Get the amount of reduced moves that had to be searched again at full
+     * depth.
+     * 
+     * @return The amount of moves.
+     */
+    long getLmrReSearches() {
+        return _lmrReSearches.sum();
+    }
+    
+    /**
+     * Get the amount of internal iterative deepening searches made.
+     * 
+     * @return The amount of searches.
+     */
+    long getIIDSearches() {
+        return _iidSearches.sum();
+    }
+    
+    /**
+     * Get the amount of movements tested with a null window.
+     * 
+     * @return The amount of movements.
+     */
+    long getNullWindowTests() {
+        return _nullWindowTests.sum();
+    }
+    
+    /**
+     * Get the amount of tested movements that had to be searched again with
+     * the full window.
+     * 
+     * @return The amount of movements.
+     */
+    long getReSearches() {
+        return _reSearches.sum();
+    }
+}
@@ -0,0 +1,330 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+/**
+ * Policy to diversify the tasks of the workers of a LazySMP search, so they
+ * do not all search the same tree at the same time: the depths each worker
+ * goes through, the move ordering of its tasks and how the selected movement
+ * is chosen among the results of the workers.
+ * 
+ * @author raul
+ * @author josep
+ */
+public abstract class LazySMPPolicy {
+    ////////////////////////////////////////////////////////////////////////////
+    // Schedule                                                               //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the depth of the first task of a worker.
+     * 
+     * @param workerIndex The index of the worker.
+     * @param numThreads The number of threads of the search.
+     * @return The depth of its first task.
+     */
+    public abstract int getFirstDepth(int workerIndex, int numThreads);
+    
+    /**
+     * Get the depth of the task of a worker after completing one.
+     * 
+     * @param workerIndex The index of the worker.
+     * @param numThreads The number of threads of the search.
+     * @param depth The depth of the completed task.
+     * @return The depth of the next task, greater than depth.
+     */
+    public abstract int getNextDepth(int workerIndex, int numThreads, int depth);
+    
+    /**
+     * Get the move ordering of the tasks of a worker.
+     * 
+     * @param workerIndex The index of the worker.
+     * @return True if it has to use the regular move ordering, false
+     * otherwise.
+     */
+    public abstract boolean getRegularOrder(int workerIndex);
+    
+    /**
+     * Get the seed to shuffle the root movements of the tasks of a worker
+     * with. By default, they are not shuffled.
+     * 
+     * @param workerIndex The index of the worker.
+     * @return The seed or 0 to keep the movements ordered.
+     */
+    public long getOrderSeed(int workerIndex) {
+        return 0;
+    }
+    
+    /**
+     * Check if the selected movement is voted among the last results of the
+     * workers instead of taken from the deepest one. By default, it is not.
+     * 
+     * @return True if it is voted, false otherwise.
+     */
+    public boolean getVoting() {
+        return false;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Voting                                                                 //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Select the result whose movement has the most votes. Each result votes
+     * for its movement with a weight that grows with its depth and with its
+     * heuristic over the worst one. Among the results of the winning movement
+     * the deepest one is selected. A result that wins the game is selected
+     * without voting, and one that loses it votes with no weight, so the worst
+     * heuristic is the worst finite one.
+     * 
+     * @param movements The movement of each result.
+     * @param heuristics The heuristic of each result.
+     * @param depths The depth of each result or 0 if there is no result.
+     * @param numResults The number of results.
+     * @return The index of the selected result or -1 if there is none.
+     */
+    static int selectByVotes(byte[] movements, float[] heuristics, int[] depths, int numResults) {
+        // Select the deepest result that wins the game if there is one
+        int selected = -1;
+        float minHeuristic = Float.POSITIVE_INFINITY;
+        for (int i = 0; i < numResults; i++) {
+            if(0 < depths[i]) {
+                if(heuristics[i] != Float.NEGATIVE_INFINITY) {
+                    minHeuristic = Math.min(minHeuristic, heuristics[i]);
+                }
+                if(heuristics[i] == Float.POSITIVE_INFINITY && (selected == -1 || depths[selected] < depths[i])) {
+                    selected = i;
+                }
+            }
+        }
+        if(selected != -1)
+            return selected;
+        
+        double selectedVotes = 0;
+        for (int i = 0; i < numResults; i++) {
+            if(depths[i] <= 0)
+                continue;
+            
+            double votes = 0;
+            for (int j = 0; j < numResults; j++) {
+                if(0 < depths[j] && movements[j] == movements[i]) {
+                    votes += voteWeight(heuristics[j], minHeuristic, depths[j]);
+                }
+            }
+            
+            if(selected == -1 || selectedVotes < votes ||
+              (selectedVotes == votes && depths[selected] < depths[i])) {
+                selected = i;
+                selectedVotes = votes;
+            }
+        }
+        
+        return selected;
+    }
+    
+    /**
+     * Get the weight of the vote of a result that doesn't win the game.
+     * 
+     * @param heuristic The heuristic of the result.
+     * @param minHeuristic The worst finite heuristic of the results.
+     * @param depth The depth of the result.
+     * @return The weight of the vote, 0 if the result loses the game.
+     */
+    private static double voteWeight(float heuristic, float minHeuristic, int depth) {
+        if(heuristic == Float.NEGATIVE_INFINITY)
+            return 0;
+        return ((double)heuristic - minHeuristic + 1)*depth;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Policies                                                               //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default policy: half of the workers start one level deeper than the
+     * other half and use the inverse move ordering, and every worker skips
+     * half the number of threads levels after each task.
+     */
+    public static class Staggered extends LazySMPPolicy {
+        @Override
+        public int getFirstDepth(int workerIndex, int numThreads) {
+            return 1 + workerIndex/2;
+        }
+        
+        @Override
+        public int getNextDepth(int workerIndex, int numThreads, int depth) {
+            return depth + Math.max(1, numThreads/2);
+        }
+        
+        @Override
+        public boolean getRegularOrder(int workerIndex) {
+            return workerIndex%2 == 0;
+        }
+    }
+    
+    /**
+     * Policy where all the workers go through every depth with the regular
+     * move ordering, to be diversified by other means such as ABDADA.
+     */
+    public static class Uniform extends LazySMPPolicy {
+        @Override
+        public int getFirstDepth(int workerIndex, int numThreads) {
+            return 1;
+        }
+        
+        @Override
+        public int getNextDepth(int workerIndex, int numThreads, int depth) {
+            return depth + 1;
+        }
+        
+        @Override
+        public boolean getRegularOrder(int workerIndex) {
+            return true;
+        }
+    }
+    
+    /**
+     * Policy with depth-skip tables: the first worker goes through every
+     * depth and each helper skips blocks of depths of a given size starting
+     * at a given phase, so the helpers are spread over the next depths.
+     */
+    public static class SkipTable extends LazySMPPolicy {
+        /**
+         * The number of consecutive depths each helper searches and skips.
+         */
+        private static final int[] SKIP_SIZE  = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+        
+        /**
+         * The offset of the depths of each helper.
+         */
+        private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+        
+        @Override
+        public int getFirstDepth(int workerIndex, int numThreads) {
+            return getNextDepth(workerIndex, numThreads, 0);
+        }
+        
+        @Override
+        public int getNextDepth(int workerIndex, int numThreads, int depth) {
+            int next = depth + 1;
+            while(skips(workerIndex, next)) {
+                next++;
+            }
+            return next;
+        }
+        
+        @Override
+        public boolean getRegularOrder(int workerIndex) {
+            return true;
+        }
+        
+        /**
+         * Check if a worker skips a depth.
+         * 
+         * @param workerIndex The index of the worker.
+         * @param depth The depth.
+         * @return True if it skips it, false otherwise.
+         */
+        static boolean skips(int workerIndex, int depth) {
+            if(workerIndex == 0)
+                return false;
+            
+            int i = (workerIndex - 1) % SKIP_SIZE.length;
+            return ((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0;
+        }
+    }
+    
+    /**
+     * Policy that follows another one and changes the way it diversifies.
+     */
+    static abstract class Decorator extends LazySMPPolicy {
+        /**
+         * The policy to follow.
+         */
+        protected final LazySMPPolicy _base;
+        
+        /**
+         * Constructor of the policy.
+         * 
+         * @param base The policy to follow.
+         */
+        Decorator(LazySMPPolicy base) {
+            _base = base;
+        }
+        
+        @Override
+        public int getFirstDepth(int workerIndex, int numThreads) {
+            return _base.getFirstDepth(workerIndex, numThreads);
+        }
+        
+        @Override
+        public int getNextDepth(int workerIndex, int numThreads, int depth) {
+            return _base.getNextDepth(workerIndex, numThreads, depth);
+        }
+        
+        @Override
+        public boolean getRegularOrder(int workerIndex) {
+            return _base.getRegularOrder(workerIndex);
+        }
+        
+        @Override
+        public long getOrderSeed(int workerIndex) {
+            return _base.getOrderSeed(workerIndex);
+        }
+        
+        @Override
+        public boolean getVoting() {
+            return _base.getVoting();
+        }
+    }
+    
+    /**
+     * Policy that follows another one shuffling the root movements after the
+     * first one differently in each helper. The first worker keeps them
+     * ordered.
+     */
+    public static class Perturbed extends Decorator {
+        /**
+         * The seed the seeds of the helpers are derived from.
+         */
+        private final long _seed;
+        
+        /**
+         * Constructor of the policy.
+         * 
+         * @param base The policy to follow.
+         * @param seed The seed the seeds of the helpers are derived from.
+         */
+        public Perturbed(LazySMPPolicy base, long seed) {
+            super(base);
+            _seed = seed;
+        }
+        
+        @Override
+        public long getOrderSeed(int workerIndex) {
+            if(workerIndex == 0)
+                return 0;
+            
+            long seed = _seed ^ (workerIndex * 0x9E3779B97F4A7C15L);
+            return seed == 0 ? 1 : seed;
+        }
+    }
+    
+    /**
+     * Policy that follows another one voting the selected movement among the
+     * last results of the workers.
+     */
+    public static class Voting extends Decorator {
+        /**
+         * Constructor of the policy.
+         * 
+         * @param base The policy to follow.
+         */
+        public Voting(LazySMPPolicy base) {
+            super(base);
+        }
+        
+        @Override
+        public boolean getVoting() {
+            return true;
+        }
+    }
+}
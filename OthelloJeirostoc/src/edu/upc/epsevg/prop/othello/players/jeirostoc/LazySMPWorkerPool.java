@@ -0,0 +1,207 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.lang.ref.Cleaner;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Pool of worker threads that live across the moves of a player. Each search
+ * is submitted as a job that every worker executes once, with its own scratch
+ * structures, and its completion is signalled with a latch instead of
+ * shutting the threads down. The workers are daemon threads that run until the
+ * pool is closed or its owner becomes unreachable.
+ * 
+ * @author raul
+ * @author josep
+ */
+class LazySMPWorkerPool {
+    ////////////////////////////////////////////////////////////////////////////
+    // Job interface                                                          //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Work to be done by every worker of the pool.
+     */
+    interface Job {
+        /**
+         * Do the work of a worker.
+         * 
+         * @param workerIndex The index of the worker, between 0 and the number
+         * of threads of the pool.
+         * @param scratch The scratch structures owned by the worker.
+         */
+        void work(int workerIndex, SearchScratch scratch);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Worker classes                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * A job submitted to a worker with the latch to signal when it is done.
+     */
+    private static class Assignment {
+        /**
+         * The job to execute.
+         */
+        final Job job;
+        
+        /**
+         * The latch to count down once the job is done.
+         */
+        final CountDownLatch done;
+        
+        /**
+         * Constructor of the assignment.
+         * 
+         * @param job The job to execute.
+         * @param done The latch to count down once the job is done.
+         */
+        Assignment(Job job, CountDownLatch done) {
+            this.job = job;
+            this.done = done;
+        }
+    }
+    
+    /**
+     * A thread of the pool that executes the jobs submitted to it in order.
+     */
+    private static class Worker extends Thread {
+        /**
+         * The index of the worker.
+         */
+        private final int _index;
+        
+        /**
+         * The scratch structures reused by the jobs of the worker.
+         */
+        private final SearchScratch _scratch = new SearchScratch();
+        
+        /**
+         * The jobs pending to be executed.
+         */
+        private final LinkedBlockingQueue<Assignment> _inbox = new LinkedBlockingQueue<>();
+        
+        /**
+         * Constructor of the worker.
+         * 
+         * @param index The index of the worker.
+         */
+        Worker(int index) {
+            super("LazySMPWorker-" + index);
+            _index = index;
+            setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            while(!isInterrupted()) {
+                try {
+                    execute(_inbox.take());
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }
+        
+        /**
+         * Execute an assignment and signal that it is done. The assignment is
+         * only referenced from this frame, so an idle worker doesn't keep its
+         * last job, nor the player that submitted it, reachable.
+         * 
+         * @param assignment The assignment to execute.
+         */
+        private void execute(Assignment assignment) {
+            try {
+                assignment.job.work(_index, _scratch);
+            } catch (Throwable t) {
+                Logger.getLogger(LazySMPWorkerPool.class.getName()).log(Level.SEVERE, null, t);
+            } finally {
+                assignment.done.countDown();
+            }
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Pool variables                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The cleaner that closes the pools whose owners become unreachable.
+     */
+    private static final Cleaner CLEANER = Cleaner.create();
+    
+    /**
+     * The workers of the pool.
+     */
+    private final Worker[] _workers;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Constructor of the pool. The threads are started immediately.
+     * 
+     * @param nThreads The number of threads of the pool.
+     */
+    LazySMPWorkerPool(int nThreads) {
+        _workers = new Worker[Math.max(1, nThreads)];
+        for (int i = 0; i < _workers.length; i++) {
+            _workers[i] = new Worker(i);
+            _workers[i].start();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Pool functions                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the number of threads of the pool.
+     * 
+     * @return The number of threads.
+     */
+    int getNumThreads() {
+        return _workers.length;
+    }
+    
+    /**
+     * Make every worker execute the job once they have finished the jobs
+     * submitted before.
+     * 
+     * @param job The job to execute.
+     * @return The latch that reaches zero when all the workers have finished
+     * the job.
+     */
+    CountDownLatch submit(Job job) {
+        CountDownLatch done = new CountDownLatch(_workers.length);
+        for (Worker worker : _workers) {
+            worker._inbox.add(new Assignment(job, done));
+        }
+        return done;
+    }
+    
+    /**
+     * Stop the workers once they finish their current job. The jobs pending
+     * are not executed.
+     */
+    void close() {
+        for (Worker worker : _workers) {
+            worker.interrupt();
+        }
+    }
+    
+    /**
+     * Close the pool once the owner becomes unreachable, so the workers of an
+     * owner that is never closed don't stay alive for the rest of the program.
+     * The pool must not reference the owner.
+     * 
+     * @param owner The object that owns the pool.
+     */
+    void closeWhenUnreachable(Object owner) {
+        CLEANER.register(owner, this::close);
+    }
+}
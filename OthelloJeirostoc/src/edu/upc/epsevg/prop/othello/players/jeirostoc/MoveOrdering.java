@@ -0,0 +1,142 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.Random;
+
+/**
+ * Helper class to sort the movements of a node before exploring them, working
+ * with movements expressed in the form SIZE*x + y to avoid allocating memory.
+ * 
+ * @author raul
+ * @author josep
+ */
+class MoveOrdering {
+    /**
+     * Rotation and flip independent square priorities: corners first, then
+     * the A and B squares of the edges and the X and C squares last.
+     */
+    private final static float[] SPV_DEF = {
+        9,
+        1, 0,
+        6, 2, 5,
+        5, 2, 4, 4
+    };
+    
+    /**
+     * Priority of each square of the board, indexed in the form SIZE*x + y.
+     */
+    final static int[] SQUARE_PRIORITY = toIntTable(Status.generateScoringTable(SPV_DEF));
+    
+    /**
+     * The number of different priorities in SQUARE_PRIORITY.
+     */
+    private final static int SQUARE_PRIORITY_RANGE = 10;
+    
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private MoveOrdering() {}
+    
+    /**
+     * Sort the movements by decreasing score keeping the movement first at
+     * the front if it is present. The score of a movement is its square
+     * priority and, if fastestFirst is set, the opposite of the number of
+     * movements the rival will have after making it, using the square priority
+     * to break ties. Movements with the same score keep their relative order.
+     * 
+     * @param s The status the movements are made from.
+     * @param moves The movements to sort, expressed in the form SIZE*x + y.
+     * @param numMoves The number of movements in moves.
+     * @param first The movement to place at the front or -1.
+     * @param fastestFirst True if the rival mobility after the movement has to
+     * be taken into account.
+     * @param scores Scratch array with room for numMoves scores.
+     * @param scratch Scratch status to make the movements on.
+     */
+    static void sort(Status s, byte[] moves, int numMoves, byte first, boolean fastestFirst, int[] scores, Status scratch) {
+        int start = moveToFront(moves, numMoves, first, 0);
+        
+        // Compute scores
+        for (int i = start; i < numMoves; i++) {
+            scores[i] = SQUARE_PRIORITY[moves[i]];
+            
+            if (fastestFirst) {
+                scratch.copyFrom(s);
+                scratch.movePiece(moves[i]);
+                scores[i] -= scratch.getNumNextMoves()*SQUARE_PRIORITY_RANGE;
+            }
+        }
+        
+        // Insertion sort by decreasing score
+        for (int i = start+1; i < numMoves; i++) {
+            byte move = moves[i];
+            int score = scores[i];
+            int j = i-1;
+            
+            while (start <= j && scores[j] < score) {
+                moves[j+1]  = moves[j];
+                scores[j+1] = scores[j];
+                j--;
+            }
+            
+            moves[j+1]  = move;
+            scores[j+1] = score;
+        }
+    }
+    
+    /**
+     * Move the given movement to the position index if it is present at or
+     * after it, shifting the movements in between one position.
+     * 
+     * @param moves The movements, expressed in the form SIZE*x + y.
+     * @param numMoves The number of movements in moves.
+     * @param move The movement to move or -1.
+     * @param index The position to move it to.
+     * @return The index of the first movement after the moved one, or index if
+     * it was not present.
+     */
+    static int moveToFront(byte[] moves, int numMoves, byte move, int index) {
+        if (move == -1)
+            return index;
+        
+        for (int i = index; i < numMoves; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, index, moves, index+1, i-index);
+                moves[index] = move;
+                return index+1;
+            }
+        }
+        
+        return index;
+    }
+    
+    /**
+     * Shuffle the movements from the position start on.
+     * 
+     * @param moves The movements, expressed in the form SIZE*x + y.
+     * @param numMoves The number of movements in moves.
+     * @param start The position of the first movement to shuffle.
+     * @param rnd The random generator to shuffle with.
+     */
+    static void shuffle(byte[] moves, int numMoves, int start, Random rnd) {
+        for (int i = numMoves - 1; start < i; i--) {
+            int j = start + rnd.nextInt(i - start + 1);
+            byte move = moves[i];
+            moves[i] = moves[j];
+            moves[j] = move;
+        }
+    }
+    
+    /**
+     * Convert a table of scores to integers.
+     * 
+     * @param table The table to convert.
+     * @return The converted table.
+     */
+    private static int[] toIntTable(float[] table) {
+        int[] result = new int[table.length];
+        for (int i = 0; i < table.length; i++) {
+            result[i] = (int)table[i];
+        }
+        return result;
+    }
+}
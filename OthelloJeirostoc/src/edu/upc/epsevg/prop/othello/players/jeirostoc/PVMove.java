@@ -0,0 +1,53 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.Move;
+import edu.upc.epsevg.prop.othello.SearchType;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Movement returned by the players together with the line of play they expect
+ * to follow it (principal variation).
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PVMove extends Move {
+    /**
+     * The expected line of play, starting with the movement itself.
+     */
+    private final List<Point> _principalVariation;
+    
+    /**
+     * Constructor of the movement.
+     * 
+     * @param to The point to move to or null if the turn is skipped.
+     * @param numberOfNodesExplored The amount of nodes explored.
+     * @param maxDepthReached The maximum depth reached.
+     * @param searchType The type of search done.
+     * @param principalVariation The expected line of play, starting with the
+     * movement itself, with the movements expressed in the form SIZE*x + y or
+     * -1 for a skipped turn.
+     */
+    public PVMove(Point to, long numberOfNodesExplored, int maxDepthReached, SearchType searchType, byte[] principalVariation) {
+        super(to, numberOfNodesExplored, maxDepthReached, searchType);
+        
+        ArrayList<Point> line = new ArrayList<>(principalVariation.length);
+        for (byte movement : principalVariation) {
+            line.add(movement == -1 ? null : new Point(movement/Status.SIZE, movement%Status.SIZE));
+        }
+        _principalVariation = Collections.unmodifiableList(line);
+    }
+    
+    /**
+     * Get the expected line of play, starting with the movement itself. The
+     * skipped turns are represented with null.
+     * 
+     * @return The points of the line.
+     */
+    public List<Point> getPrincipalVariation() {
+        return _principalVariation;
+    }
+}
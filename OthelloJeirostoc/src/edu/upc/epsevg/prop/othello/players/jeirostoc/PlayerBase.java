@@ -6,12 +6,10 @@ import edu.upc.epsevg.prop.othello.IPlayer;
 import edu.upc.epsevg.prop.othello.Move;
 import edu.upc.epsevg.prop.othello.SearchType;
 import java.awt.Point;
-import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -22,7 +20,7 @@ import java.util.logging.Logger;
  * @author raul
  * @author josep
  */
-abstract public class PlayerBase implements IAuto, IPlayer {
+abstract public class PlayerBase implements IAuto, IPlayer, AutoCloseable {
     ////////////////////////////////////////////////////////////////////////////
     // Logging variables                                                      //
     ////////////////////////////////////////////////////////////////////////////
@@ -58,6 +56,12 @@ abstract public class PlayerBase implements IAuto, IPlayer {
     // Search variables                                                       //
     ////////////////////////////////////////////////////////////////////////////
     
+    /**
+     * Default number of threads of the players that search in parallel, one
+     * per available processor.
+     */
+    public static final int DEF_NUM_THREADS = Runtime.getRuntime().availableProcessors();
+    
     /**
      * The specialized class search type.
      */
@@ -94,11 +98,79 @@ abstract public class PlayerBase implements IAuto, IPlayer {
      */
     protected byte _lastSelectedMovement;
     
+    /**
+     * The amount of moves the current search has explored with a late move 
+     * reduction.
+     */
+    protected long _lmrReductions;
+    
+    /**
+     * The amount of reduced moves the current search has explored again at 
+     * full depth.
+     */
+    protected long _lmrReSearches;
+    
+    /**
+     * The amount of internal iterative deepening searches the current search 
+     * has made to find a movement to explore first.
+     */
+    protected long _iidSearches;
+    
+    /**
+     * The amount of movements the current search has deferred because other
+     * threads were searching them.
+     */
+    protected long _abdadaDeferrals;
+    
+    /**
+     * The maximum nanoseconds a search of the current move took to return 
+     * after being cancelled.
+     */
+    protected long _cancelLatency;
+    
+    /**
+     * The expected line of play of the last search, starting with the selected
+     * movement, expressed in the form SIZE*x + y or -1 for a skipped turn.
+     */
+    protected byte[] _lastPrincipalVariation = new byte[0];
+    
     /**
      * Transposition table.
      */
     protected final TT _tt;
     
+    /**
+     * The loader that fills the TT from the stored table in the background,
+     * or null if the TT started warm.
+     */
+    private final TTLoader _ttLoader;
+    
+    /**
+     * The maximum number of movements of the statuses whose entries of the TT
+     * are dumped.
+     */
+    private final int _dumpMaxPly;
+    
+    /**
+     * If the player has been closed and its TT released.
+     */
+    private boolean _closed;
+    
+    /**
+     * The tunable parameters of the search.
+     */
+    protected final SearchConfig _searchConfig;
+    
+    /**
+     * The time manager of the moves.
+     */
+    protected final TimeManager _timeManager;
+    
+    /**
+     * Buffer for the movements of the root node.
+     */
+    private final byte[] _rootMoves;
+    
     ////////////////////////////////////////////////////////////////////////////
     // TT config, creation and dumping                                        //
     ////////////////////////////////////////////////////////////////////////////
@@ -109,17 +181,25 @@ abstract public class PlayerBase implements IAuto, IPlayer {
     private static final String TT_FILENAME = "JeirostocTranspositionTable.data";
     
     /**
-     * The max number of movements for the restricted table.
+     * The filename to read the transposition table from in the binary format 
+     * of TTFile, preferred over the text one.
+     */
+    private static final String TT_BINARY_FILENAME = "JeirostocTranspositionTable.bin";
+    
+    /**
+     * The max number of movements of the statuses of a restricted table.
      */
     private static final int MAX_MOVES_RESTRICTED = 10;
     
     /**
-     * The type of TT to create.
+     * If the TT should be restricted to an opening book.
      */
     private static boolean createRestrictedTable = false;
     
     /**
-     * Set if TT should be created with the base class or the restricted class.
+     * Set if TT should be restricted to an opening book: the entries of 
+     * statuses with at most MAX_MOVES_RESTRICTED movements are kept over any
+     * other and they are the only ones dumped.
      * 
      * @param b True if they should be restricted, false otherwise.
      */
@@ -128,39 +208,210 @@ abstract public class PlayerBase implements IAuto, IPlayer {
     }
     
     /**
-     * Create a TT with the given number entries.
+     * If the TT should be created out of the Java heap.
+     */
+    private static boolean createOffHeapTable = false;
+    
+    /**
+     * Set if TT should be created on the Java heap or out of it. Out of the 
+     * heap it can have more than 2^30 entries and the garbage collector 
+     * doesn't have to deal with it. The JVM only allocates as much memory out
+     * of the heap as -XX:MaxDirectMemorySize, which defaults to -Xmx, so a 
+     * table larger than the heap needs the flag set, see TTStorage.Direct.
+     * 
+     * @param b True if they should be created out of the heap, false 
+     * otherwise.
+     */
+    public static void setCreateOffHeapTable(boolean b) {
+        createOffHeapTable = b;
+    }
+    
+    /**
+     * The file to map the TT to, or null if it isn't mapped to a file.
+     */
+    private static String mappedTableFilename = null;
+    
+    /**
+     * Set the file to map the TT to. A mapped TT keeps its entries in the 
+     * file, so the next player that maps it starts with them without reading
+     * the whole file. It is only filled from the opening book when the file
+     * is new or was written with another size.
+     * 
+     * @param filename The file or null to not map the TT to a file.
+     */
+    public static void setMappedTableFile(String filename) {
+        mappedTableFilename = filename;
+    }
+    
+    /**
+     * If players with the same evaluation settings should share their TT.
+     */
+    private static boolean shareTables = false;
+    
+    /**
+     * Set if players with the same evaluation settings should share their TT
+     * while they are in use instead of getting one each. It is meant for 
+     * players of the same game or of games played one after the other.
+     * 
+     * @param b True if they should share it, false otherwise.
+     */
+    public static void setShareTables(boolean b) {
+        shareTables = b;
+    }
+    
+    /**
+     * Create a TT with the given number entries, filled from the stored 
+     * table.
      * 
      * @param numEntriesTT The number of entries.
      * @return The TT with the given number entries.
      */
-    public static TT createTable(int numEntriesTT) {
-        // Instantiate table
+    public static TT createTable(long numEntriesTT) {
+        TT tt = instantiateTable(numEntriesTT);
+        if (!tt.isWarm())
+            newLoader(tt).run();
+        return tt;
+    }
+    
+    /**
+     * Create a TT with the given number entries without filling it.
+     * 
+     * @param numEntriesTT The number of entries.
+     * @return The TT with the given number entries.
+     */
+    private static TT instantiateTable(long numEntriesTT) {
         TT tt;
-        
-        if (createRestrictedTable) {
-            tt = new TTRestricted((int)numEntriesTT, MAX_MOVES_RESTRICTED);
+        if (mappedTableFilename != null) {
+            tt = createMappedTable(numEntriesTT);
         } else {
-            tt = new TT((int)numEntriesTT);
+            tt = new TT(numEntriesTT, TT.DEF_ENTRIES_PER_BUCKET, createOffHeapTable);
         }
+        if (createRestrictedTable)
+            tt.setBookMaxPly(MAX_MOVES_RESTRICTED);
+        return tt;
+    }
+    
+    /**
+     * Get a TT with the given number of entries from TTPool for a player with
+     * the given evaluation settings. Restricted and mapped tables aren't 
+     * pooled, so they are created.
+     * 
+     * @param numEntriesTT The number of entries.
+     * @param settingsKey The key of the evaluation settings of the player.
+     * @return The TT with the given number entries.
+     */
+    private static TT acquireTable(long numEntriesTT, String settingsKey) {
+        if (createRestrictedTable || mappedTableFilename != null)
+            return instantiateTable(numEntriesTT);
         
-        // Try to fill the table from an already existing table from disk
+        String tableKey = TTPool.tableKey(TT.storageSize(numEntriesTT, TT.DEF_ENTRIES_PER_BUCKET), createOffHeapTable);
+        return TTPool.acquire(tableKey, settingsKey, shareTables, () -> instantiateTable(numEntriesTT));
+    }
+    
+    /**
+     * Create a loader of tt from the stored table, preferring the binary 
+     * format.
+     * 
+     * @param tt The table to fill.
+     * @return The loader.
+     */
+    private static TTLoader newLoader(TT tt) {
+        return new TTLoader(tt, Paths.get(TT_BINARY_FILENAME), Paths.get(TT_FILENAME));
+    }
+    
+    /**
+     * Create a TT with the given number of entries mapped to 
+     * mappedTableFilename. If the file can't be mapped, the TT is created 
+     * without it.
+     * 
+     * @param numEntriesTT The number of entries.
+     * @return The TT with the given number entries.
+     */
+    private static TT createMappedTable(long numEntriesTT) {
         try {
-            BufferedReader br = new BufferedReader(new FileReader(TT_FILENAME));
-            tt.fill(br);
-        } catch (FileNotFoundException ex) {
-            Logger.getLogger(PlayerBase.class.getName()).log(Level.WARNING, "Could not find the TT table!");
+            TTStorage storage = new TTStorage.Mapped(
+                    Paths.get(mappedTableFilename), 
+                    TT.storageSize(numEntriesTT, TT.DEF_ENTRIES_PER_BUCKET), 
+                    TT.layout(TT.DEF_ENTRIES_PER_BUCKET)
+            );
+            return new TT(storage, TT.DEF_ENTRIES_PER_BUCKET);
+        } catch (IOException ex) {
+            Logger.getLogger(PlayerBase.class.getName()).log(Level.SEVERE, "Could not map the TT to " + mappedTableFilename, ex);
+            return new TT(numEntriesTT, TT.DEF_ENTRIES_PER_BUCKET, createOffHeapTable);
         }
-        
-        return tt;
+    }
+    
+    /**
+     * Get the fraction of the stored table that has been loaded into the TT.
+     * 
+     * @return A value from 0 to 1, which is 1 once the loading has finished
+     * or if there was nothing to load.
+     */
+    public float getTTLoadProgress() {
+        return _ttLoader == null ? 1 : _ttLoader.getProgress();
+    }
+    
+    /**
+     * Wait for the stored table to be loaded into the TT.
+     */
+    public void awaitTTLoaded() {
+        if (_ttLoader == null)
+            return;
+        try {
+            _ttLoader.awaitDone();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(PlayerBase.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    /**
+     * Write the entries of the TT to its file, if it is mapped to one. It is
+     * meant to be called at checkpoints, like the end of a game, as it waits
+     * for every modified page to be written.
+     */
+    public void checkpointTT() {
+        _tt.checkpoint();
+    }
+    
+    /**
+     * Release the TT to TTPool, so the next player created can reuse it 
+     * instead of allocating a new one. It waits for the stored table to be 
+     * loaded and writes the TT to its file if it is mapped to one. The player
+     * can't be used once it has been closed.
+     */
+    @Override
+    public void close() {
+        if (_closed)
+            return;
+        _closed = true;
+        awaitTTLoaded();
+        _tt.checkpoint();
+        TTPool.release(_tt);
     }
     
     /**
      * Write the contents of the TT into bw.
+     * If it is restricted, only the entries of the opening book are written.
      * 
      * @param bw The buffered writer to write into.
      */
     public void dumpTT(BufferedWriter bw) {
-        _tt.dump(bw);
+        _tt.dump(bw, _dumpMaxPly);
+    }
+    
+    /**
+     * Write the contents of the TT into a file in the binary format of TTFile.
+     * If it is restricted, only the entries of the opening book are written.
+     * 
+     * @param filename The file to write into.
+     * @param compress True to compress the entries with Deflate.
+     */
+    public void dumpTT(String filename, boolean compress) {
+        try {
+            TTFile.write(_tt, Paths.get(filename), compress, _dumpMaxPly);
+        } catch (IOException ex) {
+            Logger.getLogger(PlayerBase.class.getName()).log(Level.SEVERE, "Couldn't write the binary TT table", ex);
+        }
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -195,9 +446,24 @@ abstract public class PlayerBase implements IAuto, IPlayer {
     protected PlayerBase(SearchType searchType, float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
         // Init search config
         _searchType = searchType;
+        _searchConfig = new SearchConfig();
+        _timeManager = new TimeManager();
+        _rootMoves = new byte[Status.SIZE*Status.SIZE];
         
         // TT
-        _tt = createTable((int)numEntriesTT);
+        _tt = acquireTable(numEntriesTT, TTPool.settingsKey(stableScoreConfig, diskScoresConfig, neighborScoresConfig));
+        _dumpMaxPly = createRestrictedTable ? MAX_MOVES_RESTRICTED : Integer.MAX_VALUE;
+        _closed = false;
+        if (_tt.isWarm()) {
+            _ttLoader = null;
+        } else {
+            // Fill the TT in the background, the searches can already use it
+            _tt.setWarm();
+            _ttLoader = newLoader(_tt);
+            Thread loaderThread = new Thread(_ttLoader, "JeirostocTTLoader");
+            loaderThread.setDaemon(true);
+            loaderThread.start();
+        }
         
         // Log config
         _fw = fw;
@@ -230,9 +496,25 @@ abstract public class PlayerBase implements IAuto, IPlayer {
         _playerColor = s.getCurrentPlayerColor();
         _lastSelectedHeuristic = 0;
         _lastSelectedMovement = -1;
+        _lmrReductions = 0;
+        _lmrReSearches = 0;
+        _iidSearches = 0;
+        _abdadaDeferrals = 0;
+        _cancelLatency = 0;
         
-        // Do the search
-        doSearch(s);
+        // Do the search unless there is at most one movement to choose from
+        _tt.setMinPly(s.getNumMovements());
+        _tt.newGeneration();
+        _timeManager.startMove(s);
+        int numMoves = s.getNextMoves(_rootMoves);
+        if(numMoves <= 1) {
+            _lastSelectedMovement = numMoves == 0 ? -1 : _rootMoves[0];
+        } else {
+            doSearch(s);
+        }
+        _timeManager.endMove();
+        _lastPrincipalVariation = _tt.getPrincipalVariation(s, _lastSelectedMovement, Math.max(1, _depthReached));
+        movementSelected(s, _lastSelectedMovement);
         
         // Log selected movement
         if(_fw != null)
@@ -243,7 +525,7 @@ abstract public class PlayerBase implements IAuto, IPlayer {
         if (_lastSelectedMovement != -1) {
             p = new Point(_lastSelectedMovement/Status.SIZE, _lastSelectedMovement%Status.SIZE);
         }
-        return new Move(p, _nodesWithComputedHeuristic, _depthReached, _searchType);
+        return new PVMove(p, _nodesWithComputedHeuristic, _depthReached, _searchType, _lastPrincipalVariation);
     }
     
     /**
@@ -258,6 +540,64 @@ abstract public class PlayerBase implements IAuto, IPlayer {
      */
     protected abstract void doSearch(Status s);
     
+    /**
+     * Hook called once the movement to return has been selected, before 
+     * returning it. It does nothing by default.
+     * 
+     * @param s The status the movement has been selected from.
+     * @param movement The selected movement, expressed in the form SIZE*x + y,
+     * or -1 if the turn is skipped.
+     */
+    protected void movementSelected(Status s, byte movement) {}
+    
+    /**
+     * Add the statistics of a finished search to the statistics of the current
+     * move.
+     * 
+     * @param result The result of the finished search.
+     */
+    void accumulateStatistics(RunnableFutureMiniMax.Result result) {
+        _nodesWithComputedHeuristic += result.nodesWithComputedHeuristic;
+        _lmrReductions += result.lmrReductions;
+        _lmrReSearches += result.lmrReSearches;
+        _iidSearches += result.iidSearches;
+        _abdadaDeferrals += result.abdadaDeferrals;
+    }
+    
+    /**
+     * Register the time a cancelled search of the current move took to 
+     * return.
+     * 
+     * @param search The cancelled search.
+     */
+    void accumulateCancelLatency(RunnableFutureMiniMax search) {
+        _cancelLatency = Math.max(_cancelLatency, search.getCancelLatency());
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Search config                                                          //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the tunable parameters of the search. Changes to them will be applied
+     * from the next call to move.
+     * 
+     * @return The tunable parameters of the search.
+     */
+    public SearchConfig getSearchConfig() {
+        return _searchConfig;
+    }
+    
+    /**
+     * Get the time manager of the moves, to set the game time or the move 
+     * time limit of the player.
+     * 
+     * @return The time manager of the moves.
+     */
+    public TimeManager getTimeManager() {
+        return _timeManager;
+    }
+    
     ////////////////////////////////////////////////////////////////////////////
     // Logging                                                                //
     ////////////////////////////////////////////////////////////////////////////
@@ -279,6 +619,13 @@ abstract public class PlayerBase implements IAuto, IPlayer {
         sb.append("lastSelectedMovement").append(';');
         sb.append("lastSelectedHeuristic").append(';');
         sb.append("depthReached").append(';');
+        sb.append("lmrReductions").append(';');
+        sb.append("lmrReSearches").append(';');
+        sb.append("iidSearches").append(';');
+        sb.append("abdadaDeferrals").append(';');
+        sb.append("cancelLatencyMicros").append(';');
+        sb.append("principalVariation").append(';');
+        sb.append("ttLoadProgress").append(';');
         return sb.toString();
     }
     
@@ -299,9 +646,49 @@ abstract public class PlayerBase implements IAuto, IPlayer {
         sb.append(_lastSelectedMovement).append(';');
         sb.append(_lastSelectedHeuristic).append(';');
         sb.append(_depthReached).append(';');
+        sb.append(_lmrReductions).append(';');
+        sb.append(_lmrReSearches).append(';');
+        sb.append(_iidSearches).append(';');
+        sb.append(_abdadaDeferrals).append(';');
+        sb.append(_cancelLatency/1000).append(';');
+        sb.append(principalVariationToString(_lastPrincipalVariation)).append(';');
+        sb.append(getTTLoadProgress()).append(';');
         return sb.toString();
     }
     
+    /**
+     * Get a line of play as a space-separated string of the movements in the 
+     * form x,y, with the skipped turns written as "pass".
+     * 
+     * @param line The movements, expressed in the form SIZE*x + y or -1 for a 
+     * skipped turn.
+     * @return The string with the line.
+     */
+    static String principalVariationToString(byte[] line) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < line.length; i++) {
+            if(i != 0)
+                sb.append(' ');
+            if(line[i] == -1) {
+                sb.append("pass");
+            } else {
+                sb.append(line[i]/Status.SIZE).append(',').append(line[i]%Status.SIZE);
+            }
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Get the expected line of play of the last movement, starting with the 
+     * selected movement.
+     * 
+     * @return The movements, expressed in the form SIZE*x + y or -1 for a 
+     * skipped turn.
+     */
+    public byte[] getLastPrincipalVariation() {
+        return _lastPrincipalVariation.clone();
+    }
+    
     /**
      * Write to the _fw the log of the last search.
      */
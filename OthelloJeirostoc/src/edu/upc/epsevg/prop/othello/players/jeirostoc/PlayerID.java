@@ -43,7 +43,18 @@ public class PlayerID extends PlayerIDLazySMP {
      * logging is disabled.
      */
     public PlayerID(FileWriter fw) {
-        super(fw);
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null, 
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerID(FileWriter fw, int numThreads) {
+        super(fw, numThreads);
         configName = "";
     }
     
@@ -62,7 +73,26 @@ public class PlayerID extends PlayerIDLazySMP {
      * @param numEntriesTT The number of entries in the transposition table.
      */
     public PlayerID(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, String name, long numEntriesTT) {    
-        super(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT);
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, name, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the 
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list 
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a 
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null, 
+     * logging is disabled.
+     * @param name Name of the configuration.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerID(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, String name, long numEntriesTT, int numThreads) {
+        super(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, numThreads);
         this.configName = name;
     }
 
@@ -0,0 +1,121 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.FileWriter;
+
+/**
+ * Player that does a search using MiniMax iteratively with several threads
+ * until it gets a timeout, following ABDADA: all the threads search the same
+ * depth with the regular move ordering and the movements another thread is
+ * searching are deferred until the rest have been searched, so the threads
+ * spread over different subtrees instead of repeating the same work.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PlayerIDABDADA extends PlayerIDLazySMP {
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor.
+     */
+    public PlayerIDABDADA() {
+        this((FileWriter)null, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     */
+    public PlayerIDABDADA(FileWriter fw) {
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDABDADA(FileWriter fw, int numThreads) {
+        super(fw, numThreads);
+        _searchConfig.setABDADA(true);
+        setLazySMPPolicy(new LazySMPPolicy.Uniform());
+    }
+    
+    /**
+     * Constructor with custom transposition table size.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     */
+    public PlayerIDABDADA(long numEntriesTT) {
+        this(numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom transposition table size and number of threads.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDABDADA(long numEntriesTT, int numThreads) {
+        super(numEntriesTT, numThreads);
+        _searchConfig.setABDADA(true);
+        setLazySMPPolicy(new LazySMPPolicy.Uniform());
+    }
+    
+    /**
+     * Constructor with custom heuristic scores.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     */
+    public PlayerIDABDADA(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDABDADA(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT, int numThreads) {
+        super(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, numThreads);
+        _searchConfig.setABDADA(true);
+        setLazySMPPolicy(new LazySMPPolicy.Uniform());
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Logging                                                                //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the name of the player.
+     * 
+     * @return The name of the player.
+     */
+    @Override
+    public String getName() {
+        return "JeiroMiniMaxIDABDADA";
+    }
+}
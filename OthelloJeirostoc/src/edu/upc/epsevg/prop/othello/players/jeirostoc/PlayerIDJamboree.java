@@ -0,0 +1,250 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.SearchType;
+import java.io.FileWriter;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Player that does a search using MiniMax iteratively until it gets a timeout,
+ * following Jamboree in a fork/join pool: the first movement of each node is
+ * searched alone and the rest are tested in parallel with null windows, and
+ * the work stealing of the pool balances the irregular trees among the
+ * threads.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PlayerIDJamboree extends PlayerBase {
+    ////////////////////////////////////////////////////////////////////////////
+    // Search variables                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The maximum number of movements a search has started with.
+     */
+    private int _maxDepthStarted;
+    
+    /**
+     * The amount of movements tested with a null window in the last search.
+     */
+    private long _nullWindowTests;
+    
+    /**
+     * The amount of tested movements that had to be searched again with the
+     * full window in the last search.
+     */
+    private long _reSearches;
+    
+    /**
+     * The pool that executes the tasks of the searches, kept across moves.
+     */
+    private final ForkJoinPool _pool;
+    
+    /**
+     * The scratch structures of each thread of the pool.
+     */
+    private final ThreadLocal<SearchScratch> _scratch = ThreadLocal.withInitial(SearchScratch::new);
+    
+    /**
+     * The token to stop the current search.
+     */
+    private volatile CancellationToken _cancelToken = new CancellationToken();
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor.
+     */
+    public PlayerIDJamboree() {
+        this((FileWriter)null, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     */
+    public PlayerIDJamboree(FileWriter fw) {
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDJamboree(FileWriter fw, int numThreads) {
+        super(SearchType.MINIMAX_IDS, fw, TT.DEF_NUM_ENTRIES);
+        _pool = new ForkJoinPool(numThreads);
+    }
+    
+    /**
+     * Constructor with custom transposition table size and number of threads.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDJamboree(long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, null, numEntriesTT);
+        _pool = new ForkJoinPool(numThreads);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     */
+    public PlayerIDJamboree(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDJamboree(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT);
+        _pool = new ForkJoinPool(numThreads);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Move                                                                   //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    @Override
+    protected void doSearch(Status s) {
+        CancellationToken cancelToken = new CancellationToken(_timeManager.getClock());
+        cancelToken.setDeadline(_timeManager.getHardDeadline());
+        _cancelToken = cancelToken;
+        _nullWindowTests = 0;
+        _reSearches = 0;
+        
+        int remainingMoves = (Status.SIZE*Status.SIZE - 4) - s.getNumMovements();
+        for (_maxDepthStarted = 1; _maxDepthStarted <= remainingMoves; _maxDepthStarted++) {
+            // Stop if the next iteration is not expected to finish in time
+            if(1 < _maxDepthStarted && !_timeManager.canStartIteration()) {
+                _maxDepthStarted--;
+                break;
+            }
+            
+            // Search current depth
+            JamboreeSearch search = new JamboreeSearch(_tt, _searchConfig, _playerColor, cancelToken, _scratch);
+            Float heuristic = search.search(_pool, s, _maxDepthStarted);
+            
+            // Store statistics
+            _nodesWithComputedHeuristic += search.getNodesWithComputedHeuristic();
+            _lmrReductions += search.getLmrReductions();
+            _lmrReSearches += search.getLmrReSearches();
+            _iidSearches += search.getIIDSearches();
+            _nullWindowTests += search.getNullWindowTests();
+            _reSearches += search.getReSearches();
+            
+            if(heuristic == null) {
+                // End search
+                _cancelLatency = Math.max(_cancelLatency, cancelToken.getNanosSinceCancel());
+                break;
+            } else {
+                // Store results
+                _depthReached = search.getDepthReached();
+                _lastSelectedHeuristic = heuristic;
+                _lastSelectedMovement = search.getSelectedMovement();
+                _timeManager.iterationCompleted();
+            }
+        }
+    }
+    
+    @Override
+    public void timeout() {
+        _cancelToken.cancel();
+    }
+    
+    /**
+     * Get the number of threads the player searches with.
+     * 
+     * @return The number of threads.
+     */
+    public int getNumThreads() {
+        return _pool.getParallelism();
+    }
+    
+    /**
+     * Release the TT and stop the threads of the pool. The player can't be 
+     * used once it has been closed.
+     */
+    @Override
+    public void close() {
+        super.close();
+        _pool.shutdown();
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Logging                                                                //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the name of the player.
+     * 
+     * @return The name of the player.
+     */
+    @Override
+    public String getName() {
+        return "JeiroMiniMaxIDJamboree" ;
+    }
+    
+    /**
+     * Get a semicolon-separated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     * 
+     * @return The newline-terminated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     */
+    @Override
+    public String getLogLineHeader() {
+        StringBuilder sb = new StringBuilder(super.getLogLineHeader());
+        sb.append("maxDepthStarted").append(';');
+        sb.append("nullWindowTests").append(';');
+        sb.append("reSearches").append(';');
+        sb.append("ttColissions").append(';');
+        return sb.toString();
+    }
+    
+    /**
+     * Get a semicolon-separated string with all the captured information about
+     * the last search.
+     * 
+     * @return The newline-terminated string with all the captured information
+     * about the last search.
+     */
+    @Override
+    public String getLogLineLastSearch() {
+        StringBuilder sb = new StringBuilder(super.getLogLineLastSearch());
+        sb.append(_maxDepthStarted).append(';');
+        sb.append(_nullWindowTests).append(';');
+        sb.append(_reSearches).append(';');
+        sb.append(_tt.getNumCollisions()).append(';');
+        return sb.toString();
+    }
+}
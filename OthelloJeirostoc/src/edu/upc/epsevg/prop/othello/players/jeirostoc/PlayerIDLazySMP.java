@@ -2,90 +2,304 @@ package edu.upc.epsevg.prop.othello.players.jeirostoc;
 
 import edu.upc.epsevg.prop.othello.SearchType;
 import java.io.FileWriter;
+import java.util.ArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.RejectedExecutionException;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Player that does a search using MiniMax iteratively and using a LazySMP
- * until it gets a timeout.
+ * until it gets a timeout. Optionally, it keeps searching the predicted
+ * position after the rival's reply while the rival thinks (pondering).
  * 
  * @author raul
  * @author josep
  */
 public class PlayerIDLazySMP extends PlayerBase {
     ////////////////////////////////////////////////////////////////////////////
-    // Executor subclass                                                      //
+    // Search class                                                           //
     ////////////////////////////////////////////////////////////////////////////
     
     /**
-     * ThreadPoolExecutor specialization to execute tasks in a LazySMP way.
+     * Search from a root node in a LazySMP way, executed by every worker of
+     * the pool. The results of the search are kept in the search until they
+     * are published to the outer class, so a pondering search can run between
+     * moves without touching the player's state.
      */
-    private class LazySMPExecutor extends ThreadPoolExecutor {
+    private class LazySMPSearch implements LazySMPWorkerPool.Job {
         /**
-         * Lock to coordinate writing the results of the search to the outer 
-         * class.
+         * Lock to coordinate writing the results of the search.
          */
         private final ReentrantLock storeResultsLock = new ReentrantLock();
         
         /**
-         * The amount to increment the depth of each task.
+         * The policy to diversify the tasks of the workers with.
          */
-        private final int _depthTaskIncrement;
+        private final LazySMPPolicy _policy;
         
         /**
-         * Constructor of the ThreadPool
+         * The number of workers of the search.
+         */
+        private final int _numThreads;
+        
+        /**
+         * The token to stop the tasks of the search.
+         */
+        private final CancellationToken _cancelToken = new CancellationToken(_timeManager.getClock());
+        
+        /**
+         * The root node of the search.
+         */
+        private final Status _root;
+        
+        /**
+         * Indicates if the search is pondering, that is, searching on the
+         * rival's time without being bounded by the time manager.
+         */
+        private volatile boolean _pondering;
+        
+        /**
+         * The latch that reaches zero when all the workers have finished the
+         * search or null if it has not been started.
+         */
+        private volatile CountDownLatch _done;
+        
+        /**
+         * The maximum depth a task of the search has completed with.
+         */
+        private int _maxDepthCompleted = -1;
+        
+        /**
+         * The depth reached by the selected task.
+         */
+        private int _depthReached = 0;
+        
+        /**
+         * The heuristic of the selected movement.
+         */
+        private float _lastSelectedHeuristic = 0;
+        
+        /**
+         * The selected movement.
+         */
+        private byte _lastSelectedMovement = -1;
+        
+        /**
+         * The results of the tasks that have finished successfully.
+         */
+        private final ArrayList<RunnableFutureMiniMax.Result> _results = new ArrayList<>();
+        
+        /**
+         * The tasks that have been cancelled.
+         */
+        private final ArrayList<RunnableFutureMiniMax> _cancelledTasks = new ArrayList<>();
+        
+        /**
+         * The selected movement of the last result of each worker, to vote
+         * the selected movement with.
+         */
+        private final byte[] _workerMovements;
+        
+        /**
+         * The heuristic of the last result of each worker.
+         */
+        private final float[] _workerHeuristics;
+        
+        /**
+         * The depth of the last result of each worker or 0 if it has none.
+         */
+        private final int[] _workerDepths;
+        
+        /**
+         * The depth reached by the last result of each worker.
+         */
+        private final int[] _workerDepthsReached;
+        
+        /**
+         * Constructor of the search.
          * 
-         * @param nThreads The number of threads to use.
+         * @param root The root node of the search.
+         * @param pondering True if the search starts pondering, false
+         * otherwise.
          */
-        LazySMPExecutor(int nThreads) {
-            super(nThreads, nThreads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
-            _depthTaskIncrement = Math.max(1, nThreads/2);
+        LazySMPSearch(Status root, boolean pondering) {
+            _policy = PlayerIDLazySMP.this._policy;
+            _numThreads = _pool.getNumThreads();
+            _root = root;
+            _pondering = pondering;
+            _workerMovements = new byte[_numThreads];
+            _workerHeuristics = new float[_numThreads];
+            _workerDepths = new int[_numThreads];
+            _workerDepthsReached = new int[_numThreads];
         }
         
-        @Override
-        protected void afterExecute(Runnable r, Throwable t) {
-            super.afterExecute(r, t);
-            if(r instanceof RunnableFutureMiniMax rfm) {
-                // Retrieve results from runnable
-                RunnableFutureMiniMax.Result result;
-                
-                try {
-                    result = (RunnableFutureMiniMax.Result)rfm.get();
-                } catch (InterruptedException | ExecutionException ex) {
-                    Logger.getLogger(PlayerIDLazySMP.class.getName()).log(Level.SEVERE, null, ex);
-                    return;
+        /**
+         * Submit the search to the workers of the pool.
+         */
+        void start() {
+            _done = _pool.submit(this);
+        }
+        
+        /**
+         * Stop the search as soon as possible.
+         */
+        void stop() {
+            _cancelToken.cancel();
+        }
+        
+        /**
+         * Stop pondering and bound the search with the time manager.
+         * 
+         * @param deadline The value of the clock of the time manager after 
+         * which the search has to be cancelled or 0 if there is none.
+         */
+        void stopPondering(long deadline) {
+            _cancelToken.setDeadline(deadline);
+            _pondering = false;
+        }
+        
+        /**
+         * Check if the root node of the search is s.
+         * 
+         * @param s The status to compare with.
+         * @return True if the root node is s, false otherwise.
+         */
+        boolean isSearching(Status s) {
+            return _root.getNumMovements() == s.getNumMovements() &&
+                   _root.getZobristKey(BoardVariation.BASE.v) == s.getZobristKey(BoardVariation.BASE.v);
+        }
+        
+        /**
+         * Wait until all the workers have finished the search.
+         */
+        void awaitSearch() {
+            try {
+                _done.await();
+            } catch (InterruptedException ex) {
+                Logger.getLogger(PlayerIDLazySMP.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        }
+        
+        /**
+         * Write the results of the search to the outer class.
+         */
+        void publishResults() {
+            storeResultsLock.lock();
+            try {
+                PlayerIDLazySMP.this._maxDepthCompleted = _maxDepthCompleted;
+                PlayerIDLazySMP.this._depthReached = _depthReached;
+                PlayerIDLazySMP.this._lastSelectedHeuristic = _lastSelectedHeuristic;
+                PlayerIDLazySMP.this._lastSelectedMovement = _lastSelectedMovement;
+                for (RunnableFutureMiniMax.Result result : _results) {
+                    accumulateStatistics(result);
                 }
-                
-                if(result == null)
-                    return;
-                
-                // Store results  
+                for (RunnableFutureMiniMax task : _cancelledTasks) {
+                    accumulateCancelLatency(task);
+                }
+            } finally {
+                storeResultsLock.unlock();
+            }
+        }
+        
+        /**
+         * Run the tasks of a worker, each one deeper than the previous, until
+         * the search is stopped or the next one is not expected to finish in
+         * time.
+         * 
+         * @param workerIndex The index of the worker.
+         * @param scratch The scratch structures owned by the worker.
+         */
+        @Override
+        public void work(int workerIndex, SearchScratch scratch) {
+            RunnableFutureMiniMax task = new RunnableFutureMiniMax(
+                _policy.getFirstDepth(workerIndex, _numThreads),
+                _root.getCurrentPlayerColor(),
+                _tt,
+                _root,
+                _policy.getRegularOrder(workerIndex),
+                _searchConfig,
+                _cancelToken,
+                scratch
+            );
+            task.setOrderSeed(_policy.getOrderSeed(workerIndex));
+            
+            while(task != null) {
+                task.run();
+                task = storeResultsAndContinue(workerIndex, task);
+            }
+        }
+        
+        /**
+         * Store the results of a finished task and generate a deeper one if 
+         * it can go deeper and the search is pondering or the time manager
+         * expects it to finish in time.
+         * 
+         * @param workerIndex The index of the worker.
+         * @param rfm The finished task.
+         * @return The next task of the worker or null if there is none.
+         */
+        private RunnableFutureMiniMax storeResultsAndContinue(int workerIndex, RunnableFutureMiniMax rfm) {
+            // Retrieve results from runnable
+            RunnableFutureMiniMax.Result result;
+            
+            try {
+                result = rfm.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                Logger.getLogger(PlayerIDLazySMP.class.getName()).log(Level.SEVERE, null, ex);
+                return null;
+            }
+            
+            if(result == null) {
                 storeResultsLock.lock();
                 try {
-                    _nodesWithComputedHeuristic += result.nodesWithComputedHeuristic;
-                    if( _maxDepthCompleted <  rfm.getMaxDepth() || 
-                       (_maxDepthCompleted == rfm.getMaxDepth() &&  _depthReached < result.depthReached)) {
-                        _maxDepthCompleted = rfm.getMaxDepth();
-                        _depthReached = result.depthReached;
-                        _lastSelectedHeuristic = result.lastSelectedHeuristic;
-                        _lastSelectedMovement = result.lastSelectedMovement;
-                    }
+                    _cancelledTasks.add(rfm);
                 } finally {
                     storeResultsLock.unlock();
                 }
-                    
-                // Generate next task if possible
-                RunnableFutureMiniMax nextTask = new RunnableFutureMiniMax(rfm, _depthTaskIncrement);
-                try {
-                    this.execute(nextTask);
-                } catch (RejectedExecutionException e) {}
+                return null;
+            }
+            
+            // Store results  
+            storeResultsLock.lock();
+            try {
+                _results.add(result);
+                if(_maxDepthCompleted < rfm.getMaxDepth() && !_pondering) {
+                    _timeManager.iterationCompleted();
+                }
+                if(_policy.getVoting()) {
+                    // Vote the selected movement among the last results of 
+                    // the workers
+                    _workerMovements[workerIndex] = result.lastSelectedMovement;
+                    _workerHeuristics[workerIndex] = result.lastSelectedHeuristic;
+                    _workerDepths[workerIndex] = rfm.getMaxDepth();
+                    _workerDepthsReached[workerIndex] = result.depthReached;
+                    int selected = LazySMPPolicy.selectByVotes(_workerMovements, _workerHeuristics, _workerDepths, _numThreads);
+                    _maxDepthCompleted = Math.max(_maxDepthCompleted, rfm.getMaxDepth());
+                    _depthReached = _workerDepthsReached[selected];
+                    _lastSelectedHeuristic = _workerHeuristics[selected];
+                    _lastSelectedMovement = _workerMovements[selected];
+                } else if( _maxDepthCompleted <  rfm.getMaxDepth() || 
+                          (_maxDepthCompleted == rfm.getMaxDepth() &&  _depthReached < result.depthReached)) {
+                    _maxDepthCompleted = rfm.getMaxDepth();
+                    _depthReached = result.depthReached;
+                    _lastSelectedHeuristic = result.lastSelectedHeuristic;
+                    _lastSelectedMovement = result.lastSelectedMovement;
+                }
+            } finally {
+                storeResultsLock.unlock();
+            }
+            
+            // Generate next task if it can go deeper and is expected to 
+            // finish in time
+            int nextDepth = _policy.getNextDepth(workerIndex, _numThreads, rfm.getMaxDepth());
+            RunnableFutureMiniMax nextTask = new RunnableFutureMiniMax(rfm, nextDepth - rfm.getMaxDepth());
+            if(rfm.getMaxDepth() < nextTask.getMaxDepth() && !_cancelToken.isCancelled() && 
+               (_pondering || _timeManager.canStartIteration())) {
+                return nextTask;
             }
+            return null;
         }
     }
     
@@ -99,9 +313,45 @@ public class PlayerIDLazySMP extends PlayerBase {
     private int _maxDepthCompleted;
     
     /**
-     * The executor of the searches.
+     * The workers that execute the searches, kept across moves.
+     */
+    private final LazySMPWorkerPool _pool;
+    
+    /**
+     * The current search.
+     */
+    private volatile LazySMPSearch _search;
+    
+    /**
+     * The policy to diversify the tasks of the workers with.
      */
-    private LazySMPExecutor _executor;
+    private volatile LazySMPPolicy _policy = new LazySMPPolicy.Staggered();
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Pondering variables                                                    //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Toggle to search the predicted position after the rival's reply while
+     * the rival thinks.
+     */
+    private volatile boolean _ponderingEnabled = false;
+    
+    /**
+     * The pondering search or null if there is none.
+     */
+    private LazySMPSearch _ponderSearch;
+    
+    /**
+     * The number of moves whose position had been pondered.
+     */
+    private long _ponderHits;
+    
+    /**
+     * The number of moves whose position had not been pondered while a
+     * different one had.
+     */
+    private long _ponderMisses;
     
     ////////////////////////////////////////////////////////////////////////////
     // Constructor                                                            //
@@ -111,8 +361,7 @@ public class PlayerIDLazySMP extends PlayerBase {
      * Default constructor.
      */
     public PlayerIDLazySMP() {
-        super(SearchType.MINIMAX_IDS, null, TT.DEF_NUM_ENTRIES);
-        _executor = new LazySMPExecutor(Runtime.getRuntime().availableProcessors());
+        this((FileWriter)null, DEF_NUM_THREADS);
     }
     
     /**
@@ -122,8 +371,20 @@ public class PlayerIDLazySMP extends PlayerBase {
      * logging is disabled.
      */
     public PlayerIDLazySMP(FileWriter fw) {
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null, 
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDLazySMP(FileWriter fw, int numThreads) {
         super(SearchType.MINIMAX_IDS, fw, TT.DEF_NUM_ENTRIES);
-        _executor = new LazySMPExecutor(Runtime.getRuntime().availableProcessors());
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
     }
     
     /**
@@ -132,8 +393,20 @@ public class PlayerIDLazySMP extends PlayerBase {
      * @param numEntriesTT The number of entries in the transposition table.
      */
     public PlayerIDLazySMP(long numEntriesTT) {
-        super(SearchType.MINIMAX, null, numEntriesTT);
-        _executor = new LazySMPExecutor(Runtime.getRuntime().availableProcessors());
+        this(numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom transposition table size and number of threads,
+     * for example to share a machine with other engines.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDLazySMP(long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, null, numEntriesTT);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
     }
     
     /**
@@ -150,8 +423,27 @@ public class PlayerIDLazySMP extends PlayerBase {
      * @param numEntriesTT The number of entries in the transposition table.
      */
     public PlayerIDLazySMP(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the 
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list 
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a 
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null, 
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDLazySMP(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT, int numThreads) {
         super(SearchType.MINIMAX_IDS, stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT);
-        _executor = new LazySMPExecutor(Runtime.getRuntime().availableProcessors());
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -160,32 +452,207 @@ public class PlayerIDLazySMP extends PlayerBase {
     
     @Override
     protected void doSearch(Status s) {
-        // Start thread execution
-        _maxDepthCompleted = -1;
-        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
-            _executor.execute(new RunnableFutureMiniMax(
-                1 + i/2,
-                s.getCurrentPlayerColor(),
-                _tt,
-                s,
-                i%2 == 0
-            ));
+        // Continue the pondering search if it was searching s or cancel it
+        LazySMPSearch search = takePonderSearch();
+        if(search != null && !search.isSearching(s)) {
+            search.stop();
+            search.awaitSearch();
+            search = null;
+            _ponderMisses++;
+        } else if(search != null) {
+            _ponderHits++;
+        }
+        
+        // Start a new search if there was no pondering hit
+        if(search == null) {
+            search = new LazySMPSearch(s, false);
+            search.start();
         }
+        search.stopPondering(_timeManager.getHardDeadline());
+        _search = search;
         
         // Wait for the search to complete
-        try {
-            _executor.awaitTermination(10, TimeUnit.DAYS);
-        } catch (InterruptedException ex) {
-            Logger.getLogger(PlayerIDLazySMP.class.getName()).log(Level.SEVERE, null, ex);
-        } finally {
-            // Regenerate executor for the next search
-            _executor = new LazySMPExecutor(Runtime.getRuntime().availableProcessors());
+        search.awaitSearch();
+        search.publishResults();
+    }
+    
+    /**
+     * Start pondering the position after the selected movement and the
+     * rival's reply predicted by the transposition table if pondering is
+     * enabled.
+     * 
+     * @param s The status the movement has been selected from.
+     * @param movement The selected movement or -1 if the turn is skipped.
+     */
+    @Override
+    protected void movementSelected(Status s, byte movement) {
+        // Cancel any pondering search left
+        LazySMPSearch previous = takePonderSearch();
+        if(previous != null) {
+            previous.stop();
+        }
+        
+        if(!_ponderingEnabled)
+            return;
+        
+        // Predict the position after the rival's reply
+        Status ponderRoot = new Status(s);
+        if(movement == -1) {
+            ponderRoot.skipTurn();
+        } else {
+            ponderRoot.movePiece(movement);
+        }
+        
+        if(ponderRoot.isTerminal())
+            return;
+        
+        if(ponderRoot.getNumNextMoves() == 0) {
+            ponderRoot.skipTurn();
+        } else {
+            byte reply = TT.extractSelectedMovementIfValidEntry(ponderRoot, _tt.readEntry(ponderRoot));
+            if(reply == -1)
+                return;
+            ponderRoot.movePiece(reply);
         }
+        
+        if(ponderRoot.isTerminal())
+            return;
+        
+        // Start pondering
+        LazySMPSearch search = new LazySMPSearch(ponderRoot, true);
+        synchronized(this) {
+            _ponderSearch = search;
+        }
+        search.start();
     }
 
     @Override
     public void timeout() {
-        _executor.shutdownNow();
+        LazySMPSearch search = _search;
+        if(search != null)
+            search.stop();
+    }
+    
+    /**
+     * Get the number of threads the player searches with.
+     * 
+     * @return The number of threads.
+     */
+    public int getNumThreads() {
+        return _pool.getNumThreads();
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Task schedule                                                          //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Set the policy to diversify the tasks of the workers with. Changes will
+     * be applied from the next search. By default, the tasks are staggered.
+     * 
+     * @param policy The policy.
+     */
+    public void setLazySMPPolicy(LazySMPPolicy policy) {
+        _policy = policy;
+    }
+    
+    /**
+     * Get the policy to diversify the tasks of the workers with.
+     * 
+     * @return The policy.
+     */
+    public LazySMPPolicy getLazySMPPolicy() {
+        return _policy;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Pondering                                                              //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Set if the player has to search the predicted position after the
+     * rival's reply while the rival thinks. It is disabled by default.
+     * 
+     * @param b True if it has to ponder, false otherwise.
+     */
+    public void setPondering(boolean b) {
+        _ponderingEnabled = b;
+        if(!b) {
+            stopPondering();
+        }
+    }
+    
+    /**
+     * Check if the player searches the predicted position after the rival's
+     * reply while the rival thinks.
+     * 
+     * @return True if it ponders, false otherwise.
+     */
+    public boolean getPondering() {
+        return _ponderingEnabled;
+    }
+    
+    /**
+     * Cancel the pondering search if there is one, for example at the end of
+     * the game.
+     */
+    public void stopPondering() {
+        LazySMPSearch search = takePonderSearch();
+        if(search != null) {
+            search.stop();
+            search.awaitSearch();
+        }
+    }
+    
+    /**
+     * Stop the pondering search and the workers and release the TT. The 
+     * player can't be used once it has been closed.
+     */
+    @Override
+    public void close() {
+        stopPondering();
+        _pool.close();
+        super.close();
+    }
+    
+    /**
+     * Check if the player is pondering the given status.
+     * 
+     * @param s The status to check.
+     * @return True if there is a pondering search of s, false otherwise.
+     */
+    synchronized boolean isPondering(Status s) {
+        return _ponderSearch != null && _ponderSearch.isSearching(s);
+    }
+    
+    /**
+     * Get the number of moves whose position had been pondered.
+     * 
+     * @return The number of pondering hits.
+     */
+    public long getPonderHits() {
+        return _ponderHits;
+    }
+    
+    /**
+     * Get the number of moves whose position had not been pondered while a
+     * different one had.
+     * 
+     * @return The number of pondering misses.
+     */
+    public long getPonderMisses() {
+        return _ponderMisses;
+    }
+    
+    /**
+     * Remove the pondering search from the player.
+     * 
+     * @return The pondering search or null if there was none.
+     */
+    private synchronized LazySMPSearch takePonderSearch() {
+        LazySMPSearch search = _ponderSearch;
+        _ponderSearch = null;
+        return search;
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -201,7 +668,7 @@ public class PlayerIDLazySMP extends PlayerBase {
     public String getName() {
         return "JeiroMiniMaxIDLazySMP" ;
     }
-        
+    
     /**
      * Get a semicolon-separated string with the header of the information 
      * retrieved from getLogLineLastSearch.
@@ -214,6 +681,8 @@ public class PlayerIDLazySMP extends PlayerBase {
         StringBuilder sb = new StringBuilder(super.getLogLineHeader());
         sb.append("maxDepthCompleted").append(';');
         sb.append("ttColissions").append(';');
+        sb.append("ponderHits").append(';');
+        sb.append("ponderMisses").append(';');
         return sb.toString();
     }
     
@@ -229,6 +698,8 @@ public class PlayerIDLazySMP extends PlayerBase {
         StringBuilder sb = new StringBuilder(super.getLogLineLastSearch());
         sb.append(_maxDepthCompleted).append(';');
         sb.append(_tt.getNumCollisions()).append(';');
+        sb.append(_ponderHits).append(';');
+        sb.append(_ponderMisses).append(';');
         return sb.toString();
     }
 }
@@ -0,0 +1,368 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.SearchType;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Player that scores every movement of the root node using MiniMax
+ * iteratively until it gets a timeout. The movements of the root node are
+ * split among several threads sharing the transposition table, each one
+ * searched with its own full window, and the scores are kept as a ranked
+ * list (multi-PV) that can be used for analysis or hints.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PlayerIDMultiPV extends PlayerBase {
+    ////////////////////////////////////////////////////////////////////////////
+    // Search variables                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The maximum number of movements a search has completed all the root
+     * movements with.
+     */
+    private int _maxDepthCompleted;
+    
+    /**
+     * The workers that execute the searches, kept across moves.
+     */
+    private final LazySMPWorkerPool _pool;
+    
+    /**
+     * The token to stop the current search.
+     */
+    private volatile CancellationToken _cancelToken = new CancellationToken();
+    
+    /**
+     * The scores of the root movements of the last search, ranked from the
+     * best to the worst.
+     */
+    private List<RootMoveScore> _multiPV = Collections.emptyList();
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor.
+     */
+    public PlayerIDMultiPV() {
+        this((FileWriter)null, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     */
+    public PlayerIDMultiPV(FileWriter fw) {
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDMultiPV(FileWriter fw, int numThreads) {
+        super(SearchType.MINIMAX_IDS, fw, TT.DEF_NUM_ENTRIES);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    /**
+     * Constructor with custom transposition table size and number of threads.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDMultiPV(long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, null, numEntriesTT);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     */
+    public PlayerIDMultiPV(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDMultiPV(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Move                                                                   //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    @Override
+    protected void doSearch(Status s) {
+        int remainingMoves = (Status.SIZE*Status.SIZE - 4) - s.getNumMovements();
+        searchRootMoves(s, remainingMoves);
+    }
+    
+    /**
+     * Score every movement of s iteratively until maxDepth, the search is
+     * cancelled or the next iteration is not expected to finish in time. The
+     * movements of each iteration are searched from the best to the worst of
+     * the previous one, and the scores of a cancelled iteration replace the
+     * previous ones of the movements it has completed.
+     * 
+     * @param s The root node of the search.
+     * @param maxDepth The maximum number of movements to search with.
+     */
+    void searchRootMoves(Status s, int maxDepth) {
+        CancellationToken cancelToken = new CancellationToken(_timeManager.getClock());
+        cancelToken.setDeadline(_timeManager.getHardDeadline());
+        _cancelToken = cancelToken;
+        _maxDepthCompleted = 0;
+        
+        int playerColor = s.getCurrentPlayerColor();
+        byte[] moves = new byte[Status.SIZE*Status.SIZE];
+        int numMoves = s.getNextMoves(moves);
+        float[] heuristics = new float[numMoves];
+        int[] depths = new int[numMoves];
+        int[] depthsReached = new int[numMoves];
+        
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            // Stop if the next iteration is not expected to finish in time
+            if(1 < depth && !_timeManager.canStartIteration())
+                break;
+            
+            // Split the root movements among the workers
+            int searchDepth = depth;
+            AtomicInteger nextMove = new AtomicInteger(0);
+            CountDownLatch done = _pool.submit((workerIndex, scratch) -> {
+                for (int i = nextMove.getAndIncrement(); i < numMoves; i = nextMove.getAndIncrement()) {
+                    Status next = new Status(s);
+                    next.movePiece(moves[i]);
+                    RunnableFutureMiniMax search = new RunnableFutureMiniMax(searchDepth-1, playerColor, _tt, next, true, _searchConfig, cancelToken, scratch);
+                    RunnableFutureMiniMax.Result result = search.searchWindow(Float.NEGATIVE_INFINITY, Float.POSITIVE_INFINITY, false);
+                    
+                    synchronized(this) {
+                        if(result == null) {
+                            accumulateCancelLatency(search);
+                            return;
+                        }
+                        heuristics[i] = result.lastSelectedHeuristic;
+                        depths[i] = searchDepth;
+                        depthsReached[i] = result.depthReached + 1;
+                        accumulateStatistics(result);
+                    }
+                }
+            });
+            
+            // Wait for the iteration to complete
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                Logger.getLogger(PlayerIDMultiPV.class.getName()).log(Level.SEVERE, null, ex);
+            }
+            
+            // End search if any movement has not completed the iteration
+            boolean completed = true;
+            for (int i = 0; i < numMoves; i++) {
+                completed = completed && depths[i] == depth;
+            }
+            if(!completed)
+                break;
+            
+            // Store results and search the best movements first in the next
+            // iteration
+            sortByHeuristic(moves, heuristics, depths, depthsReached, numMoves);
+            _maxDepthCompleted = depth;
+            _lastSelectedMovement = moves[0];
+            _lastSelectedHeuristic = heuristics[0];
+            _depthReached = 0;
+            for (int i = 0; i < numMoves; i++) {
+                _depthReached = Math.max(_depthReached, depthsReached[i]);
+            }
+            _timeManager.iterationCompleted();
+        }
+        
+        // Rank the scores, including the ones of the cancelled iteration
+        sortByHeuristic(moves, heuristics, depths, depthsReached, numMoves);
+        ArrayList<RootMoveScore> multiPV = new ArrayList<>(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            if(0 < depths[i]) {
+                multiPV.add(new RootMoveScore(moves[i], heuristics[i], depths[i], depthsReached[i]));
+            }
+        }
+        _multiPV = Collections.unmodifiableList(multiPV);
+        
+        // Fall back to the best scored movement if no iteration completed
+        if(_lastSelectedMovement == -1 && 0 < numMoves) {
+            _lastSelectedMovement = moves[0];
+            _lastSelectedHeuristic = heuristics[0];
+        }
+    }
+    
+    /**
+     * Sort the root movements by decreasing heuristic, keeping the relative
+     * order of the movements with the same heuristic.
+     * 
+     * @param moves The movements.
+     * @param heuristics The heuristic of each movement.
+     * @param depths The depth of each movement.
+     * @param depthsReached The depth reached by each movement.
+     * @param numMoves The number of movements.
+     */
+    private static void sortByHeuristic(byte[] moves, float[] heuristics, int[] depths, int[] depthsReached, int numMoves) {
+        for (int i = 1; i < numMoves; i++) {
+            byte move = moves[i];
+            float heuristic = heuristics[i];
+            int depth = depths[i];
+            int depthReached = depthsReached[i];
+            int j = i - 1;
+            while(0 <= j && heuristics[j] < heuristic) {
+                moves[j+1] = moves[j];
+                heuristics[j+1] = heuristics[j];
+                depths[j+1] = depths[j];
+                depthsReached[j+1] = depthsReached[j];
+                j--;
+            }
+            moves[j+1] = move;
+            heuristics[j+1] = heuristic;
+            depths[j+1] = depth;
+            depthsReached[j+1] = depthReached;
+        }
+    }
+    
+    /**
+     * Forget the scores of the previous search if the movement has been
+     * selected without searching.
+     * 
+     * @param s The status the movement has been selected from.
+     * @param movement The selected movement or -1 if the turn is skipped.
+     */
+    @Override
+    protected void movementSelected(Status s, byte movement) {
+        if(s.getNumNextMoves() <= 1) {
+            _multiPV = Collections.emptyList();
+        }
+    }
+    
+    @Override
+    public void timeout() {
+        _cancelToken.cancel();
+    }
+    
+    /**
+     * Get the scores of the root movements of the last search, ranked from
+     * the best to the worst. The movements that had not completed any
+     * iteration when the search was cancelled are left out, and the list is
+     * empty if the movement was selected without searching.
+     * 
+     * @return The ranked scores.
+     */
+    public List<RootMoveScore> getMultiPV() {
+        return _multiPV;
+    }
+    
+    /**
+     * Get the number of threads the player searches with.
+     * 
+     * @return The number of threads.
+     */
+    public int getNumThreads() {
+        return _pool.getNumThreads();
+    }
+    
+    /**
+     * Release the TT and stop the workers. The player can't be used once it 
+     * has been closed.
+     */
+    @Override
+    public void close() {
+        super.close();
+        _pool.close();
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Logging                                                                //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the name of the player.
+     * 
+     * @return The name of the player.
+     */
+    @Override
+    public String getName() {
+        return "JeiroMiniMaxIDMultiPV" ;
+    }
+    
+    /**
+     * Get a semicolon-separated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     * 
+     * @return The newline-terminated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     */
+    @Override
+    public String getLogLineHeader() {
+        StringBuilder sb = new StringBuilder(super.getLogLineHeader());
+        sb.append("maxDepthCompleted").append(';');
+        sb.append("ttColissions").append(';');
+        sb.append("multiPV").append(';');
+        return sb.toString();
+    }
+    
+    /**
+     * Get a semicolon-separated string with all the captured information about
+     * the last search.
+     * 
+     * @return The newline-terminated string with all the captured information
+     * about the last search.
+     */
+    @Override
+    public String getLogLineLastSearch() {
+        StringBuilder sb = new StringBuilder(super.getLogLineLastSearch());
+        sb.append(_maxDepthCompleted).append(';');
+        sb.append(_tt.getNumCollisions()).append(';');
+        for (int i = 0; i < _multiPV.size(); i++) {
+            sb.append(i == 0 ? "" : " ").append(_multiPV.get(i));
+        }
+        sb.append(';');
+        return sb.toString();
+    }
+}
@@ -28,6 +28,16 @@ public class PlayerIDSeq extends PlayerBase {
      */
     RunnableFutureMiniMax _currentRun;
     
+    /**
+     * The token to stop the runs of the current search.
+     */
+    private volatile CancellationToken _cancelToken = new CancellationToken();
+    
+    /**
+     * The scratch structures reused by the runs.
+     */
+    private final SearchScratch _scratch = new SearchScratch();
+    
     ////////////////////////////////////////////////////////////////////////////
     // Constructor                                                            //
     ////////////////////////////////////////////////////////////////////////////
@@ -83,13 +93,21 @@ public class PlayerIDSeq extends PlayerBase {
     protected void doSearch(Status s) {
         RunnableFutureMiniMax.Result currentResult;
         int remainingMoves = (Status.SIZE*Status.SIZE - 4) - s.getNumMovements();
+        _cancelToken = new CancellationToken(_timeManager.getClock());
+        _cancelToken.setDeadline(_timeManager.getHardDeadline());
         
         for (_maxDepthStarted = 1; _maxDepthStarted <= remainingMoves; _maxDepthStarted++) {
+            // Stop if the next iteration is not expected to finish in time
+            if(1 < _maxDepthStarted && !_timeManager.canStartIteration()) {
+                _maxDepthStarted--;
+                break;
+            }
+            
             // Search current depth
-            _currentRun = new RunnableFutureMiniMax(_maxDepthStarted, _playerColor, _tt, s, true);
+            _currentRun = new RunnableFutureMiniMax(_maxDepthStarted, _playerColor, _tt, s, true, _searchConfig, _cancelToken, _scratch);
             _currentRun.run();
             try {
-                currentResult = (RunnableFutureMiniMax.Result)_currentRun.get();
+                currentResult = _currentRun.get();
             } catch (InterruptedException | ExecutionException ex) {
                 Logger.getLogger(PlayerIDSeq.class.getName()).log(Level.SEVERE, null, ex);
                 currentResult = null;
@@ -97,21 +115,22 @@ public class PlayerIDSeq extends PlayerBase {
             
             if(currentResult == null) {
                 // End search
+                accumulateCancelLatency(_currentRun);
                 break;
             } else {
                 // Store results
                 _depthReached = currentResult.depthReached;
                 _lastSelectedHeuristic = currentResult.lastSelectedHeuristic;
                 _lastSelectedMovement = currentResult.lastSelectedMovement;
-                _nodesWithComputedHeuristic += currentResult.nodesWithComputedHeuristic;
+                accumulateStatistics(currentResult);
+                _timeManager.iterationCompleted();
             }
         }
     }
 
     @Override
     public void timeout() {
-        if(_currentRun != null)
-            _currentRun.cancel(false);
+        _cancelToken.cancel();
     }
     
     ////////////////////////////////////////////////////////////////////////////
@@ -0,0 +1,267 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.SearchType;
+import java.io.FileWriter;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Player that does a search using MiniMax iteratively until it gets a timeout,
+ * splitting the nodes among several threads with the young brothers wait
+ * concept: the first child of a node is searched alone and the remaining ones
+ * are split among the idle threads.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PlayerIDYBWC extends PlayerBase {
+    ////////////////////////////////////////////////////////////////////////////
+    // Search variables                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The maximum number of movements a search has started with.
+     */
+    private int _maxDepthStarted;
+    
+    /**
+     * The workers that execute the searches, kept across moves.
+     */
+    private final LazySMPWorkerPool _pool;
+    
+    /**
+     * The token to stop the current search.
+     */
+    private volatile CancellationToken _cancelToken = new CancellationToken();
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor.
+     */
+    public PlayerIDYBWC() {
+        this((FileWriter)null, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     */
+    public PlayerIDYBWC(FileWriter fw) {
+        this(fw, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with logging activated and custom number of threads.
+     * 
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDYBWC(FileWriter fw, int numThreads) {
+        super(SearchType.MINIMAX_IDS, fw, TT.DEF_NUM_ENTRIES);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    /**
+     * Constructor with custom transposition table size and number of threads.
+     * 
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDYBWC(long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, null, numEntriesTT);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     */
+    public PlayerIDYBWC(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT) {
+        this(stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT, DEF_NUM_THREADS);
+    }
+    
+    /**
+     * Constructor with custom heuristic scores and number of threads.
+     * 
+     * @param stableScoreConfig Configuration parameter value for Status: the
+     * score to evaluate the detected positions in with.
+     * @param diskScoresConfig Configuration parameter value for Status: a list
+     * of the scores for having captured each position.
+     * @param neighborScoresConfig Configuration parameter value for Status: a
+     * list of the scores for having each position as a neighbor.
+     * @param fw File writer to write the logs in csv format to. If it is null,
+     * logging is disabled.
+     * @param numEntriesTT The number of entries in the transposition table.
+     * @param numThreads The number of threads to search with.
+     */
+    public PlayerIDYBWC(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig, FileWriter fw, long numEntriesTT, int numThreads) {
+        super(SearchType.MINIMAX_IDS, stableScoreConfig, diskScoresConfig, neighborScoresConfig, fw, numEntriesTT);
+        _pool = new LazySMPWorkerPool(numThreads);
+        _pool.closeWhenUnreachable(this);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Move                                                                   //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    @Override
+    protected void doSearch(Status s) {
+        CancellationToken cancelToken = new CancellationToken(_timeManager.getClock());
+        cancelToken.setDeadline(_timeManager.getHardDeadline());
+        _cancelToken = cancelToken;
+        
+        // The first worker deepens the search and the rest help it
+        YBWCCoordinator ybwc = new YBWCCoordinator(_playerColor, _tt, _searchConfig, cancelToken);
+        CountDownLatch done = _pool.submit((workerIndex, scratch) -> {
+            if(workerIndex == 0) {
+                try {
+                    iterate(s, ybwc, cancelToken, scratch);
+                } finally {
+                    ybwc.finish();
+                }
+            } else {
+                ybwc.help(scratch);
+            }
+        });
+        
+        // Wait for the search to complete
+        try {
+            done.await();
+        } catch (InterruptedException ex) {
+            Logger.getLogger(PlayerIDYBWC.class.getName()).log(Level.SEVERE, null, ex);
+        }
+    }
+    
+    /**
+     * Search s iteratively until the search is cancelled or the next
+     * iteration is not expected to finish in time.
+     * 
+     * @param s The root node of the search.
+     * @param ybwc The coordinator to split the nodes with.
+     * @param cancelToken The token to stop the search.
+     * @param scratch The scratch structures of the worker.
+     */
+    private void iterate(Status s, YBWCCoordinator ybwc, CancellationToken cancelToken, SearchScratch scratch) {
+        RunnableFutureMiniMax.Result currentResult;
+        int remainingMoves = (Status.SIZE*Status.SIZE - 4) - s.getNumMovements();
+        
+        for (_maxDepthStarted = 1; _maxDepthStarted <= remainingMoves; _maxDepthStarted++) {
+            // Stop if the next iteration is not expected to finish in time
+            if(1 < _maxDepthStarted && !_timeManager.canStartIteration()) {
+                _maxDepthStarted--;
+                break;
+            }
+            
+            // Search current depth
+            RunnableFutureMiniMax run = new RunnableFutureMiniMax(_maxDepthStarted, _playerColor, _tt, s, true, _searchConfig, cancelToken, scratch);
+            run.setYBWCCoordinator(ybwc);
+            run.run();
+            try {
+                currentResult = run.get();
+            } catch (InterruptedException | ExecutionException ex) {
+                Logger.getLogger(PlayerIDYBWC.class.getName()).log(Level.SEVERE, null, ex);
+                currentResult = null;
+            }
+            
+            if(currentResult == null) {
+                // End search
+                accumulateCancelLatency(run);
+                break;
+            } else {
+                // Store results
+                _depthReached = currentResult.depthReached;
+                _lastSelectedHeuristic = currentResult.lastSelectedHeuristic;
+                _lastSelectedMovement = currentResult.lastSelectedMovement;
+                accumulateStatistics(currentResult);
+                _timeManager.iterationCompleted();
+            }
+        }
+    }
+    
+    @Override
+    public void timeout() {
+        _cancelToken.cancel();
+    }
+    
+    /**
+     * Get the number of threads the player searches with.
+     * 
+     * @return The number of threads.
+     */
+    public int getNumThreads() {
+        return _pool.getNumThreads();
+    }
+    
+    /**
+     * Release the TT and stop the workers. The player can't be used once it 
+     * has been closed.
+     */
+    @Override
+    public void close() {
+        super.close();
+        _pool.close();
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Logging                                                                //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Get the name of the player.
+     * 
+     * @return The name of the player.
+     */
+    @Override
+    public String getName() {
+        return "JeiroMiniMaxIDYBWC" ;
+    }
+    
+    /**
+     * Get a semicolon-separated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     * 
+     * @return The newline-terminated string with the header of the information
+     * retrieved from getLogLineLastSearch.
+     */
+    @Override
+    public String getLogLineHeader() {
+        StringBuilder sb = new StringBuilder(super.getLogLineHeader());
+        sb.append("maxDepthStarted").append(';');
+        sb.append("ttColissions").append(';');
+        return sb.toString();
+    }
+    
+    /**
+     * Get a semicolon-separated string with all the captured information about
+     * the last search.
+     * 
+     * @return The newline-terminated string with all the captured information
+     * about the last search.
+     */
+    @Override
+    public String getLogLineLastSearch() {
+        StringBuilder sb = new StringBuilder(super.getLogLineLastSearch());
+        sb.append(_maxDepthStarted).append(';');
+        sb.append(_tt.getNumCollisions()).append(';');
+        return sb.toString();
+    }
+}
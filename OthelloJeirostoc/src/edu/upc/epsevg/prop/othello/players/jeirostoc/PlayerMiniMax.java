@@ -99,15 +99,15 @@ public class PlayerMiniMax extends PlayerBase {
      */
     @Override
     public void doSearch(Status s) {
-        RunnableFutureMiniMax r = new RunnableFutureMiniMax(_maxDepth, _playerColor, _tt, s, true);
+        RunnableFutureMiniMax r = new RunnableFutureMiniMax(_maxDepth, _playerColor, _tt, s, true, _searchConfig);
         r.run();
         RunnableFutureMiniMax.Result rr;
         try {
-            rr = (RunnableFutureMiniMax.Result)r.get();
+            rr = r.get();
             _depthReached = rr.depthReached;
             _lastSelectedHeuristic = rr.lastSelectedHeuristic;
             _lastSelectedMovement = rr.lastSelectedMovement;
-            _nodesWithComputedHeuristic = rr.nodesWithComputedHeuristic;
+            accumulateStatistics(rr);
         } catch (InterruptedException | ExecutionException ex) {
             Logger.getLogger(PlayerMiniMax.class.getName()).log(Level.SEVERE, null, ex);
         }
@@ -0,0 +1,107 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.awt.Point;
+
+/**
+ * The score of a movement of the root node, as a line of a multi-PV output.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class RootMoveScore {
+    /**
+     * The movement, expressed in the form SIZE*x + y.
+     */
+    private final byte _movement;
+    
+    /**
+     * The heuristic of the movement.
+     */
+    private final float _heuristic;
+    
+    /**
+     * The number of movements the movement has been searched with, including
+     * itself.
+     */
+    private final int _depth;
+    
+    /**
+     * The maximum depth the search of the movement has computed an heuristic.
+     */
+    private final int _depthReached;
+    
+    /**
+     * Constructor of the score of a movement.
+     * 
+     * @param movement The movement, expressed in the form SIZE*x + y.
+     * @param heuristic The heuristic of the movement.
+     * @param depth The number of movements the movement has been searched
+     * with, including itself.
+     * @param depthReached The maximum depth the search of the movement has
+     * computed an heuristic.
+     */
+    RootMoveScore(byte movement, float heuristic, int depth, int depthReached) {
+        _movement = movement;
+        _heuristic = heuristic;
+        _depth = depth;
+        _depthReached = depthReached;
+    }
+    
+    /**
+     * Get the movement.
+     * 
+     * @return The movement, expressed in the form SIZE*x + y.
+     */
+    public byte getMovement() {
+        return _movement;
+    }
+    
+    /**
+     * Get the movement as a point of the board.
+     * 
+     * @return The point of the movement.
+     */
+    public Point getPoint() {
+        return new Point(_movement/Status.SIZE, _movement%Status.SIZE);
+    }
+    
+    /**
+     * Get the heuristic of the movement.
+     * 
+     * @return The heuristic.
+     */
+    public float getHeuristic() {
+        return _heuristic;
+    }
+    
+    /**
+     * Get the number of movements the movement has been searched with,
+     * including itself.
+     * 
+     * @return The depth.
+     */
+    public int getDepth() {
+        return _depth;
+    }
+    
+    /**
+     * Get the maximum depth the search of the movement has computed an
+     * heuristic.
+     * 
+     * @return The depth reached.
+     */
+    public int getDepthReached() {
+        return _depthReached;
+    }
+    
+    /**
+     * Get the score as a string with the movement, the heuristic and the
+     * depth.
+     * 
+     * @return The string.
+     */
+    @Override
+    public String toString() {
+        return "(" + _movement/Status.SIZE + "," + _movement%Status.SIZE + ") " + _heuristic + " d" + _depth;
+    }
+}
@@ -1,20 +1,38 @@
 package edu.upc.epsevg.prop.othello.players.jeirostoc;
 
-import java.awt.Point;
-import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.RunnableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * MiniMax search algorithm that chooses a move based on a MiniMax exploration 
- * and is executable as runnable.
+ * and is executable as runnable. The search stops when its cancellation token,
+ * which is shared with the tasks copied from it, is cancelled.
  * 
  * @author raul
  * @author josep
  */
-class RunnableFutureMiniMax implements RunnableFuture {
+class RunnableFutureMiniMax implements RunnableFuture<RunnableFutureMiniMax.Result> {
+    /**
+     * State of a task that has not started running.
+     */
+    private static final int STATE_NEW = 0;
+    
+    /**
+     * State of a task that is running.
+     */
+    private static final int STATE_RUNNING = 1;
+    
+    /**
+     * State of a task that has finished running or has been cancelled before
+     * starting.
+     */
+    private static final int STATE_DONE = 2;
+    
     /**
      * Result class to group all the execution information.
      */
@@ -38,6 +56,28 @@ class RunnableFutureMiniMax implements RunnableFuture {
          * The last selected movement in the search.
          */
         final byte lastSelectedMovement;
+        
+        /**
+         * The amount of moves searched with a late move reduction.
+         */
+        final long lmrReductions;
+        
+        /**
+         * The amount of reduced moves that had to be searched again at full 
+         * depth.
+         */
+        final long lmrReSearches;
+        
+        /**
+         * The amount of internal iterative deepening searches made.
+         */
+        final long iidSearches;
+        
+        /**
+         * The amount of movements deferred because other threads were 
+         * searching them.
+         */
+        final long abdadaDeferrals;
 
         /**
          * Default constructor.
@@ -48,25 +88,72 @@ class RunnableFutureMiniMax implements RunnableFuture {
          * @param lastSelectedHeuristic The last selected heuristic in the 
          * search.
          * @param lastSelectedMovement The last selected movement in the search.
+         * @param lmrReductions The amount of moves searched with a late move
+         * reduction.
+         * @param lmrReSearches The amount of reduced moves that had to be 
+         * searched again at full depth.
+         * @param iidSearches The amount of internal iterative deepening 
+         * searches made.
+         * @param abdadaDeferrals The amount of movements deferred because 
+         * other threads were searching them.
          */
-        Result(long nodesWithComputedHeuristic, int depthReached, float lastSelectedHeuristic, byte lastSelectedMovement) {
+        Result(long nodesWithComputedHeuristic, int depthReached, float lastSelectedHeuristic, byte lastSelectedMovement, long lmrReductions, long lmrReSearches, long iidSearches, long abdadaDeferrals) {
             this.nodesWithComputedHeuristic = nodesWithComputedHeuristic;
             this.depthReached = depthReached;
             this.lastSelectedHeuristic = lastSelectedHeuristic;
             this.lastSelectedMovement = lastSelectedMovement;
+            this.lmrReductions = lmrReductions;
+            this.lmrReSearches = lmrReSearches;
+            this.iidSearches = iidSearches;
+            this.abdadaDeferrals = abdadaDeferrals;
         }
     }
     
     /**
-     * Indicates if the search is active or not. The change of this value to 
-     * false has to be honored as soon as it is possible.
+     * Indicates if the search is active or not from the point of view of the 
+     * searching thread. It is updated from the cancellation token every 
+     * cancel poll interval nodes, and the change of this value to false has 
+     * to be honored as soon as it is possible.
      */
     private boolean _searchIsOn;
     
     /**
      * Indicates if the search has completed successfully.
      */
-    private boolean _finished;
+    private volatile boolean _finished;
+    
+    /**
+     * The state of the task: STATE_NEW, STATE_RUNNING or STATE_DONE.
+     */
+    private final AtomicInteger _state;
+    
+    /**
+     * Latch released when the task reaches STATE_DONE.
+     */
+    private final CountDownLatch _done;
+    
+    /**
+     * The exception thrown by the search or null if there was none.
+     */
+    private volatile Throwable _exception;
+    
+    /**
+     * Token to request the search to stop, shared with the tasks copied from 
+     * this one.
+     */
+    private final CancellationToken _cancelToken;
+    
+    /**
+     * The number of nodes visited since the cancellation token was last 
+     * polled.
+     */
+    private int _nodesSincePoll;
+    
+    /**
+     * The nanoseconds between the cancellation request and the search 
+     * returning or 0 if the search was not cancelled.
+     */
+    private volatile long _cancelLatency;
     
     /**
      * The maximum depth the algorithm is allowed to go.
@@ -98,17 +185,84 @@ class RunnableFutureMiniMax implements RunnableFuture {
      */
     private byte _lastSelectedMovement;
     
+    /**
+     * The amount of moves searched with a late move reduction.
+     */
+    private long _lmrReductions;
+    
+    /**
+     * The amount of reduced moves that had to be searched again at full depth.
+     */
+    private long _lmrReSearches;
+    
+    /**
+     * The amount of internal iterative deepening searches made.
+     */
+    private long _iidSearches;
+    
+    /**
+     * The amount of movements deferred because other threads were searching
+     * them.
+     */
+    private long _abdadaDeferrals;
+    
     /**
      * Transposition table.
      */
     private final TT _tt;
     
+    /**
+     * The tunable parameters of the search.
+     */
+    private final SearchConfig _config;
+    
+    /**
+     * The scratch structures of the search, shared with the tasks copied from
+     * this one.
+     */
+    private final SearchScratch _scratch;
+    
     /**
      * The array to indicate between recursion levels if the current level has
      * been pruned or not.
      */
     private final boolean[] _isExact;
     
+    /**
+     * The movements of each recursion level, expressed in the form SIZE*x + y.
+     */
+    private final byte[][] _moves;
+    
+    /**
+     * The nodes of each recursion level.
+     */
+    private final Status[] _nodes;
+    
+    /**
+     * The last movement that caused a cutoff as a reply to each movement of 
+     * the rival, indexed as [isMax ? 0 : 1][rival movement] and expressed in 
+     * the form SIZE*x + y or -1 if there is none.
+     */
+    private final byte[][] _counterMoves;
+    
+    /**
+     * The indices of the movements deferred at each recursion level because
+     * other threads were searching them.
+     */
+    private final byte[][] _deferredMoves;
+    
+    /**
+     * The coordinator to split nodes among idle workers with or null if the
+     * search is sequential.
+     */
+    private YBWCCoordinator _ybwc;
+    
+    /**
+     * The innermost split point this search is working at or null if there is
+     * none. The search stops if it is aborted.
+     */
+    private YBWCCoordinator.SplitPoint _splitPoint;
+    
     /**
      * Reference to the root node.
      */
@@ -119,6 +273,12 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * ordering.
      */
     private final boolean _regularOrder;
+    
+    /**
+     * The seed to shuffle the root movements after the first one with or 0 
+     * to keep them ordered.
+     */
+    private long _orderSeed;
 
     /**
      * Constructor of the search.
@@ -129,26 +289,67 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * @param s A reference of the status of the root node.
      * @param regularOrder True if a regular move ordering has to be used, false
      * in the opposite case.
+     * @param config The tunable parameters of the search.
      */
-    public RunnableFutureMiniMax(int maxDepth, int playerColor, TT tt, Status s, boolean regularOrder) {
+    public RunnableFutureMiniMax(int maxDepth, int playerColor, TT tt, Status s, boolean regularOrder, SearchConfig config) {
+        this(maxDepth, playerColor, tt, s, regularOrder, config, new CancellationToken(), new SearchScratch());
+    }
+    
+    /**
+     * Constructor of the search with a cancellation token shared with other
+     * searches.
+     * 
+     * @param maxDepth The max depth the search is allowed to go.
+     * @param playerColor The color of the player.
+     * @param tt A reference to the transposition table to use.
+     * @param s A reference of the status of the root node.
+     * @param regularOrder True if a regular move ordering has to be used, false
+     * in the opposite case.
+     * @param config The tunable parameters of the search.
+     * @param cancelToken The token to stop the search with.
+     * @param scratch The scratch structures to use, which must not be used by
+     * any other search at the same time.
+     */
+    public RunnableFutureMiniMax(int maxDepth, int playerColor, TT tt, Status s, boolean regularOrder, SearchConfig config, CancellationToken cancelToken, SearchScratch scratch) {
         int remainingMoves = (Status.SIZE*Status.SIZE - 4) - s.getNumMovements();
         
         this._searchIsOn = true;
         this._finished = false;
+        this._state = new AtomicInteger(STATE_NEW);
+        this._done = new CountDownLatch(1);
+        this._exception = null;
+        this._cancelToken = cancelToken;
+        this._nodesSincePoll = 0;
+        this._cancelLatency = 0;
         this._maxDepth = Math.min(maxDepth, remainingMoves);
         this._nodesWithComputedHeuristic = 0;
         this._depthReached = 0;
         this._playerColor = playerColor;
         this._lastSelectedHeuristic = 0;
         this._lastSelectedMovement = -1;
+        this._lmrReductions = 0;
+        this._lmrReSearches = 0;
+        this._iidSearches = 0;
+        this._abdadaDeferrals = 0;
         this._tt = tt;
-        this._isExact = new boolean[Status.SIZE*Status.SIZE];
+        this._config = config;
+        this._scratch = scratch;
+        this._isExact = scratch.isExact;
+        this._moves = scratch.moves;
+        this._nodes = scratch.nodes;
+        this._counterMoves = scratch.counterMoves;
+        this._deferredMoves = scratch.deferredMoves;
+        this._ybwc = null;
+        this._splitPoint = null;
         this._s = s;
         this._regularOrder = regularOrder;
+        this._orderSeed = 0;
     }
 
     /**
-     * Copy constructor with a depth increase.
+     * Copy constructor with a depth increase. The copy shares the 
+     * cancellation token and the scratch structures of r, so it must not run
+     * at the same time as r.
      * 
      * @param r The instance to make the copy from.
      * @param extraDepth The extra depth to add.
@@ -158,70 +359,111 @@ class RunnableFutureMiniMax implements RunnableFuture {
             
         this._searchIsOn = true;
         this._finished = false;
+        this._state = new AtomicInteger(STATE_NEW);
+        this._done = new CountDownLatch(1);
+        this._exception = null;
+        this._cancelToken = r._cancelToken;
+        this._nodesSincePoll = 0;
+        this._cancelLatency = 0;
         this._maxDepth = Math.min(r._maxDepth+extraDepth, remainingMoves);
         this._nodesWithComputedHeuristic = 0;
         this._depthReached = 0;
         this._playerColor = r._playerColor;
         this._lastSelectedHeuristic = 0;
         this._lastSelectedMovement = -1;
+        this._lmrReductions = 0;
+        this._lmrReSearches = 0;
+        this._iidSearches = 0;
+        this._abdadaDeferrals = 0;
         this._tt = r._tt;
-        this._isExact = new boolean[Status.SIZE*Status.SIZE];
+        this._config = r._config;
+        this._scratch = r._scratch;
+        this._isExact = r._isExact;
+        this._moves = r._moves;
+        this._nodes = r._nodes;
+        this._counterMoves = r._counterMoves;
+        this._deferredMoves = r._deferredMoves;
+        this._ybwc = r._ybwc;
+        this._splitPoint = null;
         this._s = r._s;
         this._regularOrder = r._regularOrder;
+        this._orderSeed = r._orderSeed;
     }
     
     /**
-     * Execute the task.
+     * Execute the task. It does nothing if the task has already been executed
+     * or cancelled.
      */
     @Override
     public void run() {
-        _lastSelectedHeuristic = minimax(
-                _s,
-                0,
-                Float.NEGATIVE_INFINITY, 
-                Float.POSITIVE_INFINITY, 
-                true
-        );
+        if(!_state.compareAndSet(STATE_NEW, STATE_RUNNING))
+            return;
         
-        if(_searchIsOn) {
-            _finished = true;    
+        try {
+            _searchIsOn = !_cancelToken.isCancelled();
+            if(_searchIsOn) {
+                _lastSelectedHeuristic = minimax(
+                        _s,
+                        0,
+                        _maxDepth,
+                        Float.NEGATIVE_INFINITY, 
+                        Float.POSITIVE_INFINITY, 
+                        true
+                );
+            }
+            
+            _finished = _searchIsOn;
+            if(!_finished) {
+                _cancelLatency = _cancelToken.getNanosSinceCancel();
+            }
+        } catch (Throwable t) {
+            _exception = t;
+        } finally {
+            _state.set(STATE_DONE);
+            _done.countDown();
         }
     }
 
     /**
-     * Cancel the execution of the task.
+     * Cancel the execution of the task and of all the tasks sharing its 
+     * cancellation token. A running search will stop within the cancel poll
+     * interval of the config and a search that has not started will not run.
      * 
      * @param bln Ignored.
-     * @return True.
+     * @return False if the task had already completed successfully, true 
+     * otherwise.
      */
     @Override
     public boolean cancel(boolean bln) {
-        _searchIsOn = false;
-        return true;
+        _cancelToken.cancel();
+        releaseIfNotStarted();
+        return !_finished;
     }
 
     /**
-     * Check if the task has been canceled/interrupted.
+     * Check if the task has been canceled/interrupted before completing.
      * 
      * @return True if it has been canceled, false otherwise.
      */
     @Override
     public boolean isCancelled() {
-        return !_searchIsOn;
+        return _cancelToken.isCancelled() && !_finished;
     }
 
     /**
-     * Check if the task has ended successfully.
+     * Check if the task has ended, either successfully or by a cancellation.
      * 
-     * @return True if it has ended successfully, false otherwise.
+     * @return True if it has ended, false otherwise.
      */
     @Override
     public boolean isDone() {
-        return !_searchIsOn || _finished;
+        return _done.getCount() == 0;
     }
 
     /**
-     * Get the result of the search if it has ended successfully.
+     * Wait for the task to end and get the result of the search if it has 
+     * ended successfully. It does not block if the task was cancelled before
+     * starting.
      * 
      * @return The result of the search if it has ended successfully, null 
      * otherwise
@@ -229,24 +471,15 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * @throws ExecutionException if the execution generated any errors.
      */
     @Override
-    public Object get() throws InterruptedException, ExecutionException {
-        while(!isDone()) {}
-        
-        if (_finished) {
-            return new Result(
-                    _nodesWithComputedHeuristic, 
-                    _depthReached, 
-                    _lastSelectedHeuristic, 
-                    _lastSelectedMovement
-            );
-        } else {
-            return null;
-        }
+    public Result get() throws InterruptedException, ExecutionException {
+        releaseIfNotStarted();
+        _done.await();
+        return report();
     }
 
     /**
-     * Get the result of the search if it has ended successfully in at least l 
-     * [tu].
+     * Wait at most l [tu] for the task to end and get the result of the search
+     * if it has ended successfully.
      * 
      * @param l The amount of time to wait.
      * @param tu The units of the time.
@@ -258,16 +491,46 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * task.
      */
     @Override
-    public Object get(long l, TimeUnit tu) throws InterruptedException, ExecutionException, TimeoutException {
-        long start = System.currentTimeMillis();
-        
-        while(!isDone() || (System.currentTimeMillis()-start) < tu.toMillis(l)) {}
-        
-        if(isDone()) {
-            return get();
-        } else {
+    public Result get(long l, TimeUnit tu) throws InterruptedException, ExecutionException, TimeoutException {
+        releaseIfNotStarted();
+        if(!_done.await(l, tu)) {
             throw new TimeoutException();
         }
+        return report();
+    }
+    
+    /**
+     * Split the younger brothers of the nodes among the idle workers of a
+     * young brothers wait concept search. It must be set before running the 
+     * task.
+     * 
+     * @param ybwc The coordinator of the search or null to search 
+     * sequentially.
+     */
+    void setYBWCCoordinator(YBWCCoordinator ybwc) {
+        _ybwc = ybwc;
+    }
+    
+    /**
+     * Shuffle the movements of the root node after the first one, so threads
+     * searching the same position go through it in different orders. Each
+     * depth is shuffled differently. It must be set before running the task.
+     * 
+     * @param seed The seed to shuffle with or 0 to keep the movements 
+     * ordered.
+     */
+    void setOrderSeed(long seed) {
+        _orderSeed = seed;
+    }
+    
+    /**
+     * Get the time the search took to return after it was cancelled.
+     * 
+     * @return The nanoseconds between the cancellation request and the search
+     * returning or 0 if the search was not cancelled.
+     */
+    public long getCancelLatency() {
+        return _cancelLatency;
     }
 
     /**
@@ -283,10 +546,21 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * Maximize or minimize the heuristic from the perspective of player within
      * the bounds alpha and beta. _lastMovementSelected will be set to the last
      * selected movement or -1 if no movement was selected, _depthReached and
-     * _nodesWithComputedHeuristic will be updated accordingly.
+     * _nodesWithComputedHeuristic will be updated accordingly. Moves late in 
+     * the list are first searched with the reduction given by the config and 
+     * searched again at full depth only if they improve the bounds. Nodes 
+     * without a movement in the transposition table and with enough remaining
+     * depth are first searched at a reduced depth to find the movement to 
+     * explore first (internal iterative deepening). If the search has a YBWC
+     * coordinator, the movements after the first one are split among the 
+     * idle workers. If ABDADA is enabled in the config, the movements that 
+     * other threads are searching are deferred until the rest have been 
+     * searched.
      * 
      * @param s The current game state.
      * @param currentDepth The depth of this call.
+     * @param maxDepth The depth at which the nodes of this branch are 
+     * evaluated.
      * @param alpha The lower bound.
      * @param beta The upper bound.
      * @param isMax True if the heuristic has to be maximized and false if it 
@@ -294,9 +568,17 @@ class RunnableFutureMiniMax implements RunnableFuture {
      * @return The heuristic more favorable to the current player within the 
      * bounds alpha and beta.
      */
-    private float minimax(Status s, int currentDepth, float alpha, float beta, boolean isMax) {
-        // Stop search if the thread received an interrupt
-        if (Thread.currentThread().isInterrupted()) {
+    private float minimax(Status s, int currentDepth, int maxDepth, float alpha, float beta, boolean isMax) {
+        // Stop search if the cancellation has been requested
+        if (_config.getCancelPollInterval() <= ++_nodesSincePoll) {
+            _nodesSincePoll = 0;
+            if (_cancelToken.isCancelled()) {
+                _searchIsOn = false;
+            }
+        }
+        
+        // Stop search if a cutoff has aborted the split point being helped
+        if (_splitPoint != null && _splitPoint.isAborted()) {
             _searchIsOn = false;
         }
         
@@ -304,7 +586,7 @@ class RunnableFutureMiniMax implements RunnableFuture {
         _isExact[currentDepth] = true;
         
         // Check if we are in a terminal state
-        if(s.isTerminal() || _maxDepth <= currentDepth) {
+        if(s.isTerminal() || maxDepth <= currentDepth) {
             _nodesWithComputedHeuristic++;
             _depthReached = Math.max(_depthReached, currentDepth);
             _lastSelectedMovement = -1;
@@ -314,19 +596,20 @@ class RunnableFutureMiniMax implements RunnableFuture {
         // Retrieve the entry from transposition table
         long entry = _tt.readEntry(s);
         byte selectedNextMove = TT.extractSelectedMovementIfValidEntry(s, entry);
-        if(TT.canExtractHeuristic(entry, _maxDepth-currentDepth)) {
+        float lowerBound = TT.extractLowerBound(entry, maxDepth-currentDepth, _playerColor);
+        float upperBound = TT.extractUpperBound(entry, maxDepth-currentDepth, _playerColor);
+        if(lowerBound != Float.NEGATIVE_INFINITY || upperBound != Float.POSITIVE_INFINITY) {
             _depthReached = Math.max(_depthReached, currentDepth + TT.extractDepthBelow(entry));
-            float extractedHeuristic = TT.extractSelectedHeuristic(entry)*_playerColor;
             
             // Return if it is an exact heuristic
-            if (TT.extractIsExact(entry)) {
+            if (lowerBound == upperBound) {
                 _lastSelectedMovement = selectedNextMove;
-                return extractedHeuristic;
+                return lowerBound;
             }
             
             // Update bounds
-            if(TT.extractIsAlpha(entry)) alpha = Math.max(alpha, extractedHeuristic);
-            else                         beta = Math.min( beta, extractedHeuristic);
+            alpha = Math.max(alpha, lowerBound);
+            beta  = Math.min( beta, upperBound);
             
             // Prune if we exceeded lower or upper bound already
             if(beta <= alpha) {
@@ -336,37 +619,108 @@ class RunnableFutureMiniMax implements RunnableFuture {
             }
         }
         
+        // Find a movement to explore first with a reduced search if the 
+        // transposition table had none and there is more than one to choose,
+        // generating the moves before, as the reduced search reuses them
+        int depthRemaining = maxDepth-currentDepth;
+        byte[] nextMoves = _moves[currentDepth];
+        if(selectedNextMove == -1 && _config.getIIDMinDepth() <= depthRemaining && _searchIsOn && 
+           2 <= s.getNextMoves(nextMoves)) {
+            _iidSearches++;
+            minimax(s, currentDepth, maxDepth-_config.getIIDReduction(), alpha, beta, isMax);
+            selectedNextMove = _lastSelectedMovement;
+            _isExact[currentDepth] = true;
+        }
+        
+        // Keep the bounds the node is searched with, to know if the result is
+        // a lower or an upper bound
+        float alphaStart = alpha;
+        float betaStart = beta;
+        
         // Get next moves
-        ArrayList<Point> nextMoves = new ArrayList<>();
-        if(_regularOrder)
-            s.getNextMoves(nextMoves, selectedNextMove);
-        else
-            s.getNextMovesInverse(nextMoves, selectedNextMove);
+        int numMoves = getOrderedMoves(s, nextMoves, selectedNextMove, depthRemaining, isMax);
+        if(currentDepth == 0 && _orderSeed != 0) {
+            MoveOrdering.shuffle(nextMoves, numMoves, 1, new Random(_orderSeed + maxDepth));
+        }
         
-        // Analyze moves if they exist
-        for (Point nextMove : nextMoves) {
+        // Analyze moves if they exist, leaving the ones that other threads 
+        // are searching for a second pass
+        boolean abdada = _config.getABDADA() && _config.getABDADAMinDepth() <= depthRemaining;
+        byte[] deferredMoves = _deferredMoves[currentDepth];
+        int numDeferred = 0;
+        for (int i = 0; i < numMoves + numDeferred; i++) {
+            boolean isDeferred = numMoves <= i;
+            int moveIndex = isDeferred ? deferredMoves[i - numMoves] : i;
+            
             // Check if the analysis can continue (interruption or pruning)
             if(!_searchIsOn || beta <= alpha) {
                 _isExact[currentDepth] = false;
                 break;
             }
             
+            // Split the younger brothers among the idle workers once the 
+            // first movement has been searched
+            if(0 < moveIndex && moveIndex < numMoves - 1 && numDeferred == 0 && _ybwc != null && _ybwc.canSplit(depthRemaining)) {
+                YBWCCoordinator.SplitPoint sp = new YBWCCoordinator.SplitPoint(
+                        _splitPoint, s, currentDepth, maxDepth, isMax, 
+                        nextMoves, numMoves, moveIndex, 
+                        alpha, beta, selectedNextMove, _isExact[currentDepth]
+                );
+                _ybwc.split(this, sp);
+                
+                // Collect the results of the split point
+                alpha = sp.alpha;
+                beta = sp.beta;
+                selectedNextMove = sp.selectedMove;
+                _isExact[currentDepth] = sp.isExact;
+                _nodesWithComputedHeuristic += sp.nodesWithComputedHeuristic;
+                _depthReached = Math.max(_depthReached, sp.depthReached);
+                _lmrReductions += sp.lmrReductions;
+                _lmrReSearches += sp.lmrReSearches;
+                _iidSearches += sp.iidSearches;
+                _abdadaDeferrals += sp.abdadaDeferrals;
+                if(sp.cutoffMove != -1 && s.getLastMovement() != -1) {
+                    _counterMoves[isMax ? 0 : 1][s.getLastMovement()] = sp.cutoffMove;
+                }
+                
+                // Resume the search unless it has been stopped from outside 
+                // the split point
+                _searchIsOn = !_cancelToken.isCancelled() && (_splitPoint == null || !_splitPoint.isAborted());
+                break;
+            }
+            
             // Generate next node
-            Status nextNode = new Status(s);
-            nextNode.movePiece(nextMove);
+            Status nextNode = _nodes[currentDepth+1];
+            nextNode.copyFrom(s);
+            nextNode.movePiece(nextMoves[moveIndex]);
+            
+            // Defer the movement if another thread is searching it
+            if(abdada && !isDeferred && 0 < moveIndex && _tt.isBeingSearched(nextNode)) {
+                deferredMoves[numDeferred++] = (byte)moveIndex;
+                _abdadaDeferrals++;
+                continue;
+            }
             
             // Get the heuristic from the next level
-            float nextHeuristic = minimax(nextNode, currentDepth+1, alpha, beta, !isMax);
+            if(abdada) _tt.startSearch(nextNode);
+            float nextHeuristic = searchMove(nextNode, currentDepth, maxDepth, moveIndex, alpha, beta, isMax);
+            if(abdada) _tt.endSearch(nextNode);
             
             // Update bounds
             if(isMax && alpha < nextHeuristic) {
                 alpha = nextHeuristic;
-                selectedNextMove = nextNode.getLastMovement();
+                selectedNextMove = nextMoves[moveIndex];
             } else if(!isMax && nextHeuristic < beta) {
                 beta = nextHeuristic;
-                selectedNextMove = nextNode.getLastMovement();
+                selectedNextMove = nextMoves[moveIndex];
             } else if (selectedNextMove == -1) {
-                selectedNextMove = nextNode.getLastMovement();
+                selectedNextMove = nextMoves[moveIndex];
+            }
+            
+            // Remember the movement as the reply to the rival's movement if 
+            // it caused a cutoff
+            if(beta <= alpha && _searchIsOn && s.getLastMovement() != -1) {
+                _counterMoves[isMax ? 0 : 1][s.getLastMovement()] = nextMoves[moveIndex];
             }
             
             // Update this level's isExtact status
@@ -374,27 +728,36 @@ class RunnableFutureMiniMax implements RunnableFuture {
         }
         
         // Analyze skipped turn if there are no movements
-        if(nextMoves.isEmpty() && _searchIsOn) {
+        if(numMoves == 0 && _searchIsOn) {
             // Generate next node
-            Status next = new Status(s);
+            Status next = _nodes[currentDepth+1];
+            next.copyFrom(s);
             next.skipTurn();
             
             // Get the heuristic from the next level
-            alpha = beta = minimax(next, currentDepth+1, alpha, beta, !isMax);
+            alpha = beta = minimax(next, currentDepth+1, maxDepth, alpha, beta, !isMax);
             
             // Update this level's isExtact status
             _isExact[currentDepth] = _isExact[currentDepth] && _isExact[currentDepth+1];
         }
         
+        // The result is only exact if it has improved the bound it returns, 
+        // otherwise it is a bound of the other side
+        boolean improved = isMax ? alphaStart < alpha : beta < betaStart;
+        _isExact[currentDepth] = _isExact[currentDepth] && improved;
+        
         // Register result to the transposition table
         if(_searchIsOn) {
-            _tt.register(
+            float heuristic = isMax ? alpha : beta;
+            boolean isLowerBound = _isExact[currentDepth] || isMax == improved;
+            boolean isUpperBound = _isExact[currentDepth] || isMax != improved;
+            _tt.registerBounds(
                     s,
-                    (isMax ? alpha : beta)*_playerColor,
+                    isLowerBound ? heuristic : Float.NEGATIVE_INFINITY,
+                    isUpperBound ? heuristic : Float.POSITIVE_INFINITY,
+                    _playerColor,
                     selectedNextMove, 
-                    (byte)(_maxDepth-currentDepth), 
-                    _isExact[currentDepth], 
-                    isMax
+                    (byte)(maxDepth-currentDepth)
             );
         }
         
@@ -402,4 +765,200 @@ class RunnableFutureMiniMax implements RunnableFuture {
         _lastSelectedMovement = selectedNextMove;
         return isMax ? alpha : beta;
     }
+    
+    /**
+     * Get the heuristic of a child of a node, reducing it if it is a late 
+     * move and searching it again at full depth if it improves the bounds.
+     * 
+     * @param nextNode The child node.
+     * @param currentDepth The depth of the parent node.
+     * @param maxDepth The depth at which the nodes of this branch are 
+     * evaluated.
+     * @param moveIndex The index of the movement in the ordered list.
+     * @param alpha The lower bound.
+     * @param beta The upper bound.
+     * @param isMax True if the parent node is a maximizing node, false 
+     * otherwise.
+     * @return The heuristic of the child within the bounds alpha and beta.
+     */
+    private float searchMove(Status nextNode, int currentDepth, int maxDepth, int moveIndex, float alpha, float beta, boolean isMax) {
+        int reduction = _config.getLateMoveReduction(maxDepth-currentDepth, moveIndex);
+        if(0 < reduction) {
+            _lmrReductions++;
+            float nextHeuristic = minimax(nextNode, currentDepth+1, maxDepth-reduction, alpha, beta, !isMax);
+            
+            if(_searchIsOn && (isMax ? alpha < nextHeuristic : nextHeuristic < beta)) {
+                _lmrReSearches++;
+                nextHeuristic = minimax(nextNode, currentDepth+1, maxDepth, alpha, beta, !isMax);
+            }
+            return nextHeuristic;
+        }
+        return minimax(nextNode, currentDepth+1, maxDepth, alpha, beta, !isMax);
+    }
+    
+    /**
+     * Search the movements of a split point until there are none left to hand
+     * out or it is aborted, merging the results into it.
+     * 
+     * @param sp The split point.
+     */
+    void searchSplitPoint(YBWCCoordinator.SplitPoint sp) {
+        YBWCCoordinator.SplitPoint previous = _splitPoint;
+        _splitPoint = sp;
+        _searchIsOn = !_cancelToken.isCancelled() && !sp.isAborted();
+        
+        while(_searchIsOn) {
+            // Take the next movement with the current bounds
+            int moveIndex;
+            float alpha, beta;
+            synchronized(_ybwc) {
+                if(!sp.hasWork())
+                    break;
+                moveIndex = sp.nextMove++;
+                alpha = sp.alpha;
+                beta = sp.beta;
+            }
+            
+            // Generate next node
+            Status nextNode = _nodes[sp.currentDepth+1];
+            nextNode.copyFrom(sp.node);
+            nextNode.movePiece(sp.moves[moveIndex]);
+            
+            // Get the heuristic from the next level and merge it
+            float nextHeuristic = searchMove(nextNode, sp.currentDepth, sp.maxDepth, moveIndex, alpha, beta, sp.isMax);
+            if(!_searchIsOn)
+                break;
+            
+            synchronized(_ybwc) {
+                sp.merge(sp.moves[moveIndex], nextHeuristic, _isExact[sp.currentDepth+1]);
+            }
+        }
+        
+        _splitPoint = previous;
+    }
+    
+    /**
+     * Search the root node within the bounds alpha and beta in the calling 
+     * thread instead of running the task, so it can be used as the sequential
+     * part of another search.
+     * 
+     * @param alpha The lower bound.
+     * @param beta The upper bound.
+     * @param isMax True if the heuristic of the root node has to be maximized
+     * and false if it has to be minimized.
+     * @return The result of the search, with the heuristic within the bounds
+     * as the last selected heuristic, if it has ended successfully, null 
+     * otherwise.
+     */
+    Result searchWindow(float alpha, float beta, boolean isMax) {
+        _searchIsOn = !_cancelToken.isCancelled();
+        if(_searchIsOn) {
+            _lastSelectedHeuristic = minimax(_s, 0, _maxDepth, alpha, beta, isMax);
+        }
+        _finished = _searchIsOn;
+        return buildResult();
+    }
+    
+    /**
+     * Add the statistics of this search to the ones of a split point it has 
+     * helped.
+     * 
+     * @param sp The split point.
+     */
+    void addStatisticsTo(YBWCCoordinator.SplitPoint sp) {
+        sp.nodesWithComputedHeuristic += _nodesWithComputedHeuristic;
+        sp.depthReached = Math.max(sp.depthReached, _depthReached);
+        sp.lmrReductions += _lmrReductions;
+        sp.lmrReSearches += _lmrReSearches;
+        sp.iidSearches += _iidSearches;
+        sp.abdadaDeferrals += _abdadaDeferrals;
+    }
+    
+    /**
+     * Mark the task as done if it has not started and its cancellation has 
+     * been requested, so it never runs and nobody waits for it.
+     */
+    private void releaseIfNotStarted() {
+        if(_cancelToken.isCancelled() && _state.compareAndSet(STATE_NEW, STATE_DONE)) {
+            _done.countDown();
+        }
+    }
+    
+    /**
+     * Get the outcome of a task that is done.
+     * 
+     * @return The result of the search if it has ended successfully, null 
+     * otherwise
+     * @throws ExecutionException if the execution generated any errors.
+     */
+    private Result report() throws ExecutionException {
+        if(_exception != null) {
+            throw new ExecutionException(_exception);
+        }
+        
+        return buildResult();
+    }
+    
+    /**
+     * Get the outcome of a search that has ended.
+     * 
+     * @return The result of the search if it has ended successfully, null 
+     * otherwise
+     */
+    private Result buildResult() {
+        if (_finished) {
+            return new Result(
+                    _nodesWithComputedHeuristic, 
+                    _depthReached, 
+                    _lastSelectedHeuristic, 
+                    _lastSelectedMovement,
+                    _lmrReductions,
+                    _lmrReSearches,
+                    _iidSearches,
+                    _abdadaDeferrals
+            );
+        } else {
+            return null;
+        }
+    }
+    
+    /**
+     * Get the movements that can be made from s in the order they have to be
+     * explored: first the given movement, then the counter-move to the 
+     * rival's last movement if it is enabled in the config and then the rest 
+     * sorted by the MoveOrdering if it is enabled in the config or in the 
+     * regular or inverse scan order if it is not.
+     * 
+     * @param s The current game state.
+     * @param moves The array to deposit the movements in.
+     * @param first The movement to explore first or -1.
+     * @param depthRemaining The remaining depth of s in the search.
+     * @param isMax True if s is a maximizing node, false otherwise.
+     * @return The number of movements deposited.
+     */
+    private int getOrderedMoves(Status s, byte[] moves, byte first, int depthRemaining, boolean isMax) {
+        int numMoves = _regularOrder ? s.getNextMoves(moves) : s.getNextMovesInverse(moves);
+        
+        if(_config.getMoveOrdering()) {
+            MoveOrdering.sort(
+                    s, 
+                    moves, 
+                    numMoves, 
+                    first, 
+                    _config.getFastestFirstMinDepth() <= depthRemaining, 
+                    _scratch.moveScores, 
+                    _scratch.sortStatus
+            );
+        } else {
+            MoveOrdering.moveToFront(moves, numMoves, first, 0);
+        }
+        
+        if(_config.getCounterMoves() && s.getLastMovement() != -1) {
+            int start = (0 < numMoves && moves[0] == first) ? 1 : 0;
+            byte counterMove = _counterMoves[isMax ? 0 : 1][s.getLastMovement()];
+            MoveOrdering.moveToFront(moves, numMoves, counterMove, start);
+        }
+        
+        return numMoves;
+    }
 }
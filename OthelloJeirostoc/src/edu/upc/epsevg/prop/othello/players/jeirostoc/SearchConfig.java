@@ -0,0 +1,481 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+/**
+ * Tunable parameters of the MiniMax search used by the players.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class SearchConfig {
+    ////////////////////////////////////////////////////////////////////////////
+    // Default values                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The maximum depth remaining a node can have in a search.
+     */
+    public static final int MAX_DEPTH = Status.SIZE*Status.SIZE - 4;
+    
+    /**
+     * Default minimum remaining depth of a node to reduce its late moves.
+     */
+    public static final int LMR_MIN_DEPTH_DEFAULT = 3;
+    
+    /**
+     * Default minimum index in the move list a move must have to be reduced.
+     */
+    public static final int LMR_MIN_MOVE_INDEX_DEFAULT = 3;
+    
+    /**
+     * Default minimum remaining depth of a node to sort its moves by the rival
+     * mobility after making them.
+     */
+    public static final int FASTEST_FIRST_MIN_DEPTH_DEFAULT = 4;
+    
+    /**
+     * Default minimum remaining depth of a node without a movement in the 
+     * transposition table to do an internal iterative deepening search.
+     */
+    public static final int IID_MIN_DEPTH_DEFAULT = 4;
+    
+    /**
+     * Default depth reduction of the internal iterative deepening searches.
+     */
+    public static final int IID_REDUCTION_DEFAULT = 2;
+    
+    /**
+     * Default number of nodes a search visits between two checks of its 
+     * cancellation token.
+     */
+    public static final int CANCEL_POLL_INTERVAL_DEFAULT = 1024;
+    
+    /**
+     * Default minimum remaining depth of a node to split its younger brothers
+     * among the idle workers of a young brothers wait concept search.
+     */
+    public static final int YBWC_MIN_SPLIT_DEPTH_DEFAULT = 4;
+    
+    /**
+     * Default minimum remaining depth of a node to defer its children that 
+     * other threads are searching in an ABDADA search.
+     */
+    public static final int ABDADA_MIN_DEPTH_DEFAULT = 3;
+    
+    /**
+     * Default maximum remaining depth of a node to be searched sequentially
+     * in a Jamboree search.
+     */
+    public static final int JAMBOREE_SERIAL_DEPTH_DEFAULT = 4;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Late move reductions                                                   //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Reduction to apply to a move given the remaining depth of the node and
+     * the index of the move in the ordered list, indexed as
+     * [depthRemaining][moveIndex].
+     */
+    private byte[][] _lateMoveReductions;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Move ordering                                                          //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Toggle to sort the moves with the MoveOrdering or to explore them in 
+     * scan order.
+     */
+    private boolean _moveOrdering;
+    
+    /**
+     * Minimum remaining depth of a node to sort its moves by the rival 
+     * mobility after making them.
+     */
+    private int _fastestFirstMinDepth;
+    
+    /**
+     * Toggle to explore right after the transposition table movement the 
+     * reply that last caused a cutoff against the rival's last movement.
+     */
+    private boolean _counterMoves;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Internal iterative deepening                                           //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Minimum remaining depth of a node without a movement in the 
+     * transposition table to do an internal iterative deepening search.
+     */
+    private int _iidMinDepth;
+    
+    /**
+     * Depth reduction of the internal iterative deepening searches.
+     */
+    private int _iidReduction;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Cancellation                                                           //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Number of nodes a search visits between two checks of its cancellation
+     * token.
+     */
+    private int _cancelPollInterval;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Young brothers wait concept                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Minimum remaining depth of a node to split its younger brothers among 
+     * the idle workers of a young brothers wait concept search.
+     */
+    private int _ybwcMinSplitDepth;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // ABDADA                                                                 //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Toggle to defer the children of a node that other threads are searching
+     * until the rest of children have been searched.
+     */
+    private boolean _abdada;
+    
+    /**
+     * Minimum remaining depth of a node to defer its children that other 
+     * threads are searching.
+     */
+    private int _abdadaMinDepth;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Jamboree                                                               //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Maximum remaining depth of a node to be searched sequentially instead 
+     * of splitting it into tasks in a Jamboree search.
+     */
+    private int _jamboreeSerialDepth;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructors                                                           //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor.
+     */
+    public SearchConfig() {
+        _lateMoveReductions = generateReductionTable(LMR_MIN_DEPTH_DEFAULT, LMR_MIN_MOVE_INDEX_DEFAULT);
+        _moveOrdering = true;
+        _fastestFirstMinDepth = FASTEST_FIRST_MIN_DEPTH_DEFAULT;
+        _counterMoves = true;
+        _iidMinDepth = IID_MIN_DEPTH_DEFAULT;
+        _iidReduction = IID_REDUCTION_DEFAULT;
+        _cancelPollInterval = CANCEL_POLL_INTERVAL_DEFAULT;
+        _ybwcMinSplitDepth = YBWC_MIN_SPLIT_DEPTH_DEFAULT;
+        _abdada = false;
+        _abdadaMinDepth = ABDADA_MIN_DEPTH_DEFAULT;
+        _jamboreeSerialDepth = JAMBOREE_SERIAL_DEPTH_DEFAULT;
+    }
+    
+    /**
+     * Copy constructor.
+     * 
+     * @param other The config to copy.
+     */
+    public SearchConfig(SearchConfig other) {
+        _lateMoveReductions = other._lateMoveReductions;
+        _moveOrdering = other._moveOrdering;
+        _fastestFirstMinDepth = other._fastestFirstMinDepth;
+        _counterMoves = other._counterMoves;
+        _iidMinDepth = other._iidMinDepth;
+        _iidReduction = other._iidReduction;
+        _cancelPollInterval = other._cancelPollInterval;
+        _ybwcMinSplitDepth = other._ybwcMinSplitDepth;
+        _abdada = other._abdada;
+        _abdadaMinDepth = other._abdadaMinDepth;
+        _jamboreeSerialDepth = other._jamboreeSerialDepth;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Public static utility functions                                        //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Generate a late move reductions table that grows logarithmically with
+     * both the remaining depth and the move index. The reduced search is always
+     * left with at least one level to explore.
+     * 
+     * @param minDepth The minimum remaining depth of a node to reduce its
+     * moves.
+     * @param minMoveIndex The minimum index a move must have to be reduced.
+     * @return The generated table, indexed as [depthRemaining][moveIndex].
+     */
+    public static byte[][] generateReductionTable(int minDepth, int minMoveIndex) {
+        byte[][] table = new byte[MAX_DEPTH+1][Status.SIZE*Status.SIZE];
+        
+        for (int depth = Math.max(minDepth, 2); depth <= MAX_DEPTH; depth++) {
+            for (int moveIndex = Math.max(minMoveIndex, 1); moveIndex < Status.SIZE*Status.SIZE; moveIndex++) {
+                double r = 1 + Math.log(depth)*Math.log(moveIndex)/3;
+                table[depth][moveIndex] = (byte)Math.min((int)r, depth-2);
+            }
+        }
+        
+        return table;
+    }
+    
+    /**
+     * Generate a late move reductions table without any reduction.
+     * 
+     * @return The generated table, indexed as [depthRemaining][moveIndex].
+     */
+    public static byte[][] generateNoReductionTable() {
+        return new byte[MAX_DEPTH+1][Status.SIZE*Status.SIZE];
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Getters and setters                                                    //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Set the late move reductions table. Every reduction must leave at least
+     * one level to explore, that is, table[d][i] must be lower than d-1.
+     * 
+     * @param table The reductions table, indexed as [depthRemaining][moveIndex].
+     * Rows or columns not present are treated as no reduction.
+     */
+    public void setLateMoveReductions(byte[][] table) {
+        byte[][] copy = generateNoReductionTable();
+        
+        for (int depth = 0; depth < Math.min(table.length, copy.length); depth++) {
+            for (int moveIndex = 0; moveIndex < Math.min(table[depth].length, copy[depth].length); moveIndex++) {
+                copy[depth][moveIndex] = (byte)Math.max(0, Math.min(table[depth][moveIndex], depth-2));
+            }
+        }
+        
+        _lateMoveReductions = copy;
+    }
+    
+    /**
+     * Get the reduction to apply to a move.
+     * 
+     * @param depthRemaining The remaining depth of the node the move is made
+     * from.
+     * @param moveIndex The index of the move in the ordered list of moves.
+     * @return The number of levels to reduce the search of the move.
+     */
+    public int getLateMoveReduction(int depthRemaining, int moveIndex) {
+        return _lateMoveReductions[depthRemaining][moveIndex];
+    }
+    
+    /**
+     * Set if the moves have to be sorted with the MoveOrdering (corners first 
+     * and X and C squares last) or explored in scan order.
+     * 
+     * @param b True if they have to be sorted, false otherwise.
+     */
+    public void setMoveOrdering(boolean b) {
+        _moveOrdering = b;
+    }
+    
+    /**
+     * Check if the moves have to be sorted with the MoveOrdering.
+     * 
+     * @return True if they have to be sorted, false otherwise.
+     */
+    public boolean getMoveOrdering() {
+        return _moveOrdering;
+    }
+    
+    /**
+     * Set the minimum remaining depth of a node to sort its moves by the 
+     * rival mobility after making them (fastest-first).
+     * 
+     * @param minDepth The minimum remaining depth. A value greater than 
+     * MAX_DEPTH disables it.
+     */
+    public void setFastestFirstMinDepth(int minDepth) {
+        _fastestFirstMinDepth = minDepth;
+    }
+    
+    /**
+     * Get the minimum remaining depth of a node to sort its moves by the rival
+     * mobility after making them.
+     * 
+     * @return The minimum remaining depth.
+     */
+    public int getFastestFirstMinDepth() {
+        return _fastestFirstMinDepth;
+    }
+    
+    /**
+     * Set if the reply that last caused a cutoff against the rival's last 
+     * movement (counter-move) has to be explored right after the 
+     * transposition table movement.
+     * 
+     * @param b True if it has to be explored first, false otherwise.
+     */
+    public void setCounterMoves(boolean b) {
+        _counterMoves = b;
+    }
+    
+    /**
+     * Check if the counter-move has to be explored right after the 
+     * transposition table movement.
+     * 
+     * @return True if it has to be explored first, false otherwise.
+     */
+    public boolean getCounterMoves() {
+        return _counterMoves;
+    }
+    
+    /**
+     * Set the minimum remaining depth of a node without a movement in the 
+     * transposition table to do an internal iterative deepening search.
+     * 
+     * @param minDepth The minimum remaining depth, greater than the depth 
+     * reduction so the reduced search has some depth left. A value greater 
+     * than MAX_DEPTH disables it.
+     */
+    public void setIIDMinDepth(int minDepth) {
+        _iidMinDepth = Math.max(_iidReduction + 1, minDepth);
+    }
+    
+    /**
+     * Get the minimum remaining depth of a node without a movement in the 
+     * transposition table to do an internal iterative deepening search.
+     * 
+     * @return The minimum remaining depth.
+     */
+    public int getIIDMinDepth() {
+        return _iidMinDepth;
+    }
+    
+    /**
+     * Set the depth reduction of the internal iterative deepening searches.
+     * 
+     * @param reduction The depth reduction, at least 1. The minimum 
+     * remaining depth is raised above it if needed.
+     */
+    public void setIIDReduction(int reduction) {
+        _iidReduction = Math.max(1, reduction);
+        _iidMinDepth = Math.max(_iidReduction + 1, _iidMinDepth);
+    }
+    
+    /**
+     * Get the depth reduction of the internal iterative deepening searches.
+     * 
+     * @return The depth reduction.
+     */
+    public int getIIDReduction() {
+        return _iidReduction;
+    }
+    
+    /**
+     * Set the number of nodes a search visits between two checks of its 
+     * cancellation token. Lower values make the search stop sooner after a 
+     * timeout at the cost of more reads of the token.
+     * 
+     * @param interval The number of nodes, at least 1.
+     */
+    public void setCancelPollInterval(int interval) {
+        _cancelPollInterval = Math.max(1, interval);
+    }
+    
+    /**
+     * Get the number of nodes a search visits between two checks of its 
+     * cancellation token.
+     * 
+     * @return The number of nodes.
+     */
+    public int getCancelPollInterval() {
+        return _cancelPollInterval;
+    }
+    
+    /**
+     * Set the minimum remaining depth of a node to split its younger brothers
+     * among the idle workers of a young brothers wait concept search. Lower 
+     * values keep more workers busy at the cost of more synchronization.
+     * 
+     * @param minDepth The minimum remaining depth, at least 1.
+     */
+    public void setYBWCMinSplitDepth(int minDepth) {
+        _ybwcMinSplitDepth = Math.max(1, minDepth);
+    }
+    
+    /**
+     * Get the minimum remaining depth of a node to split its younger brothers
+     * among the idle workers of a young brothers wait concept search.
+     * 
+     * @return The minimum remaining depth.
+     */
+    public int getYBWCMinSplitDepth() {
+        return _ybwcMinSplitDepth;
+    }
+    
+    /**
+     * Set if the children of a node that other threads are searching have to
+     * be deferred until the rest of children have been searched (ABDADA). It 
+     * only makes sense if several threads share the transposition table.
+     * 
+     * @param b True if they have to be deferred, false otherwise.
+     */
+    public void setABDADA(boolean b) {
+        _abdada = b;
+    }
+    
+    /**
+     * Check if the children of a node that other threads are searching have 
+     * to be deferred until the rest of children have been searched.
+     * 
+     * @return True if they have to be deferred, false otherwise.
+     */
+    public boolean getABDADA() {
+        return _abdada;
+    }
+    
+    /**
+     * Set the minimum remaining depth of a node to defer its children that 
+     * other threads are searching.
+     * 
+     * @param minDepth The minimum remaining depth, at least 1.
+     */
+    public void setABDADAMinDepth(int minDepth) {
+        _abdadaMinDepth = Math.max(1, minDepth);
+    }
+    
+    /**
+     * Get the minimum remaining depth of a node to defer its children that 
+     * other threads are searching.
+     * 
+     * @return The minimum remaining depth.
+     */
+    public int getABDADAMinDepth() {
+        return _abdadaMinDepth;
+    }
+    
+    /**
+     * Set the maximum remaining depth of a node to be searched sequentially
+     * instead of splitting it into tasks in a Jamboree search. Higher values
+     * make bigger tasks with less overhead but less parallelism.
+     * 
+     * @param depth The maximum remaining depth, at least 1.
+     */
+    public void setJamboreeSerialDepth(int depth) {
+        _jamboreeSerialDepth = Math.max(1, depth);
+    }
+    
+    /**
+     * Get the maximum remaining depth of a node to be searched sequentially
+     * instead of splitting it into tasks in a Jamboree search.
+     * 
+     * @return The maximum remaining depth.
+     */
+    public int getJamboreeSerialDepth() {
+        return _jamboreeSerialDepth;
+    }
+}
@@ -0,0 +1,79 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.Arrays;
+
+/**
+ * Scratch structures of a MiniMax search that can be reused by the searches
+ * run one after the other by the same thread, so they are allocated once and
+ * their warm state (the counter-moves) is kept between searches. It must not
+ * be used by two searches at the same time.
+ * 
+ * @author raul
+ * @author josep
+ */
+class SearchScratch {
+    /**
+     * The array to indicate between recursion levels if the current level has
+     * been pruned or not.
+     */
+    final boolean[] isExact;
+    
+    /**
+     * The movements of each recursion level, expressed in the form SIZE*x + y.
+     */
+    final byte[][] moves;
+    
+    /**
+     * Scratch array for the scores of the movements being sorted.
+     */
+    final int[] moveScores;
+    
+    /**
+     * Scratch status to evaluate the movements being sorted.
+     */
+    final Status sortStatus;
+    
+    /**
+     * The nodes of each recursion level, to generate the children of a node
+     * without allocating memory.
+     */
+    final Status[] nodes;
+    
+    /**
+     * The last movement that caused a cutoff as a reply to each movement of
+     * the rival, indexed as [isMax ? 0 : 1][rival movement] and expressed in
+     * the form SIZE*x + y or -1 if there is none.
+     */
+    final byte[][] counterMoves;
+    
+    /**
+     * The indices of the movements deferred at each recursion level because
+     * other threads were searching them.
+     */
+    final byte[][] deferredMoves;
+    
+    /**
+     * Default constructor.
+     */
+    SearchScratch() {
+        isExact = new boolean[Status.SIZE*Status.SIZE];
+        moves = new byte[Status.SIZE*Status.SIZE][Status.SIZE*Status.SIZE];
+        moveScores = new int[Status.SIZE*Status.SIZE];
+        sortStatus = new Status();
+        nodes = new Status[Status.SIZE*Status.SIZE];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = new Status();
+        }
+        counterMoves = new byte[2][Status.SIZE*Status.SIZE];
+        deferredMoves = new byte[Status.SIZE*Status.SIZE][Status.SIZE*Status.SIZE];
+        clearCounterMoves();
+    }
+    
+    /**
+     * Forget the counter-moves learned.
+     */
+    void clearCounterMoves() {
+        Arrays.fill(counterMoves[0], (byte)-1);
+        Arrays.fill(counterMoves[1], (byte)-1);
+    }
+}
@@ -223,17 +223,17 @@ public class Status {
     /**
      * Score to give for each registered stable position.
      */
-    private final float _stableScore;
+    private float _stableScore;
     
     /**
      * Score to give for each captured position.
      */
-    private final float[] _diskScores;
+    private float[] _diskScores;
     
     /**
      * Score to give for each neighboring position.
      */
-    private final float[] _neighborScores;
+    private float[] _neighborScores;
     
     /**
      * Positions of the game with a disk of any player. The bits are ordered in 
@@ -310,7 +310,7 @@ public class Status {
     
     /**
      * The last recorded movement made in the game, expressed in the form SIZE*x
-     * + y.
+     * + y, or -1 if there is none or the last player passed.
      */
     private byte _lastMovement;
     
@@ -525,6 +525,21 @@ public class Status {
      * @param other The Status to copy.
      */
     public Status(Status other) {
+        _zobristKeyChain = new long[BoardVariation.NUMBER];
+        copyFrom(other);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Public interface                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Overwrite this status with the contents of other without allocating any
+     * memory.
+     * 
+     * @param other The Status to copy.
+     */
+    public final void copyFrom(Status other) {
         // Copy scoring for heuristic
         _stableScore    = other._stableScore;
         _diskScores     = other._diskScores;
@@ -548,7 +563,7 @@ public class Status {
         _piecesCountP2 = other._piecesCountP2;
         
         // Copy Zobrist keychain
-        _zobristKeyChain = other._zobristKeyChain.clone();
+        System.arraycopy(other._zobristKeyChain, 0, _zobristKeyChain, 0, _zobristKeyChain.length);
         
         // Copy heuristics caching
         _diskWeightsSum = other._diskWeightsSum;
@@ -559,10 +574,6 @@ public class Status {
         _lastMovement     = other._lastMovement;
     }
     
-    ////////////////////////////////////////////////////////////////////////////
-    // Public interface                                                       //
-    ////////////////////////////////////////////////////////////////////////////
-    
     /**
      * Make a movement using the current player at the given point. Point is 
      * assumed not to be null and to canMovePiece(point.x, point.y).
@@ -573,6 +584,17 @@ public class Status {
         movePiece(point.x, point.y);
     }
     
+    /**
+     * Make a movement using the current player at the given position. The 
+     * position is assumed to canMovePiece(bitIndex/SIZE, bitIndex%SIZE).
+     * 
+     * @param bitIndex The position to make a movement in, expressed in the 
+     * form SIZE*x + y.
+     */
+    public void movePiece(int bitIndex) {
+        movePiece(bitIndex/SIZE, bitIndex%SIZE);
+    }
+    
     /**
      * Check if a movement at (x, y) can be made with currentPlayerColor.
      * 
@@ -586,10 +608,12 @@ public class Status {
     }
     
     /**
-     * Make the current player skip their turn.
+     * Make the current player skip their turn. The pass is the last movement
+     * from then on, so there is no last movement.
      */
     public void skipTurn() {
         _currentPlayerBit = !_currentPlayerBit;
+        _lastMovement = -1;
         ZobristKeyGen.updateKeyChainPlayerSwapped(_zobristKeyChain);
     }
     
@@ -605,7 +629,8 @@ public class Status {
     /**
      * Get the last movement.
      * 
-     * @return The last movement, expressed in the form SIZE*x+y.
+     * @return The last movement, expressed in the form SIZE*x+y, or -1 if 
+     * there is none or the last player passed.
      */
     public byte getLastMovement() {
         return _lastMovement;
@@ -715,6 +740,63 @@ public class Status {
         }
     }
     
+    /**
+     * Get the next possible movements starting from this position without
+     * allocating any memory.
+     * 
+     * @param result The array to deposit the movements in, expressed in the 
+     * form SIZE*x + y. It must have room for SIZE*SIZE movements.
+     * @return The number of movements deposited.
+     */
+    public int getNextMoves(byte[] result) {
+        int numMoves = 0;
+        
+        for (int bitIndex = 0; bitIndex < SIZE*SIZE; bitIndex++) {
+            if (canMovePiece(bitIndex/SIZE, bitIndex%SIZE, _currentPlayerBit)) {
+                result[numMoves++] = (byte)bitIndex;
+            }
+        }
+        
+        return numMoves;
+    }
+    
+    /**
+     * Get the next possible movements starting from this position without
+     * allocating any memory, in the opposite order as getNextMoves(byte[]).
+     * 
+     * @param result The array to deposit the movements in, expressed in the 
+     * form SIZE*x + y. It must have room for SIZE*SIZE movements.
+     * @return The number of movements deposited.
+     */
+    public int getNextMovesInverse(byte[] result) {
+        int numMoves = 0;
+        
+        for (int bitIndex = SIZE*SIZE-1; 0 <= bitIndex; bitIndex--) {
+            if (canMovePiece(bitIndex/SIZE, bitIndex%SIZE, _currentPlayerBit)) {
+                result[numMoves++] = (byte)bitIndex;
+            }
+        }
+        
+        return numMoves;
+    }
+    
+    /**
+     * Get the number of movements the current player can make.
+     * 
+     * @return The number of movements the current player can make.
+     */
+    public int getNumNextMoves() {
+        int numMoves = 0;
+        
+        for (int bitIndex = 0; bitIndex < SIZE*SIZE; bitIndex++) {
+            if (canMovePiece(bitIndex/SIZE, bitIndex%SIZE, _currentPlayerBit)) {
+                numMoves++;
+            }
+        }
+        
+        return numMoves;
+    }
+    
     /**
      * Get a list of the next possible statuses starting from this position.
      * 
@@ -2,9 +2,14 @@ package edu.upc.epsevg.prop.othello.players.jeirostoc;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.EOFException;
 import java.io.IOException;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.LongStream;
 
 /**
  * Transposition table of HeuristicStatus capable of giving a list of explorable
@@ -15,10 +20,39 @@ import java.util.logging.Logger;
  */
 public class TT {
     /**
-     * Mask to extract the "selected heuristic" from the 8 lower bytes of the
-     * entry.
+     * Mask to extract a bound from the entry once shifted to the low position.
+     */
+    private static final long BOUND_MASK = 0xffffL;
+    
+    /**
+     * Amount of bits to shift to the right to put the lower bound of the 
+     * heuristic from the entry in the low position.
+     */
+    private static final int LOWER_BOUND_SHIFT = 0;
+    
+    /**
+     * Amount of bits to shift to the right to put the upper bound of the 
+     * heuristic from the entry in the low position.
+     */
+    private static final int UPPER_BOUND_SHIFT = 16;
+    
+    /**
+     * Number of steps of a bound per unit of heuristic. The bounds are stored 
+     * in 16 bit fixed point, so they hold heuristics from -2047.9375 to 
+     * 2047.9375 in steps of 0.0625.
+     */
+    private static final float BOUND_SCALE = 16;
+    
+    /**
+     * Stored bound that stands for an infinite heuristic.
+     */
+    private static final int POSITIVE_INFINITY_BOUND = Short.MAX_VALUE;
+    
+    /**
+     * Stored bound that stands for a negative infinite heuristic, the lower 
+     * bound of an entry without one.
      */
-    private static final long SELECTED_HEURISTIC_MASK  = 0xffffffffL;
+    private static final int NEGATIVE_INFINITY_BOUND = Short.MIN_VALUE;
     
     /**
      * Mask to extract the low byte.
@@ -32,28 +66,127 @@ public class TT {
     private static final int SELECTED_MOVEMENT_SHIFT = 32;
     
     /**
-     * Amount of bits to shift to the right to put the byte specifying the 
-     * depth below from the entry in the low position.
+     * Mask to extract a depth below from the entry once shifted to the low 
+     * position.
+     */
+    private static final long DEPTH_MASK = 0x3fL;
+    
+    /**
+     * Amount of bits to shift to the right to put the depth below of the 
+     * lower bound from the entry in the low position.
      */
-    private static final int DEPTH_BELOW_SHIFT = 40;
+    private static final int LOWER_DEPTH_SHIFT = 40;
     
     /**
-     * Mask with a 1 on the position of the bit isExact from the flags field of 
-     * the entry.
+     * Amount of bits to shift to the right to put the depth below of the 
+     * upper bound from the entry in the low position.
      */
-    private static final long FLAG_IS_EXACT_MASK = 1L << (48);
+    private static final int UPPER_DEPTH_SHIFT = 46;
     
     /**
-     * Mask with a 1 on the position of the bit isAlpha from the flags field of 
-     * the entry.
+     * Position of the bit isValidEntry from the flags field of the entry.
      */
-    private static final long FLAG_IS_ALPHA_MASK = 1L << (49);
+    private static final int FLAG_IS_VALID_ENTRY_SHIFT = 52;
     
     /**
      * Mask with a 1 on the position of the bit isValidEntry from the flags 
      * field of the entry.
      */
-    private static final long FLAG_IS_VALID_ENTRY_MASK = 1L << (50);
+    private static final long FLAG_IS_VALID_ENTRY_MASK = 1L << FLAG_IS_VALID_ENTRY_SHIFT;
+    
+    /**
+     * Amount of bits to shift to the right to put the number of movements of 
+     * the registered status from the entry in the low position.
+     */
+    private static final int PLY_SHIFT = 53;
+    
+    /**
+     * Mask to extract the number of movements of the registered status once 
+     * shifted to the low position.
+     */
+    private static final long PLY_MASK = 0x3fL;
+    
+    /**
+     * Amount of bits to shift to the right to put the generation of the search
+     * that registered the entry in the low position.
+     */
+    private static final int GENERATION_SHIFT = 59;
+    
+    /**
+     * Mask to extract the generation once shifted to the low position.
+     */
+    private static final long GENERATION_MASK = 0x1fL;
+    
+    /**
+     * Version of the format of the entries, part of the layout of the 
+     * storages mapped to a file.
+     */
+    private static final long ENTRY_FORMAT = 2;
+    
+    /**
+     * Start of the first line of the text dumps, followed by the format of 
+     * their entries.
+     */
+    private static final String TEXT_DUMP_HEADER_PREFIX = "JeirostocTT entry format ";
+    
+    /**
+     * First line of the text dumps, with the format of their entries.
+     */
+    static final String TEXT_DUMP_HEADER = TEXT_DUMP_HEADER_PREFIX + ENTRY_FORMAT;
+    
+    /**
+     * Mask with a 1 on the position of the bit isExact of the legacy entries,
+     * the ones of the text dumps without header. They have a single 
+     * heuristic in the low 32 bits instead of two bounds.
+     */
+    private static final long LEGACY_FLAG_IS_EXACT_MASK = 1L << 48;
+    
+    /**
+     * Mask with a 1 on the position of the bit isAlpha of the legacy entries.
+     */
+    private static final long LEGACY_FLAG_IS_ALPHA_MASK = 1L << 49;
+    
+    /**
+     * Mask with a 1 on the position of the bit isValidEntry of the legacy 
+     * entries.
+     */
+    private static final long LEGACY_FLAG_IS_VALID_ENTRY_MASK = 1L << 50;
+    
+    /**
+     * Amount of bits to shift to the right to put the byte specifying the 
+     * depth below from a legacy entry in the low position.
+     */
+    private static final int LEGACY_DEPTH_BELOW_SHIFT = 40;
+    
+    /**
+     * Replacement value an entry loses for each search it is older than the 
+     * current one. It is the value of 8 levels of depthBelow.
+     */
+    private static final int AGE_PENALTY = 16;
+    
+    /**
+     * Maximum age an entry keeps, in searches. Every AGING_PERIOD searches 
+     * the older entries are given this age, so the age of an entry never 
+     * wraps around the generation field and makes it look current.
+     */
+    private static final int MAX_AGE = 15;
+    
+    /**
+     * Number of searches between two agings of the entries, so no entry gets
+     * older than the generation field can hold.
+     */
+    private static final int AGING_PERIOD = (int)GENERATION_MASK - MAX_AGE + 1;
+    
+    /**
+     * Number of slots of each range aged in parallel.
+     */
+    private static final long AGING_RANGE_SLOTS = 1 << 19;
+    
+    /**
+     * Bonus to the replacement value of the entries of the opening book, 
+     * larger than the value of any other entry.
+     */
+    private static final int BOOK_BONUS = 1 << 16;
     
     /**
      * Longs per entry.
@@ -61,32 +194,117 @@ public class TT {
     private static final long LONGS_PER_ENTRY = 2;
     
     /**
-     * Default number of entries in the transposition table.
+     * Default number of entries per bucket. A bucket of 4 entries of 2 longs 
+     * takes 64 bytes, the size of a cache line.
+     */
+    public static final int DEF_ENTRIES_PER_BUCKET = 4;
+    
+    /**
+     * Default fraction of the maximum heap size a transposition table can 
+     * take, so a couple of players fit in the same process.
+     */
+    public static final double DEF_HEAP_FRACTION = 0.25;
+    
+    /**
+     * Maximum number of entries of a table on the Java heap: the largest 
+     * power of 2 number of longs a long[] can hold, 2^30, holds 2^29 entries.
+     */
+    private static final long MAX_HEAP_ENTRIES = 1L << 29;
+    
+    /**
+     * Default number of entries in the transposition table, the ones that fit
+     * in DEF_HEAP_FRACTION of the maximum heap size.
      */
-    public static final long DEF_NUM_ENTRIES = 134204621;
+    public static final long DEF_NUM_ENTRIES = numEntriesForHeapFraction(DEF_HEAP_FRACTION, DEF_ENTRIES_PER_BUCKET);
+    
+    /**
+     * Fraction of the maximum heap size the tables of all the players that 
+     * live at once in a process can take together.
+     */
+    public static final double MAX_TABLES_HEAP_FRACTION = 0.5;
+    
+    /**
+     * Number of counters of the nodes being searched. It is a power of 2 so 
+     * the counter of a key is indexed with a mask.
+     */
+    private static final int NUM_SEARCHING_COUNTERS = 1 << 16;
     
     /**
      * Number of entries in the transposition table.
      */
     private final long _numEntries;
     
+    /**
+     * Number of entries in each bucket. The entry of a status can only be 
+     * stored in the bucket its key is indexed to.
+     */
+    private final int _entriesPerBucket;
+    
+    /**
+     * Mask to get the bucket of a key. The number of buckets is a power of 2,
+     * so the bucket is indexed with a mask instead of a division.
+     */
+    private final long _bucketMask;
+    
     /**
      * Transposition table internal data.
      */
-    protected final long[] _table;
+    protected final TTStorage _table;
     
     /**
-     * Counter for the number of write collisions.
+     * Counter for the number of write collisions. Like the other counters, it
+     * is not synchronized, so it is approximate when several threads search
+     * with the table at once.
      */
     private long _numColisions;
+    
+    /**
+     * Counter for the number of writes that replaced an entry of the same 
+     * status.
+     */
+    private long _numOverwrites;
+    
+    /**
+     * Counter for the number of calls to register.
+     */
+    private long _numRegisters;
+    
+    /**
+     * The number of movements of the root of the current search. The entries
+     * of statuses with less movements can't be reached anymore, as every 
+     * movement places a disk, so they are the first to be replaced.
+     */
+    private volatile int _minPly;
+    
+    /**
+     * The generation of the current search, stored in the entries it 
+     * registers so the ones of older searches are replaced first.
+     */
+    private volatile int _generation;
+    
+    /**
+     * The maximum number of movements of the statuses of the opening book, 
+     * whose entries are kept over any other, or -1 if there is no book.
+     */
+    private volatile int _bookMaxPly;
+    
+    /**
+     * Number of searches in progress of the nodes whose key falls in each
+     * counter. Nodes sharing a counter are taken as being searched together.
+     */
+    private final AtomicIntegerArray _searching;
+    
+    /**
+     * If the table starts with the entries of a previous use, so it doesn't 
+     * need to be filled from the stored table.
+     */
+    private volatile boolean _warm;
 
     /**
      * Default constructor.
      */
     public TT() {
-        _numEntries = DEF_NUM_ENTRIES;
-        _table = new long[(int)(_numEntries*LONGS_PER_ENTRY)];
-        _numColisions = 0;
+        this(DEF_NUM_ENTRIES, DEF_ENTRIES_PER_BUCKET, false);
     }
     
     /**
@@ -95,9 +313,129 @@ public class TT {
      * @param numEntries The number of entries in the table.
      */
     public TT(int numEntries) {
-        _numEntries = numEntries;
-        _table = new long[(int)(_numEntries*LONGS_PER_ENTRY)];
+        this(numEntries, DEF_ENTRIES_PER_BUCKET);
+    }
+    
+    /**
+     * Constructor with a custom table size and bucket size. The number of 
+     * entries is rounded down to a power of 2 number of buckets. A bucket 
+     * size of 1 makes a directly mapped table.
+     * 
+     * @param numEntries The number of entries in the table.
+     * @param entriesPerBucket The number of entries in each bucket.
+     */
+    public TT(int numEntries, int entriesPerBucket) {
+        this(numEntries, entriesPerBucket, false);
+    }
+    
+    /**
+     * Constructor with a custom table size and bucket size, on the Java heap
+     * or out of it. The number of entries is rounded down to a power of 2 
+     * number of buckets. The table can only have more than 2^29 entries out 
+     * of the heap.
+     * 
+     * @param numEntries The number of entries in the table.
+     * @param entriesPerBucket The number of entries in each bucket.
+     * @param offHeap True to store the table out of the Java heap.
+     */
+    public TT(long numEntries, int entriesPerBucket, boolean offHeap) {
+        this(
+            offHeap ? 
+                new TTStorage.Direct(storageSize(numEntries, entriesPerBucket)) : 
+                new TTStorage.Heap(storageSize(numEntries, entriesPerBucket)), 
+            entriesPerBucket
+        );
+    }
+    
+    /**
+     * Constructor with a custom storage, whose entries are kept. The number 
+     * of entries is the largest power of 2 number of buckets that fits in the
+     * storage.
+     * 
+     * @param storage The storage of the table.
+     * @param entriesPerBucket The number of entries in each bucket.
+     */
+    public TT(TTStorage storage, int entriesPerBucket) {
+        _entriesPerBucket = entriesPerBucket;
+        long numBuckets = Long.highestOneBit(storage.size()/(entriesPerBucket*LONGS_PER_ENTRY));
+        _bucketMask = numBuckets - 1;
+        _numEntries = numBuckets*entriesPerBucket;
+        _table = storage;
         _numColisions = 0;
+        _numOverwrites = 0;
+        _numRegisters = 0;
+        _minPly = 0;
+        _generation = 0;
+        _bookMaxPly = -1;
+        _searching = new AtomicIntegerArray(NUM_SEARCHING_COUNTERS);
+        _warm = storage.isReused();
+    }
+    
+    /**
+     * Get the number of longs a table needs to store numEntries entries 
+     * rounded down to a power of 2 number of buckets of entriesPerBucket, 
+     * with at least one bucket.
+     * 
+     * @param numEntries The number of entries.
+     * @param entriesPerBucket The number of entries in each bucket.
+     * @return The number of longs.
+     */
+    static long storageSize(long numEntries, int entriesPerBucket) {
+        return Long.highestOneBit(Math.max(1, numEntries/entriesPerBucket))*entriesPerBucket*LONGS_PER_ENTRY;
+    }
+    
+    /**
+     * Get the layout of the storage of a table with buckets of 
+     * entriesPerBucket, which identifies the format of the entries and the 
+     * size of the buckets, see TTStorage.Mapped.
+     * 
+     * @param entriesPerBucket The number of entries in each bucket.
+     * @return The layout.
+     */
+    static long layout(int entriesPerBucket) {
+        return ENTRY_FORMAT << 32 | entriesPerBucket;
+    }
+    
+    /**
+     * Get the number of entries of the largest table with buckets of 
+     * entriesPerBucket that fits in the given amount of memory. It has a 
+     * power of 2 number of buckets and at least one bucket.
+     * 
+     * @param bytes The amount of memory in bytes.
+     * @param entriesPerBucket The number of entries in each bucket.
+     * @return The number of entries.
+     */
+    public static long numEntriesForMemory(long bytes, int entriesPerBucket) {
+        long bucketBytes = entriesPerBucket*LONGS_PER_ENTRY*Long.BYTES;
+        return Long.highestOneBit(Math.max(1, bytes/bucketBytes))*entriesPerBucket;
+    }
+    
+    /**
+     * Get the number of entries of the largest table with buckets of 
+     * entriesPerBucket that fits in a fraction of the maximum heap size and
+     * in a long[].
+     * 
+     * @param fraction The fraction of the maximum heap size, from 0 to 1.
+     * @param entriesPerBucket The number of entries in each bucket.
+     * @return The number of entries.
+     */
+    public static long numEntriesForHeapFraction(double fraction, int entriesPerBucket) {
+        long bytes = (long)(Runtime.getRuntime().maxMemory()*fraction);
+        return Math.min(MAX_HEAP_ENTRIES, numEntriesForMemory(bytes, entriesPerBucket));
+    }
+    
+    /**
+     * Get the number of entries of each table with DEF_ENTRIES_PER_BUCKET when
+     * numTables of them live at once: they take DEF_HEAP_FRACTION of the 
+     * maximum heap size each, or less so that together they don't take more
+     * than MAX_TABLES_HEAP_FRACTION.
+     * 
+     * @param numTables The number of tables that live at once.
+     * @return The number of entries of each table.
+     */
+    public static long numEntriesPerTable(int numTables) {
+        double fraction = Math.min(DEF_HEAP_FRACTION, MAX_TABLES_HEAP_FRACTION/Math.max(1, numTables));
+        return numEntriesForHeapFraction(fraction, DEF_ENTRIES_PER_BUCKET);
     }
     
     /**
@@ -106,12 +444,26 @@ public class TT {
      * @param bw The opening book to write.
      */
     public void dump(BufferedWriter bw) {
+        dump(bw, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Dumps the entries of statuses with at most maxPly movements from the 
+     * transposition table to the opening book, after the TEXT_DUMP_HEADER 
+     * line.
+     * 
+     * @param bw The opening book to write.
+     * @param maxPly The maximum number of movements of the dumped statuses.
+     */
+    public void dump(BufferedWriter bw, int maxPly) {
         try {
-            for (int entry = 0; entry < _numEntries; entry++) {
-                int index = entry * (int)LONGS_PER_ENTRY;
-                if(extractIsValidEntry(_table[index+1])) {
-                    bw.append(Long.toString(_table[index  ])).append("\n");
-                    bw.append(Long.toString(_table[index+1])).append("\n");
+            bw.append(TEXT_DUMP_HEADER).append("\n");
+            for (long entry = 0; entry < _numEntries; entry++) {
+                long index = entry * LONGS_PER_ENTRY;
+                long currentEntry = _table.get(index+1);
+                if(extractIsValidEntry(currentEntry) && extractPly(currentEntry) <= maxPly) {
+                    bw.append(Long.toString(_table.get(index  ))).append("\n");
+                    bw.append(Long.toString(_table.get(index+1))).append("\n");
                 }
             }
             
@@ -122,38 +474,168 @@ public class TT {
     }
     
     /**
-     * Reads the stored transposition table from the opening book.
+     * Reads the stored transposition table from the opening book, see 
+     * readTextDump. On a malformed line the reading stops keeping the 
+     * entries read.
      * 
      * @param br The opening book to read.
      */
     public void fill(BufferedReader br) {
         try {
-            for (String line = br.readLine(); line != null; line = br.readLine()) {
-                // Extract xored_key+data
-                long xored_key = Long.parseLong(line);
-                long entry     = Long.parseLong(br.readLine());
-                
-                // Write to table
-                long key       = xored_key ^ entry;
-                int index = (int) (Long.remainderUnsigned(key, _numEntries)*LONGS_PER_ENTRY);
-                
-                _table[index]   = xored_key;
-                _table[index+1] = entry;
+            readTextDump(br, this::storeEntry);
+        } catch (IOException ex) {
+            // The entries read so far are valid and the table may already be
+            // used by the searches, so just stop reading
+            Logger.getLogger(TT.class.getName()).log(Level.SEVERE, "Could not read the rest of the TT table", ex);
+        }
+    }
+    
+    /**
+     * Receiver of the entries read from a text dump.
+     */
+    interface EntrySink {
+        /**
+         * Receive an entry.
+         * 
+         * @param xoredKey The key of the entry xored with the entry.
+         * @param entry The entry in the bitpacked format.
+         * @throws IOException If the entry can't be received.
+         */
+        void add(long xoredKey, long entry) throws IOException;
+    }
+    
+    /**
+     * Read the entries of a text dump in the format of the current ones. The
+     * dumps without the TEXT_DUMP_HEADER line were written before the entries
+     * had bounds, and their entries are converted with fromLegacyEntry.
+     * 
+     * @param br The text dump to read.
+     * @param sink The receiver of the entries.
+     * @throws IOException If the dump can't be read, is malformed or has 
+     * entries of an unknown format.
+     */
+    static void readTextDump(BufferedReader br, EntrySink sink) throws IOException {
+        String line = br.readLine();
+        boolean legacy = !TEXT_DUMP_HEADER.equals(line);
+        if(legacy && line != null && line.startsWith(TEXT_DUMP_HEADER_PREFIX))
+            throw new IOException("Text dump with entries of an unknown format: " + line);
+        if(!legacy)
+            line = br.readLine();
+        
+        for (; line != null; line = br.readLine()) {
+            // Extract xored_key+data
+            String entryLine = br.readLine();
+            if(entryLine == null)
+                throw new EOFException("Text dump ends in the middle of an entry");
+            long xoredKey;
+            long entry;
+            try {
+                xoredKey = Long.parseLong(line);
+                entry    = Long.parseLong(entryLine);
+            } catch (NumberFormatException ex) {
+                throw new IOException("Malformed text dump", ex);
             }
-        } catch (IOException | NullPointerException ex) {
-            Logger.getLogger(TT.class.getName()).log(Level.SEVERE, null, ex);
             
-            // Clear table just in case
-            for (int i = 0; i < _table.length; i++) {
-                _table[i] = 0;
+            if(legacy) {
+                if((entry & LEGACY_FLAG_IS_VALID_ENTRY_MASK) == 0)
+                    continue;
+                long key = xoredKey ^ entry;
+                entry = fromLegacyEntry(entry);
+                xoredKey = key ^ entry;
             }
+            sink.add(xoredKey, entry);
         }
     }
     
     /**
-     * Register an entry to the TranspositionTable. It will be added if there is
-     * no collision, if the collision has a different min Zobrist hash or the 
-     * depthBelow is lower or equal than the provided.
+     * Convert a legacy entry, with a single heuristic flagged as exact, as 
+     * alpha or as none, to the current format with the same bounds register
+     * would store: an exact heuristic is both bounds, an alpha one is an 
+     * upper bound and the rest are lower bounds. Its number of movements is
+     * unknown, so it is 0.
+     * 
+     * @param legacyEntry The legacy entry.
+     * @return The entry in the bitpacked format.
+     */
+    static long fromLegacyEntry(long legacyEntry) {
+        float heuristic = Float.intBitsToFloat((int)legacyEntry);
+        boolean isExact = (legacyEntry & LEGACY_FLAG_IS_EXACT_MASK) != 0;
+        boolean isAlpha = (legacyEntry & LEGACY_FLAG_IS_ALPHA_MASK) != 0;
+        return toEntry(
+                isExact || !isAlpha ? heuristic : Float.NEGATIVE_INFINITY, 
+                isExact ||  isAlpha ? heuristic : Float.POSITIVE_INFINITY, 
+                extractSelectedMovement(legacyEntry), 
+                (byte)Math.min(DEPTH_MASK, (legacyEntry >> LEGACY_DEPTH_BELOW_SHIFT) & BYTE_MASK)
+        );
+    }
+    
+    /**
+     * Store an entry read from a dump of a table as an entry of the current 
+     * search, following the same rules as register.
+     * 
+     * @param xoredKey The key of the entry xored with the entry.
+     * @param entry The entry in the bitpacked format.
+     */
+    void storeEntry(long xoredKey, long entry) {
+        long key = xoredKey ^ entry;
+        write(key, withGeneration(entry, _generation));
+    }
+    
+    /**
+     * Store the entries of consecutive slots read from an image of a table 
+     * with the same geometry straight into their slots, as entries of the 
+     * current search. The slots are copied as a whole with TTStorage.put, so
+     * the entries registered in them, if any, are replaced and the empty 
+     * slots of the image are stored empty. The entries of an image have 
+     * generation 0, so they are copied as they are while the table is in its
+     * first generation, and the generation of the valid ones is changed in 
+     * slots otherwise.
+     * 
+     * @param slot The first slot, from 0 to the number of entries.
+     * @param slots The xored key and the entry of each slot, with generation
+     * 0. They are consumed up to their limit.
+     */
+    void storeSlots(long slot, LongBuffer slots) {
+        long generationBits = ((long)_generation & GENERATION_MASK) << GENERATION_SHIFT;
+        if(generationBits != 0) {
+            for (int i = slots.position(); i < slots.limit(); i += LONGS_PER_ENTRY) {
+                // Without branches, as the valid entries are spread at random:
+                // the key xored with the entry keeps the key as the 
+                // generation bits of the image are 0
+                long entry = slots.get(i + 1);
+                long bits = generationBits & -((entry & FLAG_IS_VALID_ENTRY_MASK) >>> FLAG_IS_VALID_ENTRY_SHIFT);
+                slots.put(i, slots.get(i) ^ bits);
+                slots.put(i + 1, entry | bits);
+            }
+        }
+        
+        _table.put(slot*LONGS_PER_ENTRY, slots);
+    }
+    
+    /**
+     * Get the key xored with the entry stored in a slot of the table.
+     * 
+     * @param slot The slot, from 0 to the number of entries.
+     * @return The xored key.
+     */
+    long getSlotXoredKey(long slot) {
+        return _table.get(slot*LONGS_PER_ENTRY);
+    }
+    
+    /**
+     * Get the entry stored in a slot of the table, valid or not.
+     * 
+     * @param slot The slot, from 0 to the number of entries.
+     * @return The entry.
+     */
+    long getSlotEntry(long slot) {
+        return _table.get(slot*LONGS_PER_ENTRY + 1);
+    }
+    
+    /**
+     * Register a heuristic of s from the point of view of the player 1 to the
+     * TranspositionTable, as an exact heuristic or as a bound. See 
+     * registerBounds.
      * 
      * @param s The status to register.
      * @param selectedHeuristic The selected heuristic for this status.
@@ -166,34 +648,221 @@ public class TT {
      * (true) or an upper bound (false).
      */
     public void register(Status s, float selectedHeuristic, byte selectedMovementBitIndex, byte depthBelow, boolean isExact, boolean isAlpha) {
+        registerBounds(
+                s, 
+                isExact ||  isAlpha ? selectedHeuristic : Float.NEGATIVE_INFINITY, 
+                isExact || !isAlpha ? selectedHeuristic : Float.POSITIVE_INFINITY, 
+                1, 
+                selectedMovementBitIndex, 
+                depthBelow
+        );
+    }
+    
+    /**
+     * Register the bounds of the heuristic of s to the TranspositionTable. 
+     * Equal bounds make an exact heuristic, and an infinite bound stands for 
+     * no bound. If the bucket already has an entry of s, they are merged: 
+     * each bound replaces the stored one if it has been explored at least as
+     * deep, and a stored bound that contradicts the new ones is dropped. 
+     * Otherwise, the entry will be added in an empty slot of the bucket or in 
+     * place of the entry with the least value, see replacementValue.
+     * 
+     * @param s The status to register.
+     * @param lowerBound The lower bound of the heuristic of s.
+     * @param upperBound The upper bound of the heuristic of s.
+     * @param playerColor The color of the player whose point of view the 
+     * bounds are given from.
+     * @param selectedMovementBitIndex The selected movement expressed in x*SIZE
+     * + y format.
+     * @param depthBelow The depth explored below s.
+     */
+    public void registerBounds(Status s, float lowerBound, float upperBound, int playerColor, byte selectedMovementBitIndex, byte depthBelow) {
         // Compute index and key
         int variationIndex = s.getMinZobristKeyVariationIndex();
         long key = s.getZobristKey(variationIndex);
-        int index = (int) (Long.remainderUnsigned(key, _numEntries)*LONGS_PER_ENTRY);
+        _numRegisters++;
+        
+        // Store the bounds from the point of view of the player 1
+        if(playerColor != 1) {
+            float negatedLowerBound = -lowerBound;
+            lowerBound = -upperBound;
+            upperBound = negatedLowerBound;
+        }
+        
+        long newEntry = toEntry(
+                lowerBound, 
+                upperBound, 
+                BoardVariation.applyTransformation(selectedMovementBitIndex, variationIndex), 
+                depthBelow
+        ) | ((long)s.getNumMovements() & PLY_MASK) << PLY_SHIFT
+          | ((long)_generation         & GENERATION_MASK) << GENERATION_SHIFT;
+        write(key, newEntry);
+    }
+    
+    /**
+     * Write an entry of key to the slot selected by selectIndexToWrite, 
+     * merging it with the stored one if it is of the same status.
+     * 
+     * @param key The key of the entry.
+     * @param entry The entry in the bitpacked format.
+     */
+    private void write(long key, long entry) {
+        long index = selectIndexToWrite(key);
+        long currentKey   = _table.get(index);
+        long currentEntry = _table.get(index+1);
+        if(extractIsValidEntry(currentEntry) && (currentKey ^ currentEntry) == key) {
+            entry = merge(currentEntry, entry);
+        }
+        
+        _table.set(index,   key ^ entry);
+        _table.set(index+1, entry);
+    }
+    
+    /**
+     * Merge a new entry of a status with the stored one. Each bound of the 
+     * new entry replaces the stored one if it has been explored at least as 
+     * deep or if the stored entry doesn't have it, and a stored bound kept 
+     * that contradicts the new one is dropped. The selected movement is the 
+     * new one unless the stored entry has been explored deeper. The number 
+     * of movements and the generation are the ones of the new entry.
+     * 
+     * @param stored The stored entry.
+     * @param entry The new entry.
+     * @return The merged entry.
+     */
+    private static long merge(long stored, long entry) {
+        int lowerBound = extractBound(entry, LOWER_BOUND_SHIFT);
+        int upperBound = extractBound(entry, UPPER_BOUND_SHIFT);
+        int lowerDepth = extractLowerDepth(entry);
+        int upperDepth = extractUpperDepth(entry);
+        int storedLowerBound = extractBound(stored, LOWER_BOUND_SHIFT);
+        int storedUpperBound = extractBound(stored, UPPER_BOUND_SHIFT);
+        int storedLowerDepth = extractLowerDepth(stored);
+        int storedUpperDepth = extractUpperDepth(stored);
+        
+        // Keep the stored bounds explored deeper
+        boolean newLower = lowerBound != NEGATIVE_INFINITY_BOUND && 
+                          (storedLowerBound == NEGATIVE_INFINITY_BOUND || storedLowerDepth <= lowerDepth);
+        boolean newUpper = upperBound != POSITIVE_INFINITY_BOUND && 
+                          (storedUpperBound == POSITIVE_INFINITY_BOUND || storedUpperDepth <= upperDepth);
+        if(!newLower) {
+            lowerBound = storedLowerBound;
+            lowerDepth = storedLowerDepth;
+        }
+        if(!newUpper) {
+            upperBound = storedUpperBound;
+            upperDepth = storedUpperDepth;
+        }
+        
+        // Drop the stored bound if it contradicts the new one
+        if(upperBound < lowerBound) {
+            if(newLower) {
+                upperBound = POSITIVE_INFINITY_BOUND;
+                upperDepth = 0;
+            } else {
+                lowerBound = NEGATIVE_INFINITY_BOUND;
+                lowerDepth = 0;
+            }
+        }
         
-        // Get current
-        long currentKey      = _table[index];
-        long currentEntry    = _table[index+1];
+        // Keep the stored movement if it was selected deeper
+        byte selectedMovement = extractSelectedMovement(entry);
+        if(extractDepthBelow(entry) < extractDepthBelow(stored) && extractSelectedMovement(stored) != -1) {
+            selectedMovement = extractSelectedMovement(stored);
+        }
         
-        // Try to write
-        if (!extractIsValidEntry(currentEntry) ||
-            (currentKey ^ currentEntry) != key || 
-            extractDepthBelow(currentEntry) <= depthBelow) {
+        return toEntryBits(lowerBound, lowerDepth, upperBound, upperDepth, selectedMovement) | 
+               (entry & (PLY_MASK << PLY_SHIFT | GENERATION_MASK << GENERATION_SHIFT));
+    }
+    
+    /**
+     * Select the index of the table to write an entry of key to and count the
+     * collision or the overwrite the write will make. If the bucket has an 
+     * entry of the same status, it is selected so the new entry is merged 
+     * with it.
+     * 
+     * @param key The key of the entry.
+     * @return The index of the first long of the slot to write to.
+     */
+    private long selectIndexToWrite(long key) {
+        long bucket = (key & _bucketMask)*_entriesPerBucket*LONGS_PER_ENTRY;
+        int minPly = _minPly;
+        int bookMaxPly = _bookMaxPly;
+        int generation = _generation;
+        
+        long selectedIndex = -1;
+        int selectedValue = Integer.MAX_VALUE;
+        boolean foundEmpty = false;
+        for (int slot = 0; slot < _entriesPerBucket; slot++) {
+            long index = bucket + slot*LONGS_PER_ENTRY;
+            long currentKey   = _table.get(index);
+            long currentEntry = _table.get(index+1);
             
-            long newEntry = toEntry(
-                    selectedHeuristic, 
-                    BoardVariation.applyTransformation(selectedMovementBitIndex, variationIndex), 
-                    depthBelow, 
-                    isExact, 
-                    isAlpha
-            );
+            // Empty slot
+            if(!extractIsValidEntry(currentEntry)) {
+                if(!foundEmpty) {
+                    selectedIndex = index;
+                    foundEmpty = true;
+                }
+                continue;
+            }
             
-            _table[index  ] = key ^ newEntry;
-            _table[index+1] = newEntry;
+            // Entry of the same status
+            if((currentKey ^ currentEntry) == key) {
+                _numOverwrites++;
+                return index;
+            }
             
-            if(extractIsValidEntry(currentEntry) && (currentKey ^ currentEntry) != key)
-                _numColisions++;
+            // Entry of another status
+            int value = replacementValue(currentEntry, minPly, bookMaxPly, generation);
+            if(!foundEmpty && value < selectedValue) {
+                selectedIndex = index;
+                selectedValue = value;
+            }
         }
+        
+        if(!foundEmpty)
+            _numColisions++;
+        return selectedIndex;
+    }
+    
+    /**
+     * Get the value of keeping an entry when another one needs its slot. The
+     * entries of statuses that can't be reached anymore have the least value,
+     * except the ones with 0 movements, as the entries read from the books
+     * written before the movements were stored have 0 and can be of any 
+     * status. The rest are valued by their depthBelow, then by having an exact 
+     * heuristic over a bound, minus AGE_PENALTY for each search they are 
+     * older than the current one. The entries of the opening book have 
+     * BOOK_BONUS more than any other.
+     * 
+     * @param entry The entry.
+     * @param minPly The number of movements of the root of the current 
+     * search.
+     * @param bookMaxPly The maximum number of movements of the statuses of 
+     * the opening book, or -1 if there is no book.
+     * @param generation The generation of the current search.
+     * @return The value of the entry.
+     */
+    private static int replacementValue(long entry, int minPly, int bookMaxPly, int generation) {
+        int ply = extractPly(entry);
+        if(0 < ply && bookMaxPly < ply && ply < minPly)
+            return Integer.MIN_VALUE;
+        int age = (int)((generation - extractGeneration(entry)) & GENERATION_MASK);
+        int value = 2*extractDepthBelow(entry) + (extractIsExact(entry) ? 1 : 0) - AGE_PENALTY*age;
+        return ply <= bookMaxPly ? BOOK_BONUS + value : value;
+    }
+    
+    /**
+     * Get the entry with its generation replaced.
+     * 
+     * @param entry The entry.
+     * @param generation The new generation.
+     * @return The entry with the new generation.
+     */
+    static long withGeneration(long entry, int generation) {
+        return (entry & ~(GENERATION_MASK << GENERATION_SHIFT)) | 
+               ((long)generation & GENERATION_MASK) << GENERATION_SHIFT;
     }
     
     /**
@@ -207,25 +876,100 @@ public class TT {
     public long readEntry(Status s) {
         // Compute index and key
         long key = s.getMinZobristKey();
-        int index = (int) (Long.remainderUnsigned(key, _numEntries)*LONGS_PER_ENTRY);
+        long bucket = (key & _bucketMask)*_entriesPerBucket*LONGS_PER_ENTRY;
         
-        // Get current
-        long currentKey      = _table[index];
-        long currentEntry    = _table[index+1];
-        byte extractedMove = extractSelectedMovement(s, currentEntry);
+        for (int slot = 0; slot < _entriesPerBucket; slot++) {
+            // Get current
+            long index = bucket + slot*LONGS_PER_ENTRY;
+            long currentKey      = _table.get(index);
+            long currentEntry    = _table.get(index+1);
+            
+            // Check and return
+            if(extractIsValidEntry(currentEntry) && (currentKey ^ currentEntry) == key) {
+                byte extractedMove = extractSelectedMovement(s, currentEntry);
+                if(extractedMove == -1 || s.canMovePiece(extractedMove/Status.SIZE, extractedMove%Status.SIZE)) {
+                    return currentEntry;
+                } else {
+                    System.out.println("[JeiroWarning] Extracted invalid movement. Current entry:");
+                    System.out.println(entryToString(currentEntry));
+                    System.out.println(s.toString(true));
+                    return 0;
+                }
+            }
+        }
         
-        // Check and return
-        if(extractIsValidEntry(currentEntry) && (currentKey ^ currentEntry) == key) {
-            if(extractedMove == -1 || s.canMovePiece(extractedMove/Status.SIZE, extractedMove%Status.SIZE)) {
-                return currentEntry;
+        return 0;
+    }
+    
+    /**
+     * Rebuild the principal variation from s following the selected movement
+     * of the registered entries. The line ends when the game ends, an entry
+     * with a movement can't be found or it has maxLength movements. As every
+     * movement places a disk and two skipped turns in a row end the game, a
+     * position can't be repeated, so maxLength is enough to guard against the
+     * cycles a collision could introduce.
+     * 
+     * @param s The status the line starts from.
+     * @param firstMovement The first movement of the line or -1 to read it
+     * from the table too.
+     * @param maxLength The maximum number of movements of the line.
+     * @return The movements of the line, expressed in the form SIZE*x + y or
+     * -1 for a skipped turn.
+     */
+    public byte[] getPrincipalVariation(Status s, byte firstMovement, int maxLength) {
+        byte[] line = new byte[Math.max(0, maxLength)];
+        Status current = new Status(s);
+        int length = 0;
+        
+        while(length < line.length && !current.isTerminal()) {
+            byte movement;
+            if(current.getNumNextMoves() == 0) {
+                movement = -1;
+            } else if(length == 0 && firstMovement != -1) {
+                movement = firstMovement;
             } else {
-                System.out.println("[JeiroWarning] Extracted invalid movement. Current entry:");
-                System.out.println(entryToString(currentEntry));
-                System.out.println(s.toString(true));
+                movement = extractSelectedMovementIfValidEntry(current, readEntry(current));
+                if(movement == -1)
+                    break;
+            }
+            
+            line[length++] = movement;
+            if(movement == -1) {
+                current.skipTurn();
+            } else {
+                current.movePiece(movement);
             }
         }
         
-        return 0;
+        return Arrays.copyOf(line, length);
+    }
+    
+    /**
+     * Mark that a search of s has started, so other threads can defer it.
+     * 
+     * @param s The status being searched.
+     */
+    public void startSearch(Status s) {
+        _searching.incrementAndGet(searchingIndex(s));
+    }
+    
+    /**
+     * Mark that a search of s started with startSearch has ended.
+     * 
+     * @param s The status that was being searched.
+     */
+    public void endSearch(Status s) {
+        _searching.decrementAndGet(searchingIndex(s));
+    }
+    
+    /**
+     * Check if s is being searched by any thread.
+     * 
+     * @param s The status to check.
+     * @return True if there is a search of s in progress, false otherwise.
+     */
+    public boolean isBeingSearched(Status s) {
+        return _searching.get(searchingIndex(s)) != 0;
     }
     
     /**
@@ -238,35 +982,349 @@ public class TT {
     }
     
     /**
-     * Express the component entries in the bitpacked format.
+     * Get the number of writes that replaced an entry of the same status.
+     * 
+     * @return The number of overwrites recorded.
+     */
+    public long getNumOverwrites() {
+        return _numOverwrites;
+    }
+    
+    /**
+     * Get the number of calls to register.
+     * 
+     * @return The number of registers recorded.
+     */
+    public long getNumRegisters() {
+        return _numRegisters;
+    }
+    
+    /**
+     * Get the number of entries in each bucket.
+     * 
+     * @return The number of entries per bucket.
+     */
+    public int getEntriesPerBucket() {
+        return _entriesPerBucket;
+    }
+    
+    /**
+     * Get the number of entries of the table.
      * 
-     * @param selectedHeuristic The selected heuristic.
+     * @return The number of entries.
+     */
+    public long getNumEntries() {
+        return _numEntries;
+    }
+    
+    /**
+     * Write the entries to the persistent support of the storage, if it has
+     * one, so they are kept even if the process is killed.
+     */
+    public void checkpoint() {
+        _table.force();
+    }
+    
+    /**
+     * Check if the table starts with the entries of a previous use or is 
+     * already being filled from the stored table.
+     * 
+     * @return True if the entries have been kept or are being filled, false
+     * otherwise.
+     */
+    public boolean isWarm() {
+        return _warm;
+    }
+    
+    /**
+     * Set the table as warm once it is being filled from the stored table, so
+     * the players that share it don't fill it again.
+     */
+    void setWarm() {
+        _warm = true;
+    }
+    
+    /**
+     * Prepare the table for a new use that evaluates the statuses like the 
+     * previous one. The entries are kept but they start a new generation, so
+     * they are replaced first, and the counters are reset.
+     */
+    void recycle() {
+        newGeneration();
+        resetCounters();
+        _warm = true;
+    }
+    
+    /**
+     * Prepare the table for a new use that evaluates the statuses differently
+     * from the previous one. The storage is cleared in parallel and the 
+     * counters, the generation and the min ply are reset.
+     */
+    void reset() {
+        _table.clear();
+        resetCounters();
+        _minPly = 0;
+        _generation = 0;
+        _warm = false;
+    }
+    
+    /**
+     * Reset the counters of collisions, overwrites and registers.
+     */
+    private void resetCounters() {
+        _numColisions = 0;
+        _numOverwrites = 0;
+        _numRegisters = 0;
+    }
+    
+    /**
+     * Set the number of movements of the root of the current search, so the
+     * entries of statuses with less movements are replaced first.
+     * 
+     * @param numMovements The number of movements of the root.
+     */
+    public void setMinPly(int numMovements) {
+        _minPly = numMovements;
+    }
+    
+    /**
+     * Set the maximum number of movements of the statuses of the opening 
+     * book. Their entries are kept over any other, even once they can't be 
+     * reached anymore, so they can be dumped with dump(bw, maxPly) at the end.
+     * 
+     * @param maxPly The maximum number of movements or -1 for no book.
+     */
+    public void setBookMaxPly(int maxPly) {
+        _bookMaxPly = maxPly;
+    }
+    
+    /**
+     * Start a new generation of entries, so the ones registered by previous 
+     * searches are replaced first. It has to be called before each search of
+     * a new root. Every AGING_PERIOD generations the entries older than 
+     * MAX_AGE are given that age, which goes through the whole table.
+     */
+    public void newGeneration() {
+        _generation = (int)((_generation + 1) & GENERATION_MASK);
+        if(_generation % AGING_PERIOD == 0)
+            ageEntries();
+    }
+    
+    /**
+     * Give the age MAX_AGE to the valid entries older than it, splitting the
+     * table in ranges aged in parallel. When it is called the entries are
+     * at most MAX_AGE + AGING_PERIOD - 1 searches old, so their age can still
+     * be told from the generation field.
+     */
+    private void ageEntries() {
+        int generation = _generation;
+        long oldestBits = ((long)(generation - MAX_AGE) & GENERATION_MASK) << GENERATION_SHIFT;
+        long numRanges = (_numEntries + AGING_RANGE_SLOTS - 1)/AGING_RANGE_SLOTS;
+        LongStream.range(0, numRanges).parallel().forEach(range -> {
+            long to = Math.min(_numEntries, (range + 1)*AGING_RANGE_SLOTS);
+            for (long slot = range*AGING_RANGE_SLOTS; slot < to; slot++) {
+                long entry = _table.get(slot*LONGS_PER_ENTRY + 1);
+                if(!extractIsValidEntry(entry) || 
+                   ((generation - extractGeneration(entry)) & GENERATION_MASK) <= MAX_AGE)
+                    continue;
+                
+                long aged = (entry & ~(GENERATION_MASK << GENERATION_SHIFT)) | oldestBits;
+                _table.set(slot*LONGS_PER_ENTRY, _table.get(slot*LONGS_PER_ENTRY) ^ entry ^ aged);
+                _table.set(slot*LONGS_PER_ENTRY + 1, aged);
+            }
+        });
+    }
+    
+    /**
+     * Get the generation of the current search.
+     * 
+     * @return The generation.
+     */
+    public int getGeneration() {
+        return _generation;
+    }
+    
+    /**
+     * Get the index of the counter of the searches in progress of s.
+     * 
+     * @param s The status.
+     * @return The index of the counter.
+     */
+    private static int searchingIndex(Status s) {
+        long key = s.getMinZobristKey();
+        return (int)(key ^ (key >>> 32)) & (NUM_SEARCHING_COUNTERS - 1);
+    }
+    
+    /**
+     * Express the component entries in the bitpacked format. An infinite 
+     * bound stands for no bound and is stored with a depth of 0, and the 
+     * depth is limited to 63. The bounds are rounded outwards to the 16 bit 
+     * fixed point they are stored in, so they stay valid.
+     * 
+     * @param lowerBound The lower bound of the heuristic.
+     * @param upperBound The upper bound of the heuristic.
      * @param selectedMovementBitIndex The selected movement expressed in x*SIZE
      * + y format.
      * @param depthBelow The depth explored.
-     * @param isExact The flag to indicate if the heuristic is exact (true) or 
-     * was calculated with pruning (false).
-     * @param isAlpha The flag to indicate if the heuristic is an upper bound 
-     * (true) or a lower bound (false).
      * @return The entry in the bitpacked format.
      */
-    public static long toEntry(float selectedHeuristic, byte selectedMovementBitIndex, byte depthBelow, boolean isExact, boolean isAlpha) {
-        return ((long)Float.floatToRawIntBits(selectedHeuristic) & SELECTED_HEURISTIC_MASK) |
-               ((long)selectedMovementBitIndex & BYTE_MASK) << SELECTED_MOVEMENT_SHIFT        |
-               ((long)depthBelow               & BYTE_MASK) <<       DEPTH_BELOW_SHIFT        |
-               (isExact ? FLAG_IS_EXACT_MASK : 0L)                                            |
-               (isAlpha ? FLAG_IS_ALPHA_MASK : 0L)                                            |
+    public static long toEntry(float lowerBound, float upperBound, byte selectedMovementBitIndex, byte depthBelow) {
+        int depth = Math.max(0, Math.min((int)DEPTH_MASK, depthBelow));
+        int lower = toLowerBound(lowerBound);
+        int upper = toUpperBound(upperBound);
+        return toEntryBits(
+                lower, lower == NEGATIVE_INFINITY_BOUND ? 0 : depth, 
+                upper, upper == POSITIVE_INFINITY_BOUND ? 0 : depth, 
+                selectedMovementBitIndex
+        );
+    }
+    
+    /**
+     * Express the stored component entries in the bitpacked format.
+     * 
+     * @param lowerBound The stored lower bound.
+     * @param lowerDepth The depth explored for the lower bound.
+     * @param upperBound The stored upper bound.
+     * @param upperDepth The depth explored for the upper bound.
+     * @param selectedMovementBitIndex The selected movement expressed in x*SIZE
+     * + y format.
+     * @return The entry in the bitpacked format.
+     */
+    private static long toEntryBits(int lowerBound, int lowerDepth, int upperBound, int upperDepth, byte selectedMovementBitIndex) {
+        return ((long)lowerBound               & BOUND_MASK) << LOWER_BOUND_SHIFT      |
+               ((long)upperBound               & BOUND_MASK) << UPPER_BOUND_SHIFT      |
+               ((long)selectedMovementBitIndex & BYTE_MASK)  << SELECTED_MOVEMENT_SHIFT |
+               ((long)lowerDepth               & DEPTH_MASK) << LOWER_DEPTH_SHIFT      |
+               ((long)upperDepth               & DEPTH_MASK) << UPPER_DEPTH_SHIFT      |
                FLAG_IS_VALID_ENTRY_MASK;
     }
     
     /**
-     * Extract the selected heuristic from the entry.
+     * Get the stored bound of a lower bound, rounded down.
+     * 
+     * @param heuristic The lower bound.
+     * @return The stored bound.
+     */
+    private static int toLowerBound(float heuristic) {
+        if(heuristic == Float.POSITIVE_INFINITY)
+            return POSITIVE_INFINITY_BOUND;
+        double scaled = Math.floor((double)heuristic*BOUND_SCALE);
+        if(scaled <= NEGATIVE_INFINITY_BOUND)
+            return NEGATIVE_INFINITY_BOUND;
+        return (int)Math.min(scaled, POSITIVE_INFINITY_BOUND - 1);
+    }
+    
+    /**
+     * Get the stored bound of an upper bound, rounded up.
+     * 
+     * @param heuristic The upper bound.
+     * @return The stored bound.
+     */
+    private static int toUpperBound(float heuristic) {
+        if(heuristic == Float.NEGATIVE_INFINITY)
+            return NEGATIVE_INFINITY_BOUND;
+        double scaled = Math.ceil((double)heuristic*BOUND_SCALE);
+        if(POSITIVE_INFINITY_BOUND <= scaled)
+            return POSITIVE_INFINITY_BOUND;
+        return (int)Math.max(scaled, NEGATIVE_INFINITY_BOUND + 1);
+    }
+    
+    /**
+     * Get the heuristic of a stored bound.
+     * 
+     * @param bound The stored bound.
+     * @return The heuristic.
+     */
+    private static float fromBound(int bound) {
+        if(bound == POSITIVE_INFINITY_BOUND)
+            return Float.POSITIVE_INFINITY;
+        if(bound == NEGATIVE_INFINITY_BOUND)
+            return Float.NEGATIVE_INFINITY;
+        return bound/BOUND_SCALE;
+    }
+    
+    /**
+     * Extract a stored bound from the entry.
+     * 
+     * @param entry The entry to extract from.
+     * @param shift The shift of the bound.
+     * @return The stored bound.
+     */
+    private static int extractBound(long entry, int shift) {
+        return (short)((entry >> shift) & BOUND_MASK);
+    }
+    
+    /**
+     * Extract the lower bound of the heuristic from the entry, from the point
+     * of view of the player 1.
+     * 
+     * @param entry The entry to extract from.
+     * @return The lower bound or -infinity if there is none.
+     */
+    public static float extractLowerBound(long entry) {
+        return fromBound(extractBound(entry, LOWER_BOUND_SHIFT));
+    }
+    
+    /**
+     * Extract the upper bound of the heuristic from the entry, from the point
+     * of view of the player 1.
+     * 
+     * @param entry The entry to extract from.
+     * @return The upper bound or infinity if there is none.
+     */
+    public static float extractUpperBound(long entry) {
+        return fromBound(extractBound(entry, UPPER_BOUND_SHIFT));
+    }
+    
+    /**
+     * Extract the lower bound of the heuristic from the entry, from the point
+     * of view of playerColor, if it has been explored at least minDepthBelow.
+     * 
+     * @param entry The entry to extract from.
+     * @param minDepthBelow The minimum depth below the bound has to have to be
+     * used.
+     * @param playerColor The color of the player of the point of view.
+     * @return The lower bound or -infinity if there is none that can be used.
+     */
+    static float extractLowerBound(long entry, int minDepthBelow, int playerColor) {
+        if(!extractIsValidEntry(entry))
+            return Float.NEGATIVE_INFINITY;
+        if(playerColor == 1)
+            return minDepthBelow <= extractLowerDepth(entry) ? extractLowerBound(entry) : Float.NEGATIVE_INFINITY;
+        else
+            return minDepthBelow <= extractUpperDepth(entry) ? -extractUpperBound(entry) : Float.NEGATIVE_INFINITY;
+    }
+    
+    /**
+     * Extract the upper bound of the heuristic from the entry, from the point
+     * of view of playerColor, if it has been explored at least minDepthBelow.
+     * 
+     * @param entry The entry to extract from.
+     * @param minDepthBelow The minimum depth below the bound has to have to be
+     * used.
+     * @param playerColor The color of the player of the point of view.
+     * @return The upper bound or infinity if there is none that can be used.
+     */
+    static float extractUpperBound(long entry, int minDepthBelow, int playerColor) {
+        if(!extractIsValidEntry(entry))
+            return Float.POSITIVE_INFINITY;
+        if(playerColor == 1)
+            return minDepthBelow <= extractUpperDepth(entry) ? extractUpperBound(entry) : Float.POSITIVE_INFINITY;
+        else
+            return minDepthBelow <= extractLowerDepth(entry) ? -extractLowerBound(entry) : Float.POSITIVE_INFINITY;
+    }
+    
+    /**
+     * Extract the selected heuristic from the entry: the exact heuristic if 
+     * both bounds are equal, otherwise the lower bound or, if there is none,
+     * the upper bound.
      * 
      * @param entry The entry to extract from.
      * @return The selected heuristic.
      */
     public static float extractSelectedHeuristic(long entry) {
-        return Float.intBitsToFloat((int)(entry & SELECTED_HEURISTIC_MASK));
+        int lowerBound = extractBound(entry, LOWER_BOUND_SHIFT);
+        return fromBound(lowerBound != NEGATIVE_INFINITY_BOUND ? lowerBound : extractBound(entry, UPPER_BOUND_SHIFT));
     }
     
     /**
@@ -295,33 +1353,44 @@ public class TT {
     }
     
     /**
-     * Extract the depthBelow from the entry.
+     * Extract the depth explored for the lower bound from the entry.
      * 
      * @param entry The entry to extract from.
-     * @return The depthBelow.
+     * @return The depth below of the lower bound.
      */
-    public static byte extractDepthBelow(long entry) {
-        return (byte)((entry >> DEPTH_BELOW_SHIFT) & BYTE_MASK);
+    public static int extractLowerDepth(long entry) {
+        return (int)((entry >> LOWER_DEPTH_SHIFT) & DEPTH_MASK);
     }
     
     /**
-     * Extract the isExact flag from the entry.
+     * Extract the depth explored for the upper bound from the entry.
      * 
      * @param entry The entry to extract from.
-     * @return The isExact flag.
+     * @return The depth below of the upper bound.
      */
-    public static boolean extractIsExact(long entry) {
-        return (entry & FLAG_IS_EXACT_MASK) != 0;
+    public static int extractUpperDepth(long entry) {
+        return (int)((entry >> UPPER_DEPTH_SHIFT) & DEPTH_MASK);
+    }
+    
+    /**
+     * Extract the depthBelow from the entry, the deepest of its bounds.
+     * 
+     * @param entry The entry to extract from.
+     * @return The depthBelow.
+     */
+    public static byte extractDepthBelow(long entry) {
+        return (byte)Math.max(extractLowerDepth(entry), extractUpperDepth(entry));
     }
     
     /**
-     * Extract the isAlpha flag from the entry.
+     * Extract the isExact flag from the entry, set if both bounds are equal.
      * 
      * @param entry The entry to extract from.
-     * @return The isAlpha flag.
+     * @return The isExact flag.
      */
-    public static boolean extractIsAlpha(long entry) {
-        return (entry & FLAG_IS_ALPHA_MASK) != 0;
+    public static boolean extractIsExact(long entry) {
+        return extractIsValidEntry(entry) && 
+               extractBound(entry, LOWER_BOUND_SHIFT) == extractBound(entry, UPPER_BOUND_SHIFT);
     }
     
     /**
@@ -334,6 +1403,27 @@ public class TT {
         return (entry & FLAG_IS_VALID_ENTRY_MASK) != 0;
     }
     
+    /**
+     * Extract the number of movements of the registered status from the 
+     * entry.
+     * 
+     * @param entry The entry to extract from.
+     * @return The number of movements.
+     */
+    public static int extractPly(long entry) {
+        return (int)((entry >> PLY_SHIFT) & PLY_MASK);
+    }
+    
+    /**
+     * Extract the generation of the search that registered the entry.
+     * 
+     * @param entry The entry to extract from.
+     * @return The generation.
+     */
+    public static int extractGeneration(long entry) {
+        return (int)((entry >>> GENERATION_SHIFT) & GENERATION_MASK);
+    }
+    
     /**
      * Extract the selected movement in entry if the entry is valid and return 
      * it. In case in is not valid, return -1.
@@ -349,21 +1439,6 @@ public class TT {
             return -1;
     }
     
-    /**
-     * Check if the entry is valid, the recorded depth is equal or greater than
-     * minDepthBelow and the stored bound is the same as the given one.
-     * 
-     * @param entry The entry.
-     * @param minDepthBelow The minimum depth below the entry has to have to be 
-     * able to extract the heuristic from it.
-     * @return True if the heuristic can be used with the given params and false
-     * if not.
-     */
-    static boolean canExtractHeuristic(long entry, int minDepthBelow) {
-        return extractIsValidEntry(entry) && 
-               minDepthBelow <= extractDepthBelow(entry);
-    }
-    
     /**
      * Express the given entry as a string.
      * 
@@ -375,23 +1450,29 @@ public class TT {
         sb.append("Raw: ");
         sb.append(String.format("%64s", Long.toBinaryString(entry)).replace(' ', '0'));
         sb.append('\n');
-        sb.append("selectedHeuristic: "); 
-        sb.append(extractSelectedHeuristic(entry));
+        sb.append("lowerBound:        "); 
+        sb.append(extractLowerBound(entry));
+        sb.append('\n');
+        sb.append("upperBound:        "); 
+        sb.append(extractUpperBound(entry));
         sb.append('\n');
         sb.append("selectedMovement:  ");
         sb.append(extractSelectedMovement(entry));
         sb.append('\n');
-        sb.append("depthBelow:        ");
-        sb.append(extractDepthBelow(entry));
+        sb.append("lowerDepth:        ");
+        sb.append(extractLowerDepth(entry));
         sb.append('\n');
-        sb.append("isExact:           ");
-        sb.append(extractIsExact(entry));
-        sb.append('\n');
-        sb.append("isAlpha:           ");
-        sb.append(extractIsAlpha(entry));
+        sb.append("upperDepth:        ");
+        sb.append(extractUpperDepth(entry));
         sb.append('\n');
         sb.append("isValidEntry:      ");
         sb.append(extractIsValidEntry(entry));
+        sb.append('\n');
+        sb.append("ply:               ");
+        sb.append(extractPly(entry));
+        sb.append('\n');
+        sb.append("generation:        ");
+        sb.append(extractGeneration(entry));
         return sb.toString();
     }
 }
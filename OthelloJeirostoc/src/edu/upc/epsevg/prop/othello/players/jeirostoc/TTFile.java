@@ -0,0 +1,521 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.BufferedReader;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Helper class to dump the entries of a transposition table to a binary file
+ * and fill a table from it. The file starts with a header with a magic number,
+ * the version of the format, the flags, the number of entries, the
+ * fingerprint of the Zobrist values, the heuristic version the entries
+ * were computed with and the entries per bucket of an image, followed by its
+ * own checksum. Then come the blocks of
+ * entries, each one with its stored length, the checksum of its entries, 
+ * its number of entries and its number of valid entries, and the pairs of xored key and entry, compressed
+ * with Deflate if the flag is set. All the values are little-endian.
+ * <p>
+ * Full dumps can be written as an image of the table: every slot is written
+ * in order, empty or not, and the header has the number of entries per 
+ * bucket of the table. The entries of an image are written with generation
+ * 0, so an image read into a table of the same geometry is copied block by
+ * block into the slots without looking for a slot for each entry.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TTFile {
+    /**
+     * Magic number at the start of the file ("JTTBIN01").
+     */
+    static final long MAGIC = 0x4a545442494e3031L;
+    
+    /**
+     * The version of the format.
+     */
+    static final int VERSION = 3;
+    
+    /**
+     * Flag of the blocks being compressed with Deflate.
+     */
+    private static final int FLAG_DEFLATE = 1;
+    
+    /**
+     * Flag of the file being an image of the slots of a table.
+     */
+    private static final int FLAG_SLOTS = 2;
+    
+    /**
+     * The size of the header in bytes, including its checksum.
+     */
+    static final int HEADER_BYTES = 48;
+    
+    /**
+     * The size of the header of a block in bytes.
+     */
+    static final int BLOCK_HEADER_BYTES = 16;
+    
+    /**
+     * The number of entries of a full block.
+     */
+    private static final int ENTRIES_PER_BLOCK = 4096;
+    
+    /**
+     * The size of the entries of a full block in bytes.
+     */
+    private static final int BLOCK_BYTES = ENTRIES_PER_BLOCK*2*Long.BYTES;
+    
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private TTFile() {}
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Write                                                                  //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Write the valid entries of tt to file, replacing it.
+     * 
+     * @param tt The table to dump.
+     * @param file The file to write.
+     * @param compress True to compress the blocks with Deflate.
+     * @return The number of entries written.
+     * @throws IOException If the file can't be written.
+     */
+    public static long write(TT tt, Path file, boolean compress) throws IOException {
+        return write(tt, file, compress, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Write the valid entries of tt of statuses with at most maxPly movements
+     * to file, replacing it. If no entry is filtered out by maxPly and at 
+     * least half of the slots are used, the file is an image of the slots of
+     * tt.
+     * 
+     * @param tt The table to dump.
+     * @param file The file to write.
+     * @param compress True to compress the blocks with Deflate.
+     * @param maxPly The maximum number of movements of the dumped statuses.
+     * @return The number of entries written.
+     * @throws IOException If the file can't be written.
+     */
+    public static long write(TT tt, Path file, boolean compress, int maxPly) throws IOException {
+        long numValid = 0;
+        for (long slot = 0; slot < tt.getNumEntries(); slot++) {
+            if(TT.extractIsValidEntry(tt.getSlotEntry(slot)))
+                numValid++;
+        }
+        if(maxPly == Integer.MAX_VALUE && tt.getNumEntries() <= 2*numValid)
+            return writeSlots(tt, file, compress);
+        
+        try (BlockWriter writer = new BlockWriter(file, compress, 0)) {
+            for (long slot = 0; slot < tt.getNumEntries(); slot++) {
+                long entry = tt.getSlotEntry(slot);
+                if(TT.extractIsValidEntry(entry) && TT.extractPly(entry) <= maxPly) {
+                    writer.add(tt.getSlotXoredKey(slot), entry);
+                }
+            }
+            return writer.getNumEntries();
+        }
+    }
+    
+    /**
+     * Write every slot of tt to file as an image of the table, replacing it.
+     * 
+     * @param tt The table to dump.
+     * @param file The file to write.
+     * @param compress True to compress the blocks with Deflate.
+     * @return The number of valid entries written.
+     * @throws IOException If the file can't be written.
+     */
+    private static long writeSlots(TT tt, Path file, boolean compress) throws IOException {
+        long numValid = 0;
+        try (BlockWriter writer = new BlockWriter(file, compress, tt.getEntriesPerBucket())) {
+            for (long slot = 0; slot < tt.getNumEntries(); slot++) {
+                // The image is written with generation 0, see TT.storeSlots
+                long entry = tt.getSlotEntry(slot);
+                long imageEntry = TT.withGeneration(entry, 0);
+                writer.add(tt.getSlotXoredKey(slot) ^ entry ^ imageEntry, imageEntry);
+                if(TT.extractIsValidEntry(entry))
+                    numValid++;
+            }
+        }
+        return numValid;
+    }
+    
+    /**
+     * Convert a table dumped in the text format of TT.dump to a binary file.
+     * The legacy dumps without header are converted too, see TT.readTextDump.
+     * 
+     * @param br The text dump to read.
+     * @param file The file to write.
+     * @param compress True to compress the blocks with Deflate.
+     * @return The number of entries written.
+     * @throws IOException If the text dump can't be read or parsed or the
+     * file can't be written.
+     */
+    public static long convertTextDump(BufferedReader br, Path file, boolean compress) throws IOException {
+        try (BlockWriter writer = new BlockWriter(file, compress, 0)) {
+            TT.readTextDump(br, writer::add);
+            return writer.getNumEntries();
+        }
+    }
+    
+    /**
+     * Writer of the blocks of a binary file. The header is written when it
+     * is closed, once the number of entries is known.
+     */
+    private static class BlockWriter implements AutoCloseable {
+        /**
+         * The channel of the file.
+         */
+        private final FileChannel _channel;
+        
+        /**
+         * The compressor or null if the blocks are not compressed.
+         */
+        private final Deflater _deflater;
+        
+        /**
+         * The entries of the block being filled.
+         */
+        private final ByteBuffer _block;
+        
+        /**
+         * The block as it is written, with its header.
+         */
+        private final ByteBuffer _output;
+        
+        /**
+         * The checksum of the blocks.
+         */
+        private final CRC32 _crc;
+        
+        /**
+         * The number of entries per bucket of the table whose image is 
+         * written or 0 if only its entries are written.
+         */
+        private final int _entriesPerBucket;
+        
+        /**
+         * The number of entries written.
+         */
+        private long _numEntries;
+        
+        /**
+         * The number of valid entries added to the block being filled.
+         */
+        private int _numBlockValid;
+        
+        /**
+         * Constructor of a writer that replaces file.
+         * 
+         * @param file The file to write.
+         * @param compress True to compress the blocks with Deflate.
+         * @param entriesPerBucket The number of entries per bucket of the 
+         * table whose image is written or 0 if only its entries are written.
+         * @throws IOException If the file can't be opened.
+         */
+        BlockWriter(Path file, boolean compress, int entriesPerBucket) throws IOException {
+            _channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            _deflater = compress ? new Deflater(Deflater.BEST_SPEED) : null;
+            _block = ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            _output = ByteBuffer.allocateDirect(BLOCK_HEADER_BYTES + BLOCK_BYTES + BLOCK_BYTES/8 + 64).order(ByteOrder.LITTLE_ENDIAN);
+            _crc = new CRC32();
+            _entriesPerBucket = entriesPerBucket;
+            _numEntries = 0;
+            _numBlockValid = 0;
+            _channel.position(HEADER_BYTES);
+        }
+        
+        /**
+         * Add an entry to the file.
+         * 
+         * @param xoredKey The key of the entry xored with the entry.
+         * @param entry The entry in the bitpacked format.
+         * @throws IOException If the file can't be written.
+         */
+        void add(long xoredKey, long entry) throws IOException {
+            _block.putLong(xoredKey);
+            _block.putLong(entry);
+            _numEntries++;
+            if(TT.extractIsValidEntry(entry))
+                _numBlockValid++;
+            if(!_block.hasRemaining())
+                writeBlock();
+        }
+        
+        /**
+         * Get the number of entries added.
+         * 
+         * @return The number of entries.
+         */
+        long getNumEntries() {
+            return _numEntries;
+        }
+        
+        /**
+         * Write the block being filled, if it has any entry.
+         * 
+         * @throws IOException If the file can't be written.
+         */
+        private void writeBlock() throws IOException {
+            _block.flip();
+            if(!_block.hasRemaining()) {
+                _block.clear();
+                return;
+            }
+            
+            int numBlockEntries = _block.remaining()/(2*Long.BYTES);
+            _crc.reset();
+            _crc.update(_block);
+            _block.rewind();
+            
+            _output.clear();
+            _output.position(BLOCK_HEADER_BYTES);
+            if(_deflater != null) {
+                _deflater.reset();
+                _deflater.setInput(_block);
+                _deflater.finish();
+                while(!_deflater.finished()) {
+                    _deflater.deflate(_output);
+                }
+            } else {
+                _output.put(_block);
+            }
+            _output.putInt(0, _output.position() - BLOCK_HEADER_BYTES);
+            _output.putInt(4, (int)_crc.getValue());
+            _output.putInt(8, numBlockEntries);
+            _output.putInt(12, _numBlockValid);
+            _output.flip();
+            writeFully(_channel, _output);
+            
+            _block.clear();
+            _numBlockValid = 0;
+        }
+        
+        /**
+         * Write the last block and the header and close the file.
+         * 
+         * @throws IOException If the file can't be written.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                writeBlock();
+                
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                header.putLong(MAGIC);
+                header.putInt(VERSION);
+                header.putInt((_deflater != null ? FLAG_DEFLATE : 0) | (_entriesPerBucket != 0 ? FLAG_SLOTS : 0));
+                header.putLong(_numEntries);
+                header.putLong(ZobristKeyGen.getFingerprint());
+                header.putFloat(Status.HEURISTIC_VER);
+                header.putInt(_entriesPerBucket);
+                header.position(HEADER_BYTES - Integer.BYTES);
+                CRC32 crc = new CRC32();
+                crc.update(header.array(), 0, header.position());
+                header.putInt((int)crc.getValue());
+                header.rewind();
+                
+                _channel.position(0);
+                writeFully(_channel, header);
+            } finally {
+                if(_deflater != null)
+                    _deflater.end();
+                _channel.close();
+            }
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Read                                                                   //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Fill tt with the entries of file. The header is checked before storing
+     * any entry and every block is checked before storing its entries, so a
+     * damaged file only loses the entries from the first damaged block on. 
+     * An image of a table with the same number of entries and entries per 
+     * bucket as tt is copied to the same slots, see TT.storeSlots, otherwise
+     * the entries are stored as if they were registered.
+     * 
+     * @param tt The table to fill.
+     * @param file The file to read.
+     * @return The number of entries read.
+     * @throws IOException If the file can't be read, it isn't a binary dump
+     * of this version or it was written with other Zobrist values or
+     * heuristic version.
+     */
+    public static long read(TT tt, Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(tt, channel, file);
+        }
+    }
+    
+    /**
+     * Fill tt with the entries read from channel, as read does, so the 
+     * progress of the read can be followed with the position of the channel.
+     * 
+     * @param tt The table to fill.
+     * @param channel The channel of the file, at its start.
+     * @param file The file to read, for the messages.
+     * @return The number of entries read.
+     * @throws IOException If the file can't be read, it isn't a binary dump
+     * of this version or it was written with other Zobrist values or
+     * heuristic version.
+     */
+    static long read(TT tt, FileChannel channel, Path file) throws IOException {
+        // Check the header
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header);
+        CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, HEADER_BYTES - Integer.BYTES);
+        if(header.getLong(0) != MAGIC)
+            throw new IOException(file + " is not a binary TT dump");
+        if(header.getInt(HEADER_BYTES - Integer.BYTES) != (int)crc.getValue())
+            throw new IOException(file + " has a damaged header");
+        if(header.getInt(8) != VERSION)
+            throw new IOException(file + " has version " + header.getInt(8) + " instead of " + VERSION);
+        if(header.getLong(24) != ZobristKeyGen.getFingerprint())
+            throw new IOException(file + " was written with other Zobrist values");
+        if(header.getFloat(32) != Status.HEURISTIC_VER)
+            throw new IOException(file + " was written with heuristic version " + header.getFloat(32));
+        boolean compressed = (header.getInt(12) & FLAG_DEFLATE) != 0;
+        boolean slots = (header.getInt(12) & FLAG_SLOTS) != 0;
+        long numEntries = header.getLong(16);
+        boolean sameGeometry = slots && numEntries == tt.getNumEntries() && 
+                               header.getInt(36) == tt.getEntriesPerBucket();
+        
+        // Read the blocks
+        Inflater inflater = compressed ? new Inflater() : null;
+        ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer stored = ByteBuffer.allocateDirect(BLOCK_BYTES + BLOCK_BYTES/8 + 64).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer block = ByteBuffer.allocateDirect(BLOCK_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long numRead = 0;
+        long numValid = 0;
+        try {
+            while(numRead < numEntries) {
+                blockHeader.clear();
+                readFully(channel, blockHeader);
+                int storedBytes = blockHeader.getInt(0);
+                int checksum = blockHeader.getInt(4);
+                int numBlockEntries = blockHeader.getInt(8);
+                int numBlockValid = blockHeader.getInt(12);
+                if(storedBytes < 0 || stored.capacity() < storedBytes || numBlockEntries <= 0 || ENTRIES_PER_BLOCK < numBlockEntries || 
+                   numBlockValid < 0 || numBlockEntries < numBlockValid || 
+                   (!compressed && storedBytes != numBlockEntries*2*Long.BYTES))
+                    throw new IOException(file + " has a damaged block after " + numRead + " entries");
+                
+                block.clear().limit(numBlockEntries*2*Long.BYTES);
+                if(inflater != null) {
+                    stored.clear().limit(storedBytes);
+                    readFully(channel, stored);
+                    inflater.reset();
+                    inflater.setInput(stored);
+                    try {
+                        while(block.hasRemaining() && !inflater.finished() && !inflater.needsInput()) {
+                            inflater.inflate(block);
+                        }
+                    } catch (DataFormatException ex) {
+                        throw new IOException(file + " has a damaged block after " + numRead + " entries", ex);
+                    }
+                    if(block.hasRemaining())
+                        throw new IOException(file + " has a damaged block after " + numRead + " entries");
+                    block.flip();
+                } else {
+                    // The stored entries are the entries
+                    readFully(channel, block);
+                }
+                
+                crc.reset();
+                crc.update(block);
+                block.rewind();
+                if((int)crc.getValue() != checksum)
+                    throw new IOException(file + " has a damaged block after " + numRead + " entries");
+                
+                if(sameGeometry) {
+                    tt.storeSlots(numRead, block.asLongBuffer());
+                    numValid += numBlockValid;
+                } else {
+                    while(block.hasRemaining()) {
+                        long xoredKey = block.getLong();
+                        long entry = block.getLong();
+                        if(!TT.extractIsValidEntry(entry))
+                            continue;
+                        
+                        tt.storeEntry(xoredKey, entry);
+                        numValid++;
+                    }
+                }
+                numRead += numBlockEntries;
+            }
+        } catch (IOException ex) {
+            Logger.getLogger(TTFile.class.getName()).log(Level.WARNING, "Keeping the " + numValid + " entries read", ex);
+        } finally {
+            if(inflater != null)
+                inflater.end();
+        }
+        return numValid;
+    }
+    
+    /**
+     * Check if file starts like a binary dump, whatever its version.
+     * 
+     * @param file The file to check.
+     * @return True if the file starts with the magic number, false otherwise.
+     */
+    public static boolean isBinaryDump(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, magic);
+            return magic.getLong(0) == MAGIC;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Channel helpers                                                        //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Fill the remaining bytes of buffer from channel.
+     * 
+     * @param channel The channel to read from.
+     * @param buffer The buffer to fill.
+     * @throws IOException If the channel can't be read or ends before.
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            if(channel.read(buffer) < 0)
+                throw new EOFException("Unexpected end of the binary TT dump");
+        }
+        buffer.flip();
+    }
+    
+    /**
+     * Write the remaining bytes of buffer to channel.
+     * 
+     * @param channel The channel to write to.
+     * @param buffer The buffer to write.
+     * @throws IOException If the channel can't be written.
+     */
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
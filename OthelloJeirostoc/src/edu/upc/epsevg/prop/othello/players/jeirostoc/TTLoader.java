@@ -0,0 +1,168 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Task that fills a transposition table from the stored files, preferring the
+ * binary format of TTFile over the text one. It can run in a background
+ * thread while the table is already being used by the searches: every entry
+ * is checked against its key when it is read, so a partially filled table
+ * just has less hits.
+ * 
+ * @author raul
+ * @author josep
+ */
+class TTLoader implements Runnable {
+    /**
+     * The table to fill.
+     */
+    private final TT _tt;
+    
+    /**
+     * The file in the binary format.
+     */
+    private final Path _binaryFile;
+    
+    /**
+     * The file in the text format.
+     */
+    private final Path _textFile;
+    
+    /**
+     * The channel of the file being read or null if no file has been opened.
+     */
+    private volatile FileChannel _channel;
+    
+    /**
+     * The size of the file being read in bytes.
+     */
+    private volatile long _size;
+    
+    /**
+     * Latch released once the loading has finished.
+     */
+    private final CountDownLatch _finished;
+    
+    /**
+     * Constructor of a loader of tt from the given files.
+     * 
+     * @param tt The table to fill.
+     * @param binaryFile The file in the binary format.
+     * @param textFile The file in the text format.
+     */
+    TTLoader(TT tt, Path binaryFile, Path textFile) {
+        _tt = tt;
+        _binaryFile = binaryFile;
+        _textFile = textFile;
+        _channel = null;
+        _size = 1;
+        _finished = new CountDownLatch(1);
+    }
+    
+    /**
+     * Fill the table from the binary file or, if it doesn't exist or can't be
+     * read, from the text file.
+     */
+    @Override
+    public void run() {
+        try {
+            if (Files.exists(_binaryFile) && loadBinary())
+                return;
+            if (Files.exists(_textFile)) {
+                loadText();
+            } else {
+                Logger.getLogger(TTLoader.class.getName()).log(Level.WARNING, "Could not find the TT table!");
+            }
+        } finally {
+            _finished.countDown();
+        }
+    }
+    
+    /**
+     * Fill the table from the binary file.
+     * 
+     * @return True if the file has been read, false if it can't be used.
+     */
+    private boolean loadBinary() {
+        try (FileChannel channel = FileChannel.open(_binaryFile, StandardOpenOption.READ)) {
+            open(channel);
+            TTFile.read(_tt, channel, _binaryFile);
+            return true;
+        } catch (IOException ex) {
+            Logger.getLogger(TTLoader.class.getName()).log(Level.SEVERE, "Could not read the binary TT table", ex);
+            return false;
+        }
+    }
+    
+    /**
+     * Fill the table from the text file.
+     */
+    private void loadText() {
+        try (FileChannel channel = FileChannel.open(_textFile, StandardOpenOption.READ)) {
+            open(channel);
+            _tt.fill(new BufferedReader(Channels.newReader(channel, StandardCharsets.US_ASCII)));
+        } catch (IOException ex) {
+            Logger.getLogger(TTLoader.class.getName()).log(Level.SEVERE, "Could not read the TT table", ex);
+        }
+    }
+    
+    /**
+     * Start following the progress of the read of channel.
+     * 
+     * @param channel The channel of the file being read.
+     * @throws IOException If the size of the file can't be read.
+     */
+    private void open(FileChannel channel) throws IOException {
+        _size = Math.max(1, channel.size());
+        _channel = channel;
+    }
+    
+    /**
+     * Get the fraction of the file read so far.
+     * 
+     * @return A value from 0 to 1, which is 1 once the loading has finished.
+     */
+    float getProgress() {
+        if (isDone())
+            return 1;
+        
+        FileChannel channel = _channel;
+        if (channel == null)
+            return 0;
+        try {
+            return Math.min(1, (float)channel.position()/_size);
+        } catch (IOException ex) {
+            // The channel has been closed, the file has been read
+            return 1;
+        }
+    }
+    
+    /**
+     * Check if the loading has finished.
+     * 
+     * @return True if it has finished, false otherwise.
+     */
+    boolean isDone() {
+        return _finished.getCount() == 0;
+    }
+    
+    /**
+     * Wait for the loading to finish.
+     * 
+     * @throws InterruptedException If the thread is interrupted while
+     * waiting.
+     */
+    void awaitDone() throws InterruptedException {
+        _finished.await();
+    }
+}
@@ -0,0 +1,222 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Pool of transposition tables reused across players and games, so creating
+ * players in a loop doesn't allocate a new table for each one. The tables are
+ * keyed by the heuristic version and their size and kind, and a table
+ * released by a player is handed to the next one asking for the same key. If
+ * the new player evaluates the statuses with the same settings the entries
+ * are kept and start a new generation, otherwise the table is cleared in
+ * parallel. Players with the same settings can also share a table while they
+ * use it. The released tables are only kept while the players ask for their
+ * key: creating a table of another key drops them, so the pool never holds
+ * more than the tables of a single key besides the ones in use.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TTPool {
+    /**
+     * A table of the pool.
+     */
+    private static class PooledTable {
+        /**
+         * The table.
+         */
+        final TT _tt;
+        
+        /**
+         * The key of the heuristic version, size and kind of the table.
+         */
+        final String _tableKey;
+        
+        /**
+         * The key of the evaluation settings of the last players of the table.
+         */
+        String _settingsKey;
+        
+        /**
+         * The number of players using the table.
+         */
+        int _numUsers;
+        
+        /**
+         * Constructor of a pooled table.
+         * 
+         * @param tt The table.
+         * @param tableKey The key of the heuristic version, size and kind of
+         * the table.
+         */
+        PooledTable(TT tt, String tableKey) {
+            _tt = tt;
+            _tableKey = tableKey;
+            _settingsKey = null;
+            _numUsers = 0;
+        }
+    }
+    
+    /**
+     * The released tables by table key.
+     */
+    private static final Map<String, ArrayDeque<PooledTable>> _free = new HashMap<>();
+    
+    /**
+     * The shared tables in use by table and settings key.
+     */
+    private static final Map<String, PooledTable> _shared = new HashMap<>();
+    
+    /**
+     * The tables in use.
+     */
+    private static final Map<TT, PooledTable> _inUse = new IdentityHashMap<>();
+    
+    /**
+     * Private constructor, the pool is only used through its static methods.
+     */
+    private TTPool() {}
+    
+    /**
+     * Get the key of the tables of the current heuristic version with the
+     * given storage.
+     * 
+     * @param storageSize The number of longs of the storage of the tables.
+     * @param offHeap True if the tables are stored out of the Java heap.
+     * @return The table key.
+     */
+    static String tableKey(long storageSize, boolean offHeap) {
+        return Status.HEURISTIC_VER + ";" + storageSize + ";" + (offHeap ? "offHeap" : "heap");
+    }
+    
+    /**
+     * Get the key of the given evaluation settings of Status.
+     * 
+     * @param stableScoreConfig The score of each stable position.
+     * @param diskScoresConfig The scores for having captured each position.
+     * @param neighborScoresConfig The scores for having each position as a
+     * neighbor.
+     * @return The settings key.
+     */
+    static String settingsKey(float stableScoreConfig, float[] diskScoresConfig, float[] neighborScoresConfig) {
+        return stableScoreConfig + ";" + Arrays.toString(diskScoresConfig) + ";" + Arrays.toString(neighborScoresConfig);
+    }
+    
+    /**
+     * Get a table for a player. If share is set and there is a table in use
+     * with the same keys, it is shared. Otherwise a released table with the
+     * same table key is reused, preferring one with the same settings, or a
+     * new one is created with factory, dropping the released tables of other
+     * table keys. The table has to be released once the
+     * player doesn't use it anymore.
+     * 
+     * @param tableKey The key of the heuristic version, size and kind of the
+     * table.
+     * @param settingsKey The key of the evaluation settings of the player.
+     * @param share True to share the table with the players in use with the
+     * same settings.
+     * @param factory The creator of a new table.
+     * @return The table, which is warm if its entries have been kept.
+     */
+    static synchronized TT acquire(String tableKey, String settingsKey, boolean share, Supplier<TT> factory) {
+        String sharedKey = tableKey + ";" + settingsKey;
+        if(share) {
+            PooledTable shared = _shared.get(sharedKey);
+            if(shared != null) {
+                shared._numUsers++;
+                return shared._tt;
+            }
+        }
+        
+        PooledTable pooled = takeFree(tableKey, settingsKey);
+        if(pooled == null) {
+            // Free the memory of the tables nobody asks for before allocating
+            _free.clear();
+            pooled = new PooledTable(factory.get(), tableKey);
+        }
+        pooled._settingsKey = settingsKey;
+        pooled._numUsers = 1;
+        _inUse.put(pooled._tt, pooled);
+        if(share) {
+            _shared.put(sharedKey, pooled);
+        }
+        return pooled._tt;
+    }
+    
+    /**
+     * Take a released table with the given table key and prepare it for a
+     * player with the given settings.
+     * 
+     * @param tableKey The key of the heuristic version, size and kind of the
+     * table.
+     * @param settingsKey The key of the evaluation settings of the player.
+     * @return The table or null if there is no released table with the key.
+     */
+    private static PooledTable takeFree(String tableKey, String settingsKey) {
+        ArrayDeque<PooledTable> free = _free.get(tableKey);
+        if(free == null || free.isEmpty())
+            return null;
+        
+        // Keep the entries of a table with the same settings
+        for (Iterator<PooledTable> it = free.iterator(); it.hasNext();) {
+            PooledTable pooled = it.next();
+            if(pooled._settingsKey.equals(settingsKey)) {
+                it.remove();
+                pooled._tt.recycle();
+                return pooled;
+            }
+        }
+        
+        // The entries of other settings have other heuristics
+        PooledTable pooled = free.pop();
+        pooled._tt.reset();
+        return pooled;
+    }
+    
+    /**
+     * Release a table got from acquire. Once every player sharing it has
+     * released it, it can be handed to another player. Tables that weren't
+     * got from the pool are ignored.
+     * 
+     * @param tt The table.
+     */
+    static synchronized void release(TT tt) {
+        PooledTable pooled = _inUse.get(tt);
+        if(pooled == null)
+            return;
+        
+        pooled._numUsers--;
+        if(0 < pooled._numUsers)
+            return;
+        
+        _inUse.remove(tt);
+        _shared.values().remove(pooled);
+        _free.computeIfAbsent(pooled._tableKey, k -> new ArrayDeque<>()).push(pooled);
+    }
+    
+    /**
+     * Get the number of released tables kept by the pool.
+     * 
+     * @return The number of released tables.
+     */
+    public static synchronized int getNumFreeTables() {
+        int numFree = 0;
+        for (ArrayDeque<PooledTable> free : _free.values()) {
+            numFree += free.size();
+        }
+        return numFree;
+    }
+    
+    /**
+     * Drop the released tables, so their memory can be reclaimed.
+     */
+    public static synchronized void clear() {
+        _free.clear();
+    }
+}
@@ -0,0 +1,460 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.stream.LongStream;
+
+/**
+ * Array of longs backing a transposition table, indexed with a long so it can
+ * hold more than 2^31 elements when the backend allows it.
+ * 
+ * @author raul
+ * @author josep
+ */
+public abstract class TTStorage {
+    /**
+     * Get the number of longs of the storage.
+     * 
+     * @return The number of longs.
+     */
+    public abstract long size();
+    
+    /**
+     * Get the long at index.
+     * 
+     * @param index The index of the long.
+     * @return The long.
+     */
+    public abstract long get(long index);
+    
+    /**
+     * Set the long at index.
+     * 
+     * @param index The index of the long.
+     * @param value The new value.
+     */
+    public abstract void set(long index, long value);
+    
+    /**
+     * Number of longs of each range cleared in parallel by clear.
+     */
+    private static final long CLEAR_RANGE_SIZE = 1 << 20;
+    
+    /**
+     * Set every long of the storage to 0, splitting it in ranges cleared in 
+     * parallel.
+     */
+    public void clear() {
+        long numRanges = (size() + CLEAR_RANGE_SIZE - 1)/CLEAR_RANGE_SIZE;
+        LongStream.range(0, numRanges).parallel().forEach(range -> {
+            long from = range*CLEAR_RANGE_SIZE;
+            clear(from, Math.min(size(), from + CLEAR_RANGE_SIZE));
+        });
+    }
+    
+    /**
+     * Set the longs from index from to index to, excluded, to 0.
+     * 
+     * @param from The index of the first long.
+     * @param to The index after the last long.
+     */
+    protected void clear(long from, long to) {
+        for (long i = from; i < to; i++) {
+            set(i, 0);
+        }
+    }
+    
+    /**
+     * Copy the longs of other, which must have the same size, to this
+     * storage.
+     * 
+     * @param other The storage to copy from.
+     */
+    public void copyFrom(TTStorage other) {
+        for (long i = 0; i < size(); i++) {
+            set(i, other.get(i));
+        }
+    }
+    
+    /**
+     * Copy the remaining longs of src to the storage from index on, leaving 
+     * the position of src at its limit. It sets them one by one by default.
+     * 
+     * @param index The index of the first long to set.
+     * @param src The longs to copy.
+     */
+    public void put(long index, LongBuffer src) {
+        while(src.hasRemaining()) {
+            set(index++, src.get());
+        }
+    }
+    
+    /**
+     * Copy the remaining longs of src to chunks from index on with a bulk 
+     * copy per chunk, leaving the position of src at its limit.
+     * 
+     * @param chunks The chunks of a power of 2 longs.
+     * @param chunkShift Log2 of the number of longs of a chunk.
+     * @param index The index of the first long to set.
+     * @param src The longs to copy.
+     */
+    static void put(LongBuffer[] chunks, int chunkShift, long index, LongBuffer src) {
+        long chunkMask = (1L << chunkShift) - 1;
+        while(src.hasRemaining()) {
+            LongBuffer chunk = chunks[(int)(index >>> chunkShift)];
+            int offset = (int)(index & chunkMask);
+            int length = (int)Math.min(src.remaining(), (1L << chunkShift) - offset);
+            chunk.put(offset, src, src.position(), length);
+            src.position(src.position() + length);
+            index += length;
+        }
+    }
+    
+    /**
+     * Write the longs to their persistent support, if the storage has one. It
+     * does nothing by default.
+     */
+    public void force() {}
+    
+    /**
+     * Check if the longs have been kept from a previous use of the storage.
+     * It is false by default.
+     * 
+     * @return True if the longs are the ones of a previous use, false if they
+     * started set to 0.
+     */
+    public boolean isReused() {
+        return false;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Backends                                                               //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Storage in a long[] of the Java heap. It is limited to 2^31 - 1 longs.
+     */
+    public static class Heap extends TTStorage {
+        /**
+         * The longs.
+         */
+        private final long[] _data;
+        
+        /**
+         * Constructor of a storage of size longs set to 0.
+         * 
+         * @param size The number of longs.
+         */
+        public Heap(long size) {
+            if(Integer.MAX_VALUE < size)
+                throw new IllegalArgumentException("A heap storage can't hold " + size + " longs, use an off-heap one");
+            _data = new long[(int)size];
+        }
+        
+        @Override
+        public long size() {
+            return _data.length;
+        }
+        
+        @Override
+        public long get(long index) {
+            return _data[(int)index];
+        }
+        
+        @Override
+        public void set(long index, long value) {
+            _data[(int)index] = value;
+        }
+        
+        @Override
+        protected void clear(long from, long to) {
+            Arrays.fill(_data, (int)from, (int)to, 0);
+        }
+        
+        @Override
+        public void put(long index, LongBuffer src) {
+            src.get(_data, (int)index, src.remaining());
+        }
+    }
+    
+    /**
+     * Storage in direct buffers out of the Java heap, so the garbage collector
+     * doesn't have to deal with it. As a buffer is limited to 2^31 - 1 bytes,
+     * the longs are split in chunks of a power of 2 longs, each one aligned
+     * to a cache line. Huge pages are used if the operating system gives
+     * them to large anonymous mappings (transparent huge pages).
+     * <p>
+     * The direct buffers are limited by -XX:MaxDirectMemorySize, which is as
+     * large as the maximum heap size (-Xmx) by default, so tables larger than
+     * the heap need the flag set to their size or more. Otherwise the 
+     * allocation fails with an OutOfMemoryError.
+     */
+    public static class Direct extends TTStorage {
+        /**
+         * Default log2 of the number of longs of a chunk: 2^27 longs, 1 GB.
+         */
+        static final int DEF_CHUNK_SHIFT = 27;
+        
+        /**
+         * The alignment of the chunks, the size of a cache line.
+         */
+        private static final int ALIGNMENT = 64;
+        
+        /**
+         * The number of longs.
+         */
+        private final long _size;
+        
+        /**
+         * Log2 of the number of longs of a chunk.
+         */
+        private final int _chunkShift;
+        
+        /**
+         * Mask to get the index of a long inside its chunk.
+         */
+        private final long _chunkMask;
+        
+        /**
+         * The chunks.
+         */
+        private final LongBuffer[] _chunks;
+        
+        /**
+         * Constructor of a storage of size longs set to 0.
+         * 
+         * @param size The number of longs.
+         */
+        public Direct(long size) {
+            this(size, DEF_CHUNK_SHIFT);
+        }
+        
+        /**
+         * Constructor of a storage of size longs set to 0 with a custom chunk
+         * size.
+         * 
+         * @param size The number of longs.
+         * @param chunkShift Log2 of the number of longs of a chunk, at most 27.
+         */
+        Direct(long size, int chunkShift) {
+            _size = size;
+            _chunkShift = chunkShift;
+            _chunkMask = (1L << chunkShift) - 1;
+            
+            int numChunks = (int)((size + _chunkMask) >>> chunkShift);
+            _chunks = new LongBuffer[numChunks];
+            for (int i = 0; i < numChunks; i++) {
+                long chunkSize = Math.min(1L << chunkShift, size - ((long)i << chunkShift));
+                // The aligned slice ends at an aligned address, so the chunk
+                // is allocated rounded up to the alignment
+                int chunkBytes = (int)((chunkSize*Long.BYTES + ALIGNMENT - 1) & -ALIGNMENT);
+                _chunks[i] = ByteBuffer.allocateDirect(chunkBytes + ALIGNMENT)
+                        .alignedSlice(ALIGNMENT)
+                        .order(ByteOrder.nativeOrder())
+                        .asLongBuffer();
+            }
+        }
+        
+        @Override
+        public long size() {
+            return _size;
+        }
+        
+        @Override
+        public long get(long index) {
+            return _chunks[(int)(index >>> _chunkShift)].get((int)(index & _chunkMask));
+        }
+        
+        @Override
+        public void set(long index, long value) {
+            _chunks[(int)(index >>> _chunkShift)].put((int)(index & _chunkMask), value);
+        }
+        
+        @Override
+        public void put(long index, LongBuffer src) {
+            put(_chunks, _chunkShift, index, src);
+        }
+    }
+    
+    /**
+     * Storage in a file mapped to memory, so the longs survive the process 
+     * and a new one starts with them without reading the whole file: the 
+     * pages are loaded on demand and the writes go to the file through the
+     * page cache. The file starts with a header of a cache line with a magic 
+     * number, the number of longs and the layout of its owner, and it is 
+     * replaced by a new file set to 0 if any of them doesn't match, so the 
+     * tables that still map the old one are not affected. The longs are 
+     * mapped in chunks of a power of 2 longs, as a mapping is limited to 
+     * 2^31 - 1 bytes.
+     */
+    public static class Mapped extends TTStorage {
+        /**
+         * Magic number at the start of the file ("JTTMAP01").
+         */
+        static final long MAGIC = 0x4a54544d41503031L;
+        
+        /**
+         * The size of the header in bytes.
+         */
+        private static final int HEADER_BYTES = 64;
+        
+        /**
+         * The number of longs.
+         */
+        private final long _size;
+        
+        /**
+         * Log2 of the number of longs of a chunk.
+         */
+        private final int _chunkShift;
+        
+        /**
+         * Mask to get the index of a long inside its chunk.
+         */
+        private final long _chunkMask;
+        
+        /**
+         * The mapping of the header.
+         */
+        private final MappedByteBuffer _header;
+        
+        /**
+         * The mappings of the chunks.
+         */
+        private final MappedByteBuffer[] _mappings;
+        
+        /**
+         * The chunks.
+         */
+        private final LongBuffer[] _chunks;
+        
+        /**
+         * If the longs have been kept from the file.
+         */
+        private final boolean _reused;
+        
+        /**
+         * Constructor of a storage of size longs mapped to file. The file is
+         * created if it doesn't exist or replaced if it has another size or
+         * layout.
+         * 
+         * @param file The file to map.
+         * @param size The number of longs.
+         * @param layout A value that identifies how the owner lays out the 
+         * longs, so a file written with another layout is replaced.
+         * @throws IOException If the file can't be opened, mapped or replaced.
+         */
+        public Mapped(Path file, long size, long layout) throws IOException {
+            this(file, size, layout, Direct.DEF_CHUNK_SHIFT);
+        }
+        
+        /**
+         * Constructor of a storage of size longs mapped to file with a custom
+         * chunk size.
+         * 
+         * @param file The file to map.
+         * @param size The number of longs.
+         * @param layout A value that identifies how the owner lays out the 
+         * longs, so a file written with another layout is replaced.
+         * @param chunkShift Log2 of the number of longs of a chunk, at most 27.
+         * @throws IOException If the file can't be opened, mapped or replaced.
+         */
+        Mapped(Path file, long size, long layout, int chunkShift) throws IOException {
+            _size = size;
+            _chunkShift = chunkShift;
+            _chunkMask = (1L << chunkShift) - 1;
+            
+            // Check the header of the file, if there is one
+            boolean matches = false;
+            if(Files.exists(file)) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+                    while(header.hasRemaining() && 0 <= channel.read(header)) {}
+                    matches = !header.hasRemaining() && 
+                              HEADER_BYTES + size*Long.BYTES <= channel.size() &&
+                              header.getLong(0)  == MAGIC && 
+                              header.getLong(8)  == size && 
+                              header.getLong(16) == layout;
+                }
+            }
+            _reused = matches;
+            
+            // Other tables may have the file mapped, so it isn't cleared in 
+            // place: a new file is mapped and then replaces it, and the old
+            // mappings keep the old file until they are dropped
+            Path mappedFile = matches ? file : Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                // The mappings stay valid once the channel is closed
+                try (FileChannel channel = FileChannel.open(mappedFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                    _header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES);
+                    _header.order(ByteOrder.LITTLE_ENDIAN);
+                    
+                    // Map the chunks, which extends the file with zeros if needed
+                    int numChunks = (int)((size + _chunkMask) >>> chunkShift);
+                    _mappings = new MappedByteBuffer[numChunks];
+                    _chunks = new LongBuffer[numChunks];
+                    for (int i = 0; i < numChunks; i++) {
+                        long chunkStart = (long)i << chunkShift;
+                        long chunkSize = Math.min(1L << chunkShift, size - chunkStart);
+                        _mappings[i] = channel.map(FileChannel.MapMode.READ_WRITE, HEADER_BYTES + chunkStart*Long.BYTES, chunkSize*Long.BYTES);
+                        _chunks[i] = _mappings[i].order(ByteOrder.LITTLE_ENDIAN).asLongBuffer();
+                    }
+                }
+                
+                // Write the header once the file has its final size
+                if(!matches) {
+                    _header.putLong(8, size);
+                    _header.putLong(16, layout);
+                    _header.putLong(0, MAGIC);
+                    _header.force();
+                    Files.move(mappedFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                }
+            } catch (IOException ex) {
+                if(!matches)
+                    Files.deleteIfExists(mappedFile);
+                throw ex;
+            }
+        }
+        
+        @Override
+        public long size() {
+            return _size;
+        }
+        
+        @Override
+        public long get(long index) {
+            return _chunks[(int)(index >>> _chunkShift)].get((int)(index & _chunkMask));
+        }
+        
+        @Override
+        public void set(long index, long value) {
+            _chunks[(int)(index >>> _chunkShift)].put((int)(index & _chunkMask), value);
+        }
+        
+        @Override
+        public void put(long index, LongBuffer src) {
+            put(_chunks, _chunkShift, index, src);
+        }
+        
+        @Override
+        public void force() {
+            for (MappedByteBuffer mapping : _mappings) {
+                mapping.force();
+            }
+        }
+        
+        @Override
+        public boolean isReused() {
+            return _reused;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Time manager that allocates the time of each move of a player based on the
+ * game phase and the remaining movements, and decides if the next iteration
+ * of an iterative deepening search can finish within it. Without a game time
+ * nor a move time limit the time of the moves is only bounded by the external
+ * timeout. The times are read from a clock in nanoseconds, System.nanoTime()
+ * by default, that the cancellation tokens of the moves share.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TimeManager {
+    ////////////////////////////////////////////////////////////////////////////
+    // Default values                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default time in milliseconds kept aside from the move time limit to
+     * return the movement.
+     */
+    public static final long SAFETY_MARGIN_DEFAULT = 50;
+    
+    /**
+     * Number of movements of the game until which it is in the opening.
+     */
+    private static final int OPENING_END = 12;
+    
+    /**
+     * Number of movements of the game from which it is in the endgame.
+     */
+    private static final int ENDGAME_START = 44;
+    
+    /**
+     * Share of the time of a move given to the moves in the opening.
+     */
+    private static final double OPENING_WEIGHT = 0.6;
+    
+    /**
+     * Share of the time of a move given to the moves in the midgame.
+     */
+    private static final double MIDGAME_WEIGHT = 1.4;
+    
+    /**
+     * Share of the time of a move given to the moves in the endgame.
+     */
+    private static final double ENDGAME_WEIGHT = 1.0;
+    
+    /**
+     * Times the allocated time of a move a search is allowed to overrun it
+     * before being cancelled.
+     */
+    private static final double HARD_LIMIT_FACTOR = 2.0;
+    
+    /**
+     * Branching factor assumed when there are not enough iterations to
+     * observe it.
+     */
+    private static final double DEFAULT_BRANCHING_FACTOR = 4.0;
+    
+    /**
+     * Maximum branching factor taken into account.
+     */
+    private static final double MAX_BRANCHING_FACTOR = 16.0;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Budget                                                                 //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The remaining time of the player in the game in milliseconds or -1 if
+     * there is no game time.
+     */
+    private long _gameTime;
+    
+    /**
+     * The maximum time of a move in milliseconds or -1 if there is no limit.
+     */
+    private long _moveTimeLimit;
+    
+    /**
+     * The time in milliseconds kept aside from the move time limit.
+     */
+    private long _safetyMargin;
+    
+    /**
+     * The clock the times are read from, in nanoseconds.
+     */
+    private LongSupplier _clock;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Current move                                                           //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The value of the clock when the current move started.
+     */
+    private long _moveStart;
+    
+    /**
+     * The nanoseconds allocated to the current move.
+     */
+    private long _allocated;
+    
+    /**
+     * The nanoseconds after which the searches of the current move are
+     * cancelled.
+     */
+    private long _hardLimit;
+    
+    /**
+     * The nanoseconds since the move start at which the last iteration was
+     * completed.
+     */
+    private long _lastCompletion;
+    
+    /**
+     * The nanoseconds the last completed iteration took.
+     */
+    private long _lastIterationTime;
+    
+    /**
+     * The nanoseconds the iteration before the last completed one took.
+     */
+    private long _prevIterationTime;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Default constructor, without game time nor move time limit.
+     */
+    public TimeManager() {
+        _gameTime = -1;
+        _moveTimeLimit = -1;
+        _safetyMargin = SAFETY_MARGIN_DEFAULT;
+        _clock = System::nanoTime;
+        startMove(0);
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Getters and setters                                                    //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Set the remaining time of the player in the game. It is reduced by the
+     * time taken by each move.
+     * 
+     * @param millis The remaining time in milliseconds or -1 to disable it.
+     */
+    public synchronized void setGameTime(long millis) {
+        _gameTime = millis;
+    }
+    
+    /**
+     * Get the remaining time of the player in the game.
+     * 
+     * @return The remaining time in milliseconds or -1 if it is disabled.
+     */
+    public synchronized long getGameTime() {
+        return _gameTime;
+    }
+    
+    /**
+     * Set the maximum time of a move, usually the external timeout.
+     * 
+     * @param millis The maximum time in milliseconds or -1 to disable it.
+     */
+    public synchronized void setMoveTimeLimit(long millis) {
+        _moveTimeLimit = millis;
+    }
+    
+    /**
+     * Set the time kept aside from the move time limit to return the movement.
+     * 
+     * @param millis The time in milliseconds.
+     */
+    public synchronized void setSafetyMargin(long millis) {
+        _safetyMargin = Math.max(0, millis);
+    }
+    
+    /**
+     * Set the clock the times are read from. The current move is restarted.
+     * 
+     * @param clock The clock in nanoseconds.
+     */
+    synchronized void setClock(LongSupplier clock) {
+        _clock = clock;
+        startMove(0);
+    }
+    
+    /**
+     * Get the clock the times are read from, to create the cancellation 
+     * tokens of the moves with it.
+     * 
+     * @return The clock in nanoseconds.
+     */
+    synchronized LongSupplier getClock() {
+        return _clock;
+    }
+    
+    /**
+     * Get the time allocated to the current move.
+     * 
+     * @return The allocated time in nanoseconds or Long.MAX_VALUE if it is
+     * unbounded.
+     */
+    public synchronized long getAllocatedTime() {
+        return _allocated;
+    }
+    
+    /**
+     * Get the value of the clock after which the searches of the current move
+     * have to be cancelled.
+     * 
+     * @return The deadline or 0 if there is none.
+     */
+    public synchronized long getHardDeadline() {
+        return _hardLimit == Long.MAX_VALUE ? 0 : _moveStart + _hardLimit;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Move lifecycle                                                         //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Start a move and allocate its time.
+     * 
+     * @param s The status the move is made from.
+     */
+    public synchronized void startMove(Status s) {
+        startMove(s.getNumMovements());
+    }
+    
+    /**
+     * Register that an iteration of the iterative deepening search of the
+     * current move has been completed.
+     */
+    public synchronized void iterationCompleted() {
+        long now = _clock.getAsLong() - _moveStart;
+        _prevIterationTime = _lastIterationTime;
+        _lastIterationTime = now - _lastCompletion;
+        _lastCompletion = now;
+    }
+    
+    /**
+     * Check if the next iteration of the iterative deepening search is
+     * predicted to finish within the allocated time, taking its cost as the
+     * cost of the last iteration times the observed branching factor.
+     * 
+     * @return True if it can be started, false otherwise.
+     */
+    public synchronized boolean canStartIteration() {
+        if(_allocated == Long.MAX_VALUE)
+            return true;
+        
+        long elapsed = _clock.getAsLong() - _moveStart;
+        return elapsed + predictNextIterationTime() <= _allocated;
+    }
+    
+    /**
+     * End the current move, discounting its time from the game time.
+     */
+    public synchronized void endMove() {
+        if(0 <= _gameTime) {
+            long elapsed = (_clock.getAsLong() - _moveStart)/1000000;
+            _gameTime = Math.max(0, _gameTime - elapsed);
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Internal functions                                                     //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Start a move and allocate its time.
+     * 
+     * @param numMovements The number of movements made in the game.
+     */
+    private void startMove(int numMovements) {
+        _moveStart = _clock.getAsLong();
+        _lastCompletion = 0;
+        _lastIterationTime = 0;
+        _prevIterationTime = 0;
+        
+        // Split the game time between the remaining moves of the player
+        double allocated = Double.MAX_VALUE;
+        if(0 <= _gameTime) {
+            int remainingMoves = Math.max(1, ((Status.SIZE*Status.SIZE - 4) - numMovements + 1)/2);
+            allocated = phaseWeight(numMovements)*_gameTime/remainingMoves;
+            allocated = Math.min(allocated, _gameTime - _safetyMargin);
+        }
+        
+        // Limit it to the move time limit
+        double limit = Double.MAX_VALUE;
+        if(0 <= _moveTimeLimit) {
+            limit = _moveTimeLimit - _safetyMargin;
+            allocated = Math.min(allocated, limit);
+        }
+        
+        if(allocated == Double.MAX_VALUE) {
+            _allocated = Long.MAX_VALUE;
+            _hardLimit = Long.MAX_VALUE;
+        } else {
+            allocated = Math.max(0, allocated);
+            _allocated = (long)(allocated*1000000);
+            _hardLimit = (long)(Math.min(HARD_LIMIT_FACTOR*allocated, limit)*1000000);
+            if(0 <= _gameTime) {
+                _hardLimit = Math.min(_hardLimit, Math.max(0, _gameTime - _safetyMargin)*1000000);
+            }
+        }
+    }
+    
+    /**
+     * Get the share of the time of a move given to a move of the game phase.
+     * 
+     * @param numMovements The number of movements made in the game.
+     * @return The share of the time.
+     */
+    private static double phaseWeight(int numMovements) {
+        if(numMovements < OPENING_END)
+            return OPENING_WEIGHT;
+        if(numMovements < ENDGAME_START)
+            return MIDGAME_WEIGHT;
+        return ENDGAME_WEIGHT;
+    }
+    
+    /**
+     * Predict the time of the next iteration.
+     * 
+     * @return The predicted time in nanoseconds.
+     */
+    private long predictNextIterationTime() {
+        double branchingFactor = DEFAULT_BRANCHING_FACTOR;
+        if(0 < _prevIterationTime) {
+            branchingFactor = (double)_lastIterationTime/_prevIterationTime;
+            branchingFactor = Math.max(1, Math.min(MAX_BRANCHING_FACTOR, branchingFactor));
+        }
+        return (long)(_lastIterationTime*branchingFactor);
+    }
+}
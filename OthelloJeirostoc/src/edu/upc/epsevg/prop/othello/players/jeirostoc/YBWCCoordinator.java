@@ -0,0 +1,401 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.ArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coordinator of a young brothers wait concept (YBWC) search. Once the first
+ * child of a node has been searched, the searcher that owns it can publish the
+ * node as a split point, and the idle workers help it by searching its
+ * remaining children. A cutoff at a split point aborts all the searches below
+ * it. All the bookkeeping of the split points is guarded by the monitor of the
+ * coordinator.
+ * 
+ * @author raul
+ * @author josep
+ */
+class YBWCCoordinator {
+    ////////////////////////////////////////////////////////////////////////////
+    // Split point class                                                      //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * A node whose remaining children are searched by several workers at the
+     * same time. The movements are handed out one by one and the results are
+     * merged into the bounds of the node, which the next movements are
+     * searched with.
+     */
+    static class SplitPoint {
+        /**
+         * The split point the owner of this one was helping or null if it was
+         * not helping any.
+         */
+        final SplitPoint parent;
+        
+        /**
+         * The status of the node, which must not change while it is split.
+         */
+        final Status node;
+        
+        /**
+         * The depth of the node in the search.
+         */
+        final int currentDepth;
+        
+        /**
+         * The depth at which the nodes of this branch are evaluated.
+         */
+        final int maxDepth;
+        
+        /**
+         * True if the heuristic of the node has to be maximized, false if it
+         * has to be minimized.
+         */
+        final boolean isMax;
+        
+        /**
+         * The ordered movements of the node, expressed in the form SIZE*x + y.
+         */
+        final byte[] moves;
+        
+        /**
+         * The number of movements of the node.
+         */
+        final int numMoves;
+        
+        /**
+         * The index of the next movement to hand out.
+         */
+        int nextMove;
+        
+        /**
+         * The lower bound of the node.
+         */
+        float alpha;
+        
+        /**
+         * The upper bound of the node.
+         */
+        float beta;
+        
+        /**
+         * The best movement found.
+         */
+        byte selectedMove;
+        
+        /**
+         * Indicates if the merged results are exact.
+         */
+        boolean isExact;
+        
+        /**
+         * The movement that caused the cutoff or -1 if there has been none.
+         */
+        byte cutoffMove;
+        
+        /**
+         * The number of searchers working at the split point, including the
+         * owner.
+         */
+        int workers;
+        
+        /**
+         * Indicates if the searches of the split point have to stop because
+         * of a cutoff.
+         */
+        private volatile boolean _aborted;
+        
+        /**
+         * The amount of nodes whose heuristic was computed by the helpers.
+         */
+        long nodesWithComputedHeuristic;
+        
+        /**
+         * The maximum depth reached by the helpers.
+         */
+        int depthReached;
+        
+        /**
+         * The amount of moves searched with a late move reduction by the
+         * helpers.
+         */
+        long lmrReductions;
+        
+        /**
+         * The amount of reduced moves that the helpers had to search again at
+         * full depth.
+         */
+        long lmrReSearches;
+        
+        /**
+         * The amount of internal iterative deepening searches made by the
+         * helpers.
+         */
+        long iidSearches;
+        
+        /**
+         * The amount of movements deferred by the helpers because other
+         * threads were searching them.
+         */
+        long abdadaDeferrals;
+        
+        /**
+         * Constructor of a split point.
+         * 
+         * @param parent The split point the owner was helping or null.
+         * @param node The status of the node.
+         * @param currentDepth The depth of the node in the search.
+         * @param maxDepth The depth at which the nodes of this branch are
+         * evaluated.
+         * @param isMax True if the heuristic has to be maximized.
+         * @param moves The ordered movements of the node.
+         * @param numMoves The number of movements of the node.
+         * @param nextMove The index of the first movement not searched yet.
+         * @param alpha The lower bound.
+         * @param beta The upper bound.
+         * @param selectedMove The best movement found so far.
+         * @param isExact True if the results so far are exact.
+         */
+        SplitPoint(SplitPoint parent, Status node, int currentDepth, int maxDepth, boolean isMax, byte[] moves, int numMoves, int nextMove, float alpha, float beta, byte selectedMove, boolean isExact) {
+            this.parent = parent;
+            this.node = node;
+            this.currentDepth = currentDepth;
+            this.maxDepth = maxDepth;
+            this.isMax = isMax;
+            this.moves = moves;
+            this.numMoves = numMoves;
+            this.nextMove = nextMove;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.selectedMove = selectedMove;
+            this.isExact = isExact;
+            this.cutoffMove = -1;
+            this.workers = 1;
+            this._aborted = false;
+        }
+        
+        /**
+         * Merge the heuristic of a child into the bounds of the node, aborting
+         * the split point if it causes a cutoff. It must be called with the
+         * monitor of the coordinator held.
+         * 
+         * @param move The movement of the child.
+         * @param heuristic The heuristic of the child.
+         * @param exact True if the heuristic of the child is exact.
+         */
+        void merge(byte move, float heuristic, boolean exact) {
+            if(isMax && alpha < heuristic) {
+                alpha = heuristic;
+                selectedMove = move;
+            } else if(!isMax && heuristic < beta) {
+                beta = heuristic;
+                selectedMove = move;
+            }
+            
+            isExact = isExact && exact;
+            
+            if(beta <= alpha && !_aborted) {
+                cutoffMove = move;
+                isExact = false;
+                _aborted = true;
+            }
+        }
+        
+        /**
+         * Check if the searches of the split point have to stop because of a
+         * cutoff in it or in any of its ancestors.
+         * 
+         * @return True if they have to stop, false otherwise.
+         */
+        boolean isAborted() {
+            for (SplitPoint sp = this; sp != null; sp = sp.parent) {
+                if(sp._aborted)
+                    return true;
+            }
+            return false;
+        }
+        
+        /**
+         * Check if there are movements left to hand out.
+         * 
+         * @return True if there are, false otherwise.
+         */
+        boolean hasWork() {
+            return nextMove < numMoves && !isAborted();
+        }
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Search variables                                                       //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * The split points with movements left to hand out.
+     */
+    private final ArrayList<SplitPoint> _splitPoints = new ArrayList<>();
+    
+    /**
+     * The number of workers waiting for a split point to help.
+     */
+    private volatile int _idleWorkers;
+    
+    /**
+     * Indicates if the search has finished and the workers have to return.
+     */
+    private boolean _finished;
+    
+    /**
+     * The player's color.
+     */
+    private final int _playerColor;
+    
+    /**
+     * Transposition table.
+     */
+    private final TT _tt;
+    
+    /**
+     * The tunable parameters of the search.
+     */
+    private final SearchConfig _config;
+    
+    /**
+     * The token to stop the search.
+     */
+    private final CancellationToken _cancelToken;
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Constructor                                                            //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Constructor of the coordinator of a search.
+     * 
+     * @param playerColor The player's color.
+     * @param tt A reference to the transposition table to use.
+     * @param config The tunable parameters of the search.
+     * @param cancelToken The token to stop the search.
+     */
+    YBWCCoordinator(int playerColor, TT tt, SearchConfig config, CancellationToken cancelToken) {
+        _idleWorkers = 0;
+        _finished = false;
+        _playerColor = playerColor;
+        _tt = tt;
+        _config = config;
+        _cancelToken = cancelToken;
+    }
+    
+    ////////////////////////////////////////////////////////////////////////////
+    // Split points                                                           //
+    ////////////////////////////////////////////////////////////////////////////
+    
+    /**
+     * Check if a node is worth splitting: it is deep enough and there is an
+     * idle worker to help.
+     * 
+     * @param depthRemaining The remaining depth of the node.
+     * @return True if it can be split, false otherwise.
+     */
+    boolean canSplit(int depthRemaining) {
+        return _config.getYBWCMinSplitDepth() <= depthRemaining && 0 < _idleWorkers;
+    }
+    
+    /**
+     * Publish a split point so the idle workers can help it, search it with
+     * its owner and wait until all the helpers have finished.
+     * 
+     * @param owner The searcher that owns the node.
+     * @param sp The split point.
+     */
+    void split(RunnableFutureMiniMax owner, SplitPoint sp) {
+        synchronized(this) {
+            _splitPoints.add(sp);
+            notifyAll();
+        }
+        
+        owner.searchSplitPoint(sp);
+        
+        synchronized(this) {
+            _splitPoints.remove(sp);
+            sp.workers--;
+            while(0 < sp.workers) {
+                try {
+                    wait();
+                } catch (InterruptedException ex) {
+                    Logger.getLogger(YBWCCoordinator.class.getName()).log(Level.SEVERE, null, ex);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Help the split points of the search until it finishes.
+     * 
+     * @param scratch The scratch structures owned by the worker.
+     */
+    void help(SearchScratch scratch) {
+        while(true) {
+            SplitPoint sp = null;
+            synchronized(this) {
+                _idleWorkers++;
+                while(!_finished && (sp = findSplitPoint()) == null) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ex) {
+                        _finished = true;
+                    }
+                }
+                _idleWorkers--;
+                if(_finished)
+                    return;
+                sp.workers++;
+            }
+            
+            RunnableFutureMiniMax helper = new RunnableFutureMiniMax(
+                sp.maxDepth,
+                _playerColor,
+                _tt,
+                sp.node,
+                true,
+                _config,
+                _cancelToken,
+                scratch
+            );
+            helper.setYBWCCoordinator(this);
+            try {
+                helper.searchSplitPoint(sp);
+            } finally {
+                synchronized(this) {
+                    helper.addStatisticsTo(sp);
+                    sp.workers--;
+                    notifyAll();
+                }
+            }
+        }
+    }
+    
+    /**
+     * Make the workers return once they finish their current search.
+     */
+    synchronized void finish() {
+        _finished = true;
+        notifyAll();
+    }
+    
+    /**
+     * Find the split point with movements left and most remaining depth. It
+     * must be called with the monitor of the coordinator held.
+     * 
+     * @return The split point or null if there is none.
+     */
+    private SplitPoint findSplitPoint() {
+        SplitPoint best = null;
+        for (SplitPoint sp : _splitPoints) {
+            if(sp.hasWork() && (best == null || best.maxDepth - best.currentDepth < sp.maxDepth - sp.currentDepth)) {
+                best = sp;
+            }
+        }
+        return best;
+    }
+}
@@ -162,6 +162,20 @@ public class ZobristKeyGen {
                                                                      bp.v;
     }
     
+    /**
+     * Get a fingerprint of the Zobrist values, to check that the data that 
+     * depends on them was generated with the same ones.
+     * 
+     * @return The fingerprint.
+     */
+    public static long getFingerprint() {
+        long fingerprint = 0;
+        for (long value : VALUES) {
+            fingerprint = 31*fingerprint + value;
+        }
+        return fingerprint;
+    }
+    
     /**
      * Dumps all zobrist keys to the opening book.
      * 
@@ -0,0 +1,127 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the ABDADA search.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class ABDADATest {
+    /**
+     * Check that the in-progress markers of the transposition table count the
+     * searches of each status.
+     */
+    @Test
+    public void testInProgressMarkers() {
+        TT tt = new TT(1 << 10);
+        Status[] positions = PositionSuite.generate(PositionSuite.DEFAULT_SEED, 2, 4, 4);
+        
+        assertFalse(tt.isBeingSearched(positions[0]));
+        tt.startSearch(positions[0]);
+        tt.startSearch(positions[0]);
+        assertTrue(tt.isBeingSearched(positions[0]));
+        tt.endSearch(positions[0]);
+        assertTrue(tt.isBeingSearched(positions[0]));
+        tt.endSearch(positions[0]);
+        assertFalse(tt.isBeingSearched(positions[0]));
+    }
+    
+    /**
+     * Check that a movement being searched by another thread is deferred and
+     * that a single thread never defers.
+     */
+    @Test
+    public void testDeferral() {
+        Status s = PositionSuite.generate()[2];
+        SearchConfig config = new SearchConfig();
+        config.setABDADA(true);
+        config.setIIDMinDepth(SearchConfig.MAX_DEPTH + 1);
+        
+        // Alone
+        TT tt = new TT(1 << 16);
+        RunnableFutureMiniMax search = new RunnableFutureMiniMax(4, s.getCurrentPlayerColor(), tt, s, true, config);
+        search.run();
+        RunnableFutureMiniMax.Result alone;
+        try {
+            alone = search.get();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        assertEquals(0, alone.abdadaDeferrals);
+        
+        // With every child of the root marked as being searched except the
+        // first one
+        tt = new TT(1 << 16);
+        byte[] moves = new byte[Status.SIZE*Status.SIZE];
+        int numMoves = s.getNextMoves(moves);
+        Status[] children = new Status[numMoves];
+        for (int i = 0; i < numMoves; i++) {
+            children[i] = new Status(s);
+            children[i].movePiece(moves[i]);
+            tt.startSearch(children[i]);
+        }
+        search = new RunnableFutureMiniMax(4, s.getCurrentPlayerColor(), tt, s, true, config);
+        search.run();
+        RunnableFutureMiniMax.Result deferred;
+        try {
+            deferred = search.get();
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        }
+        
+        assertTrue(0 < deferred.abdadaDeferrals);
+        assertEquals(alone.lastSelectedHeuristic, deferred.lastSelectedHeuristic, 0);
+    }
+    
+    /**
+     * Print the time and the nodes to complete a depth on the position suite 
+     * with ABDADA and with the LazySMP schedule from 1 to the number of 
+     * available processors.
+     */
+    @Test
+    public void testSpeedupAgainstLazySMP() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig lazySMP = new SearchConfig();
+        SearchConfig abdada = new SearchConfig();
+        abdada.setABDADA(true);
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        
+        // Warm up
+        PositionSuite.sharedSearch(positions, 6, abdada, maxThreads, new LazySMPPolicy.Uniform());
+        
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+            long start = System.nanoTime();
+            long[] lazySMPStats = PositionSuite.sharedSearch(positions, 8, lazySMP, numThreads, new LazySMPPolicy.Staggered());
+            long lazySMPTime = System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            long[] abdadaStats = PositionSuite.sharedSearch(positions, 8, abdada, numThreads, new LazySMPPolicy.Uniform());
+            long abdadaTime = System.nanoTime() - start;
+            
+            System.out.println(numThreads + " threads: LazySMP " + lazySMPTime/1000000 + " ms, " + lazySMPStats[0] + " nodes; " + 
+                               "ABDADA " + abdadaTime/1000000 + " ms, " + abdadaStats[0] + " nodes, " + abdadaStats[1] + " deferrals");
+        }
+    }
+    
+    /**
+     * Check that the player returns a movement within the move time limit.
+     */
+    @Test
+    public void testPlayerMove() {
+        PlayerIDABDADA p = new PlayerIDABDADA(1 << 16);
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            gs.movePiece(m.getTo());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the Jamboree search.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class JamboreeTest {
+    /**
+     * Check that testing the younger brothers with null windows in parallel
+     * gives the same heuristics as the sequential search.
+     */
+    @Test
+    public void testSameHeuristicAsSequential() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        config.setLateMoveReductions(SearchConfig.generateNoReductionTable());
+        config.setIIDMinDepth(SearchConfig.MAX_DEPTH + 1);
+        config.setJamboreeSerialDepth(1);
+        
+        RunnableFutureMiniMax.Result[] sequential = PositionSuite.coldSearch(positions, 5, config);
+        JamboreeSearch[] parallel = PositionSuite.jamboreeSearch(positions, 5, config, 4);
+        
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(sequential[i].lastSelectedHeuristic, parallel[i].getSelectedHeuristic(), 0);
+            byte move = parallel[i].getSelectedMovement();
+            assertTrue(positions[i].canMovePiece(move/Status.SIZE, move%Status.SIZE));
+            assertTrue(0 < parallel[i].getNullWindowTests());
+        }
+    }
+    
+    /**
+     * Check that cancelling a token cancels the tokens created from it, but
+     * not the other way around.
+     */
+    @Test
+    public void testCancellationPropagates() {
+        CancellationToken root = new CancellationToken();
+        CancellationToken child = new CancellationToken(root);
+        CancellationToken grandchild = new CancellationToken(child);
+        CancellationToken sibling = new CancellationToken(root);
+        
+        child.cancel();
+        assertTrue(grandchild.isCancelled());
+        assertFalse(root.isCancelled());
+        assertFalse(sibling.isCancelled());
+        
+        root.cancel();
+        assertTrue(sibling.isCancelled());
+    }
+    
+    /**
+     * Check that a cancelled search returns no result.
+     */
+    @Test
+    public void testCancelledSearch() {
+        Status s = PositionSuite.generate()[0];
+        CancellationToken cancelToken = new CancellationToken();
+        cancelToken.cancel();
+        JamboreeSearch search = new JamboreeSearch(new TT(1 << 16), new SearchConfig(), s.getCurrentPlayerColor(), cancelToken, ThreadLocal.withInitial(SearchScratch::new));
+        
+        assertNull(search.search(ForkJoinPool.commonPool(), s, 8));
+    }
+    
+    /**
+     * Print the time to search the position suite to a fixed depth from 1 to
+     * the number of available processors.
+     */
+    @Test
+    public void testSpeedupPositionSuite() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        
+        // Warm up
+        PositionSuite.jamboreeSearch(positions, 6, config, maxThreads);
+        
+        long baseline = 0;
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+            long start = System.nanoTime();
+            JamboreeSearch[] searches = PositionSuite.jamboreeSearch(positions, 8, config, numThreads);
+            long elapsed = System.nanoTime() - start;
+            
+            long nodes = 0;
+            long reSearches = 0;
+            for (JamboreeSearch search : searches) {
+                assertTrue(search.getSelectedMovement() != -1);
+                nodes += search.getNodesWithComputedHeuristic();
+                reSearches += search.getReSearches();
+            }
+            if(numThreads == 1) {
+                baseline = elapsed;
+            }
+            System.out.println(numThreads + " threads: " + elapsed/1000000 + " ms, " + nodes + " nodes, " + reSearches + " re-searches, speedup " + String.format("%.2f", (double)baseline/elapsed));
+        }
+    }
+    
+    /**
+     * Check that the player returns a movement within the move time limit.
+     */
+    @Test
+    public void testPlayerMove() {
+        PlayerIDJamboree p = new PlayerIDJamboree(1 << 16, 4);
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            gs.movePiece(m.getTo());
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the policies to diversify the LazySMP workers.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class LazySMPPolicyTest {
+    /**
+     * Check that the first worker goes through every depth and the first
+     * helpers go through the even and the odd depths.
+     */
+    @Test
+    public void testSkipTable() {
+        LazySMPPolicy policy = new LazySMPPolicy.SkipTable();
+        
+        int depth = policy.getFirstDepth(0, 4);
+        for (int expected = 1; expected <= 8; expected++) {
+            assertEquals(expected, depth);
+            depth = policy.getNextDepth(0, 4, depth);
+        }
+        
+        assertEquals(2, policy.getFirstDepth(1, 4));
+        assertEquals(4, policy.getNextDepth(1, 4, 2));
+        assertEquals(1, policy.getFirstDepth(2, 4));
+        assertEquals(3, policy.getNextDepth(2, 4, 1));
+        
+        for (int worker = 1; worker < 40; worker++) {
+            for (depth = 0; depth < 20; depth++) {
+                assertTrue(depth < policy.getNextDepth(worker, 40, depth));
+            }
+        }
+    }
+    
+    /**
+     * Check that the perturbed policy keeps the first worker ordered, gives a
+     * different seed to each helper and that shuffling keeps the movements
+     * before the start in place.
+     */
+    @Test
+    public void testPerturbation() {
+        LazySMPPolicy policy = new LazySMPPolicy.Perturbed(new LazySMPPolicy.Staggered(), 7);
+        assertEquals(0, policy.getOrderSeed(0));
+        assertTrue(policy.getOrderSeed(1) != 0);
+        assertTrue(policy.getOrderSeed(1) != policy.getOrderSeed(2));
+        assertEquals(2, policy.getFirstDepth(2, 4));
+        assertFalse(policy.getRegularOrder(1));
+        
+        byte[] moves = {10, 11, 12, 13, 14, 15, 16, 17};
+        MoveOrdering.shuffle(moves, moves.length, 1, new Random(3));
+        assertEquals(10, moves[0]);
+        boolean[] seen = new boolean[moves.length];
+        for (byte move : moves) {
+            assertFalse(seen[move - 10]);
+            seen[move - 10] = true;
+        }
+    }
+    
+    /**
+     * Check that the movement with the most weighted votes is selected, with
+     * its deepest result, that won positions are not lost by the votes and
+     * that lost positions don't distort them.
+     */
+    @Test
+    public void testVoting() {
+        byte[] movements = {5, 9, 9, 5};
+        float[] heuristics = {1, 1, 1, 0};
+        int[] depths = {6, 7, 6, 0};
+        assertEquals(1, LazySMPPolicy.selectByVotes(movements, heuristics, depths, 4));
+        
+        depths = new int[]{0, 0, 0, 0};
+        assertEquals(-1, LazySMPPolicy.selectByVotes(movements, heuristics, depths, 4));
+        
+        heuristics = new float[]{Float.POSITIVE_INFINITY, 1, 1, Float.NEGATIVE_INFINITY};
+        depths = new int[]{6, 7, 7, 7};
+        assertEquals(0, LazySMPPolicy.selectByVotes(movements, heuristics, depths, 4));
+        
+        // A lost position doesn't outweigh the heuristics of the rest
+        movements = new byte[]{5, 9, 5};
+        heuristics = new float[]{10, 8, Float.NEGATIVE_INFINITY};
+        depths = new int[]{4, 9, 4};
+        assertEquals(0, LazySMPPolicy.selectByVotes(movements, heuristics, depths, 3));
+        
+        heuristics = new float[]{Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY};
+        assertEquals(1, LazySMPPolicy.selectByVotes(movements, heuristics, depths, 3));
+        
+        LazySMPPolicy policy = new LazySMPPolicy.Voting(new LazySMPPolicy.Perturbed(new LazySMPPolicy.SkipTable(), 7));
+        assertTrue(policy.getVoting());
+        assertTrue(policy.getOrderSeed(1) != 0);
+        assertFalse(new LazySMPPolicy.SkipTable().getVoting());
+    }
+    
+    /**
+     * Print the time to complete a fixed depth in the position suite with
+     * each policy and how often it selects the same movement as a single
+     * thread.
+     */
+    @Test
+    public void testBenchmarkPolicies() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        int numThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        int depth = 8;
+        
+        byte[] singleThread = new byte[positions.length];
+        PositionSuite.sharedSearch(positions, depth, config, 1, new LazySMPPolicy.Uniform(), singleThread);
+        
+        String[] names = {"staggered", "skip table", "perturbed", "voting"};
+        LazySMPPolicy[] policies = {
+            new LazySMPPolicy.Staggered(),
+            new LazySMPPolicy.SkipTable(),
+            new LazySMPPolicy.Perturbed(new LazySMPPolicy.SkipTable(), PositionSuite.DEFAULT_SEED),
+            new LazySMPPolicy.Voting(new LazySMPPolicy.Perturbed(new LazySMPPolicy.SkipTable(), PositionSuite.DEFAULT_SEED))
+        };
+        
+        for (int p = 0; p < policies.length; p++) {
+            byte[] selected = new byte[positions.length];
+            long start = System.nanoTime();
+            long[] stats = PositionSuite.sharedSearch(positions, depth, config, numThreads, policies[p], selected);
+            long elapsed = System.nanoTime() - start;
+            
+            int agreements = 0;
+            for (int i = 0; i < positions.length; i++) {
+                assertTrue(positions[i].canMovePiece(selected[i]/Status.SIZE, selected[i]%Status.SIZE));
+                if(selected[i] == singleThread[i]) {
+                    agreements++;
+                }
+            }
+            System.out.println(names[p] + ": " + elapsed/1000000 + " ms to depth " + depth + ", " + stats[0] + " nodes, " + agreements + "/" + positions.length + " agreements");
+        }
+    }
+    
+    /**
+     * Check that the player returns legal movements with a custom policy.
+     */
+    @Test
+    public void testPlayerWithPolicy() {
+        PlayerIDLazySMP p = new PlayerIDLazySMP(1 << 16);
+        p.setLazySMPPolicy(new LazySMPPolicy.Voting(new LazySMPPolicy.Perturbed(new LazySMPPolicy.SkipTable(), 1)));
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            gs.movePiece(m.getTo());
+        }
+    }
+}
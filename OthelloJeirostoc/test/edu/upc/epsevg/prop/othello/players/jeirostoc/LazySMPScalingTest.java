@@ -0,0 +1,107 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.io.FileWriter;
+import java.util.TreeSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the number of threads of the LazySMP players and how the search
+ * scales with it.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class LazySMPScalingTest {
+    /**
+     * Check that the players search with the configured number of threads.
+     */
+    @Test
+    public void testConfiguredNumThreads() {
+        PlayerIDLazySMP lazySMP = new PlayerIDLazySMP(1 << 16, 3);
+        assertEquals(3, lazySMP.getNumThreads());
+        assertEquals(Runtime.getRuntime().availableProcessors(), new PlayerIDLazySMP(1 << 16).getNumThreads());
+        assertEquals(2, new PlayerIDABDADA(1 << 16, 2).getNumThreads());
+        
+        // Every kind of constructor takes the number of threads
+        PlayerIDLazySMP[] players = {
+            new PlayerIDLazySMP((FileWriter)null, 2),
+            new PlayerID(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT, null, "", 1 << 16, 2),
+            new PlayerIDABDADA(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT, null, 1 << 16, 2)
+        };
+        for (PlayerIDLazySMP player : players) {
+            assertEquals(2, player.getNumThreads());
+            player.close();
+        }
+        PlayerIDMultiPV multiPV = new PlayerIDMultiPV((FileWriter)null, 2);
+        assertEquals(2, multiPV.getNumThreads());
+        multiPV.close();
+        PlayerIDYBWC ybwc = new PlayerIDYBWC(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT, null, 1 << 16, 2);
+        assertEquals(2, ybwc.getNumThreads());
+        ybwc.close();
+        PlayerIDJamboree jamboree = new PlayerIDJamboree((FileWriter)null, 2);
+        assertEquals(2, jamboree.getNumThreads());
+        jamboree.close();
+        
+        lazySMP.getTimeManager().setMoveTimeLimit(200);
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 3; i++) {
+            Move m = lazySMP.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            gs.movePiece(m.getTo());
+        }
+    }
+    
+    /**
+     * Print, for 1, 2, 4 and the number of available processors threads, the
+     * nodes per second, the time to complete a fixed depth in the position
+     * suite, the collisions in the transposition table per thousand nodes and
+     * how often the selected movement is the one of a single thread.
+     */
+    @Test
+    public void testScalingProfile() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        int depth = 8;
+        
+        TreeSet<Integer> threadCounts = new TreeSet<>();
+        threadCounts.add(1);
+        threadCounts.add(2);
+        threadCounts.add(4);
+        threadCounts.add(Runtime.getRuntime().availableProcessors());
+        
+        // Warm up
+        PositionSuite.sharedSearch(positions, 6, config, 2, new LazySMPPolicy.Staggered());
+        
+        byte[] singleThread = null;
+        for (int numThreads : threadCounts) {
+            byte[] selected = new byte[positions.length];
+            long start = System.nanoTime();
+            long[] stats = PositionSuite.sharedSearch(positions, depth, config, numThreads, new LazySMPPolicy.Staggered(), selected);
+            long elapsed = Math.max(1, System.nanoTime() - start);
+            if(singleThread == null) {
+                singleThread = selected;
+            }
+            
+            int agreements = 0;
+            for (int i = 0; i < positions.length; i++) {
+                assertTrue(positions[i].canMovePiece(selected[i]/Status.SIZE, selected[i]%Status.SIZE));
+                if(selected[i] == singleThread[i]) {
+                    agreements++;
+                }
+            }
+            
+            long nps = stats[0]*1000000000L/elapsed;
+            double collisionRate = 1000.0*stats[2]/Math.max(1, stats[0]);
+            System.out.println(
+                numThreads + " threads: " + nps + " nps, " +
+                elapsed/1000000 + " ms to depth " + depth + ", " +
+                String.format("%.3f", collisionRate) + " collisions per 1000 nodes, " +
+                agreements + "/" + positions.length + " same movement as 1 thread"
+            );
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the LazySMPWorkerPool and its use by PlayerIDLazySMP.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class LazySMPWorkerPoolTest {
+    /**
+     * Check that every worker executes each job once, with the same thread
+     * and scratch structures for all the jobs.
+     */
+    @Test
+    public void testWorkersReusedAcrossJobs() throws Exception {
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(4);
+        Thread[] threads = new Thread[pool.getNumThreads()];
+        SearchScratch[] scratches = new SearchScratch[pool.getNumThreads()];
+        
+        CountDownLatch done = pool.submit((i, scratch) -> {
+            threads[i] = Thread.currentThread();
+            scratches[i] = scratch;
+        });
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        
+        for (int j = 0; j < 3; j++) {
+            done = pool.submit((i, scratch) -> {
+                if(threads[i] != Thread.currentThread() || scratches[i] != scratch)
+                    throw new IllegalStateException();
+                threads[i] = Thread.currentThread();
+            });
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+        
+        for (int i = 0; i < threads.length; i++) {
+            assertNotNull(threads[i]);
+            assertNotNull(scratches[i]);
+            for (int k = 0; k < i; k++) {
+                assertTrue(threads[i] != threads[k]);
+                assertTrue(scratches[i] != scratches[k]);
+            }
+        }
+        
+        pool.close();
+    }
+    
+    /**
+     * Check that the latch of a job is not released until all the workers
+     * have finished it.
+     */
+    @Test
+    public void testLatchWaitsForAllWorkers() throws Exception {
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(2);
+        CountDownLatch release = new CountDownLatch(1);
+        
+        CountDownLatch done = pool.submit((i, scratch) -> {
+            if(i == 1) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        release.countDown();
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        
+        pool.close();
+    }
+    
+    /**
+     * Check that the player does not start new threads after the first move.
+     */
+    @Test
+    public void testPlayerKeepsThreads() {
+        PlayerIDLazySMP p = new PlayerIDLazySMP(1 << 16);
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        Move m = p.move(gs);
+        assertNotNull(m.getTo());
+        int threads = Thread.activeCount();
+        
+        for (int i = 0; i < 3; i++) {
+            gs.movePiece(m.getTo());
+            gs.movePiece(gs.getMoves().get(0));
+            m = p.move(gs);
+            assertNotNull(m.getTo());
+        }
+        
+        assertTrue(Thread.activeCount() <= threads);
+    }
+    
+    /**
+     * Check that the workers terminate once the pool is closed.
+     */
+    @Test
+    public void testCloseStopsWorkers() throws Exception {
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(3);
+        Thread[] threads = workerThreads(pool);
+        
+        pool.close();
+        for (Thread thread : threads) {
+            thread.join(10000);
+            assertFalse(thread.isAlive());
+        }
+    }
+    
+    /**
+     * Check that the workers terminate once the owner of the pool becomes
+     * unreachable without having been closed.
+     */
+    @Test
+    public void testUnreachableOwnerStopsWorkers() throws Exception {
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(2);
+        Thread[] threads = workerThreads(pool);
+        pool.closeWhenUnreachable(new Object());
+        pool = null;
+        
+        long deadline = System.currentTimeMillis() + 10000;
+        for (Thread thread : threads) {
+            while(thread.isAlive() && System.currentTimeMillis() < deadline) {
+                System.gc();
+                thread.join(50);
+            }
+            assertFalse(thread.isAlive());
+        }
+    }
+    
+    /**
+     * Get the threads of the workers of a pool.
+     * 
+     * @param pool The pool.
+     * @return The thread of each worker.
+     */
+    private static Thread[] workerThreads(LazySMPWorkerPool pool) throws InterruptedException {
+        Thread[] threads = new Thread[pool.getNumThreads()];
+        CountDownLatch done = pool.submit((i, scratch) -> threads[i] = Thread.currentThread());
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        return threads;
+    }
+}
@@ -0,0 +1,169 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.Arrays;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Move ordering tests.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class MoveOrderingTest {
+    /**
+     * Board with the corner (0, 0) and the C squares (0, 1) and (1, 0) 
+     * available for P1.
+     */
+    int[][] sampleBoard = {
+        { 0,  0,  0,  0,  0,  0,  0,  0},
+        { 0, -1, -1,  1,  0,  0,  0,  0},
+        { 0, -1,  1,  1,  0,  0,  0,  0},
+        { 1, -1,  1,  1,  1,  0,  0,  0},
+        { 0,  0,  1, -1,  1,  0,  0,  0},
+        { 0,  0,  0,  0,  0,  0,  0,  0},
+        { 0,  0,  0,  0,  0,  0,  0,  0},
+        { 0,  0,  0,  0,  0,  0,  0,  0}
+    };
+    
+    /**
+     * Check that the sorted moves are a permutation of the legal moves with 
+     * the given first move at the front.
+     */
+    @Test
+    public void testSortIsPermutationWithFirstAtFront() {
+        for (Status s : PositionSuite.generate()) {
+            byte[] moves = new byte[Status.SIZE*Status.SIZE];
+            int numMoves = s.getNextMoves(moves);
+            if (numMoves == 0)
+                continue;
+            
+            byte[] expected = Arrays.copyOf(moves, numMoves);
+            byte first = moves[numMoves-1];
+            
+            for (boolean fastestFirst : new boolean[] {false, true}) {
+                byte[] sorted = Arrays.copyOf(moves, moves.length);
+                MoveOrdering.sort(s, sorted, numMoves, first, fastestFirst, new int[numMoves], new Status(s));
+                
+                assertEquals(first, sorted[0]);
+                byte[] result = Arrays.copyOf(sorted, numMoves);
+                Arrays.sort(result);
+                Arrays.sort(expected);
+                assertArrayEquals(expected, result);
+            }
+        }
+    }
+    
+    /**
+     * Check that corners are explored first and C squares last.
+     */
+    @Test
+    public void testCornersFirstCSquaresLast() {
+        Status s = new Status(sampleBoard, Status.P1_BIT);
+        byte[] moves = new byte[Status.SIZE*Status.SIZE];
+        int numMoves = s.getNextMoves(moves);
+        MoveOrdering.sort(s, moves, numMoves, (byte)-1, false, new int[numMoves], new Status(s));
+        
+        assertEquals(10, numMoves);
+        assertEquals(0, moves[0]);
+        assertTrue(moves[numMoves-2] == 1 || moves[numMoves-2] == Status.SIZE);
+        assertTrue(moves[numMoves-1] == 1 || moves[numMoves-1] == Status.SIZE);
+    }
+    
+    /**
+     * Check that sorting the moves reduces the number of nodes needed to 
+     * complete the iterative deepening on the position suite.
+     */
+    @Test
+    public void testOrderingReducesNodesPositionSuite() {
+        Status[] positions = PositionSuite.generate();
+        
+        SearchConfig unordered = new SearchConfig();
+        unordered.setMoveOrdering(false);
+        unordered.setCounterMoves(false);
+        SearchConfig ordered = new SearchConfig();
+        ordered.setFastestFirstMinDepth(SearchConfig.MAX_DEPTH+1);
+        ordered.setCounterMoves(false);
+        SearchConfig fastestFirst = new SearchConfig();
+        fastestFirst.setCounterMoves(false);
+        
+        long[] unorderedNodes = PositionSuite.nodesPerDepth(positions, 7, unordered);
+        long[] orderedNodes = PositionSuite.nodesPerDepth(positions, 7, ordered);
+        long[] fastestFirstNodes = PositionSuite.nodesPerDepth(positions, 7, fastestFirst);
+        
+        System.out.println("Unordered:     " + Arrays.toString(unorderedNodes));
+        System.out.println("Static:        " + Arrays.toString(orderedNodes));
+        System.out.println("Fastest-first: " + Arrays.toString(fastestFirstNodes));
+        
+        assertTrue(Arrays.stream(orderedNodes).sum() < Arrays.stream(unorderedNodes).sum());
+        assertTrue(Arrays.stream(fastestFirstNodes).sum() < Arrays.stream(unorderedNodes).sum());
+    }
+    
+    /**
+     * Check that internal iterative deepening reduces the number of nodes of
+     * a search started with an empty transposition table.
+     */
+    @Test
+    public void testIIDReducesNodesColdSearch() {
+        Status[] positions = PositionSuite.generate();
+        
+        SearchConfig withoutIID = new SearchConfig();
+        withoutIID.setIIDMinDepth(SearchConfig.MAX_DEPTH+1);
+        SearchConfig withIID = new SearchConfig();
+        
+        RunnableFutureMiniMax.Result[] withoutIIDResults = PositionSuite.coldSearch(positions, 8, withoutIID);
+        RunnableFutureMiniMax.Result[] withIIDResults = PositionSuite.coldSearch(positions, 8, withIID);
+        
+        long withoutIIDNodes = 0, withIIDNodes = 0, iidSearches = 0;
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(0, withoutIIDResults[i].iidSearches);
+            withoutIIDNodes += withoutIIDResults[i].nodesWithComputedHeuristic;
+            withIIDNodes += withIIDResults[i].nodesWithComputedHeuristic;
+            iidSearches += withIIDResults[i].iidSearches;
+        }
+        
+        System.out.println("Without IID: " + withoutIIDNodes);
+        System.out.println("With IID:    " + withIIDNodes + " (" + iidSearches + " IID searches)");
+        
+        assertTrue(0 < iidSearches);
+        assertTrue(withIIDNodes < withoutIIDNodes);
+    }
+    
+    /**
+     * Check that the minimum remaining depth of internal iterative deepening
+     * is kept above its depth reduction.
+     */
+    @Test
+    public void testIIDMinDepthAboveReduction() {
+        SearchConfig config = new SearchConfig();
+        config.setIIDMinDepth(0);
+        assertEquals(config.getIIDReduction() + 1, config.getIIDMinDepth());
+        
+        config.setIIDReduction(5);
+        assertEquals(6, config.getIIDMinDepth());
+        config.setIIDMinDepth(SearchConfig.MAX_DEPTH + 1);
+        assertEquals(SearchConfig.MAX_DEPTH + 1, config.getIIDMinDepth());
+    }
+    
+    /**
+     * Check that exploring the counter-moves right after the transposition 
+     * table movement reduces the number of nodes needed to complete the 
+     * iterative deepening on the position suite.
+     */
+    @Test
+    public void testCounterMovesReduceNodesPositionSuite() {
+        Status[] positions = PositionSuite.generate();
+        
+        SearchConfig withoutCounterMoves = new SearchConfig();
+        withoutCounterMoves.setCounterMoves(false);
+        SearchConfig withCounterMoves = new SearchConfig();
+        
+        long[] withoutCounterMovesNodes = PositionSuite.nodesPerDepth(positions, 9, withoutCounterMoves);
+        long[] withCounterMovesNodes = PositionSuite.nodesPerDepth(positions, 9, withCounterMoves);
+        
+        System.out.println("Without counter-moves: " + Arrays.toString(withoutCounterMovesNodes));
+        System.out.println("With counter-moves:    " + Arrays.toString(withCounterMovesNodes));
+        
+        assertTrue(Arrays.stream(withCounterMovesNodes).sum() < Arrays.stream(withoutCounterMovesNodes).sum());
+    }
+}
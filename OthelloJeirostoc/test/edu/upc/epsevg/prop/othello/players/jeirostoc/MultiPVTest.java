@@ -0,0 +1,91 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the root movement scoring with multi-PV output.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class MultiPVTest {
+    /**
+     * Check that every movement of the root node is scored at the requested
+     * depth, that the scores are ranked and that the best one is the
+     * heuristic of the sequential search.
+     */
+    @Test
+    public void testScoresEveryRootMove() {
+        Status[] positions = PositionSuite.generate();
+        PlayerIDMultiPV p = new PlayerIDMultiPV(1 << 20, 4);
+        SearchConfig config = p.getSearchConfig();
+        config.setLateMoveReductions(SearchConfig.generateNoReductionTable());
+        config.setIIDMinDepth(SearchConfig.MAX_DEPTH + 1);
+        
+        RunnableFutureMiniMax.Result[] sequential = PositionSuite.coldSearch(positions, 5, config);
+        
+        for (int i = 0; i < positions.length; i++) {
+            p.searchRootMoves(positions[i], 5);
+            List<RootMoveScore> multiPV = p.getMultiPV();
+            
+            assertEquals(positions[i].getNumNextMoves(), multiPV.size());
+            assertEquals(sequential[i].lastSelectedHeuristic, multiPV.get(0).getHeuristic(), 0);
+            for (int j = 0; j < multiPV.size(); j++) {
+                RootMoveScore score = multiPV.get(j);
+                assertEquals(5, score.getDepth());
+                assertTrue(positions[i].canMovePiece(score.getPoint().x, score.getPoint().y));
+                if(0 < j) {
+                    assertTrue(score.getHeuristic() <= multiPV.get(j-1).getHeuristic());
+                }
+            }
+        }
+    }
+    
+    /**
+     * Print the time to score the root movements of the position suite at a
+     * shallow depth from 1 to the number of available processors.
+     */
+    @Test
+    public void testSpeedupShallowDepth() {
+        Status[] positions = PositionSuite.generate();
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        
+        long baseline = 0;
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+            PlayerIDMultiPV p = new PlayerIDMultiPV(1 << 20, numThreads);
+            long start = System.nanoTime();
+            for (Status s : positions) {
+                p.searchRootMoves(s, 5);
+            }
+            long elapsed = System.nanoTime() - start;
+            
+            if(numThreads == 1) {
+                baseline = elapsed;
+            }
+            System.out.println(numThreads + " threads: " + elapsed/1000000 + " ms, speedup " + String.format("%.2f", (double)baseline/elapsed));
+        }
+    }
+    
+    /**
+     * Check that the player returns the best ranked movement within the move
+     * time limit.
+     */
+    @Test
+    public void testPlayerMove() {
+        PlayerIDMultiPV p = new PlayerIDMultiPV(1 << 16, 4);
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            assertEquals(m.getTo(), p.getMultiPV().get(0).getPoint());
+            gs.movePiece(m.getTo());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.awt.Point;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the principal variation rebuilt from the transposition table.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PVTest {
+    /**
+     * Check that the line of every search of the position suite starts with
+     * the selected movement, is legal movement after movement and is not
+     * longer than the depth searched.
+     */
+    @Test
+    public void testLineIsLegal() {
+        for (Status position : PositionSuite.generate()) {
+            TT tt = new TT(1 << 20);
+            RunnableFutureMiniMax search = new RunnableFutureMiniMax(6, position.getCurrentPlayerColor(), tt, position, true, new SearchConfig());
+            search.run();
+            RunnableFutureMiniMax.Result result;
+            try {
+                result = search.get();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+            
+            byte[] line = tt.getPrincipalVariation(position, result.lastSelectedMovement, 6);
+            assertTrue(0 < line.length && line.length <= 6);
+            assertEquals(result.lastSelectedMovement, line[0]);
+            
+            Status s = new Status(position);
+            for (byte movement : line) {
+                if(movement == -1) {
+                    assertEquals(0, s.getNumNextMoves());
+                    s.skipTurn();
+                } else {
+                    assertTrue(s.canMovePiece(movement/Status.SIZE, movement%Status.SIZE));
+                    s.movePiece(movement);
+                }
+            }
+        }
+    }
+    
+    /**
+     * Check that the line stops when the table has no movement for a position
+     * and that its length is bounded.
+     */
+    @Test
+    public void testLineBounds() {
+        Status s = PositionSuite.generate()[0];
+        TT tt = new TT(1 << 10);
+        assertEquals(0, tt.getPrincipalVariation(s, (byte)-1, 10).length);
+        assertEquals(0, tt.getPrincipalVariation(s, (byte)-1, 0).length);
+        
+        byte[] moves = new byte[Status.SIZE*Status.SIZE];
+        s.getNextMoves(moves);
+        byte[] line = tt.getPrincipalVariation(s, moves[0], 10);
+        assertEquals(1, line.length);
+        assertEquals(moves[0], line[0]);
+    }
+    
+    /**
+     * Check that the player returns the line with its movement and writes it
+     * in the log.
+     */
+    @Test
+    public void testPlayerMove() {
+        PlayerID p = new PlayerID(1 << 16);
+        p.getTimeManager().setMoveTimeLimit(200);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertTrue(m instanceof PVMove);
+            List<Point> line = ((PVMove) m).getPrincipalVariation();
+            assertEquals(m.getTo(), line.get(0));
+            assertEquals(line.size(), p.getLastPrincipalVariation().length);
+            assertTrue(p.getLogLineLastSearch().contains(PlayerBase.principalVariationToString(p.getLastPrincipalVariation())));
+            gs.movePiece(m.getTo());
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.awt.Point;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the pondering of PlayerIDLazySMP.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PonderingTest {
+    /**
+     * Create a pondering player with a move time limit.
+     * 
+     * @return The player.
+     */
+    private PlayerIDLazySMP newPlayer() {
+        PlayerIDLazySMP p = new PlayerIDLazySMP(1 << 16);
+        p.getTimeManager().setMoveTimeLimit(300);
+        p.setPondering(true);
+        return p;
+    }
+    
+    /**
+     * Check that the predicted reply is pondered and that the next move 
+     * continues the pondering search.
+     */
+    @Test
+    public void testPonderingHit() {
+        PlayerIDLazySMP p = newPlayer();
+        GameStatus gs = new GameStatus();
+        Move m = p.move(gs);
+        gs.movePiece(m.getTo());
+        
+        GameStatus pondered = null;
+        for (Point reply : gs.getMoves()) {
+            GameStatus next = new GameStatus(gs);
+            next.movePiece(reply);
+            if (p.isPondering(new Status(next))) {
+                pondered = next;
+            }
+        }
+        
+        assertNotNull(pondered);
+        m = p.move(pondered);
+        assertNotNull(m.getTo());
+        assertTrue(pondered.canMove(m.getTo(), pondered.getCurrentPlayer()));
+        assertEquals(1, p.getPonderHits());
+        assertEquals(0, p.getPonderMisses());
+        p.stopPondering();
+    }
+    
+    /**
+     * Check that a position different from the pondered one cancels the 
+     * pondering search and is searched from scratch.
+     */
+    @Test
+    public void testPonderingMiss() {
+        PlayerIDLazySMP p = newPlayer();
+        GameStatus gs = new GameStatus();
+        p.move(gs);
+        
+        GameStatus other = new GameStatus();
+        other.movePiece(other.getMoves().get(0));
+        other.movePiece(other.getMoves().get(0));
+        assertFalse(p.isPondering(new Status(other)));
+        
+        Move m = p.move(other);
+        assertNotNull(m.getTo());
+        assertTrue(other.canMove(m.getTo(), other.getCurrentPlayer()));
+        assertEquals(0, p.getPonderHits());
+        assertEquals(1, p.getPonderMisses());
+        
+        p.setPondering(false);
+        assertFalse(p.getPondering());
+    }
+}
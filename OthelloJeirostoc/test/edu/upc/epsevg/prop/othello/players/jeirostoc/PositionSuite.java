@@ -0,0 +1,301 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Deterministic suite of positions to profile the search with.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class PositionSuite {
+    /**
+     * Seed of the default suite.
+     */
+    public static final long DEFAULT_SEED = 7;
+    
+    /**
+     * Generate the default suite of positions, spread from the opening to the
+     * endgame.
+     * 
+     * @return The positions.
+     */
+    public static Status[] generate() {
+        return generate(DEFAULT_SEED, 12, 8, 4);
+    }
+    
+    /**
+     * Generate a suite of positions by making random movements from the 
+     * starting board.
+     * 
+     * @param seed The seed of the random movements.
+     * @param numPositions The number of positions to generate.
+     * @param firstNumMovements The number of movements of the first position.
+     * @param movementsIncrement The increment in the number of movements from
+     * one position to the next one.
+     * @return The positions.
+     */
+    public static Status[] generate(long seed, int numPositions, int firstNumMovements, int movementsIncrement) {
+        Random r = new Random(seed);
+        Status[] positions = new Status[numPositions];
+        byte[] moves = new byte[Status.SIZE*Status.SIZE];
+        
+        for (int i = 0; i < numPositions; i++) {
+            Status s = new Status();
+            for (int m = 0; m < firstNumMovements + i*movementsIncrement && !s.isTerminal(); m++) {
+                int numMoves = s.getNextMoves(moves);
+                if (numMoves == 0) {
+                    s.skipTurn();
+                } else {
+                    s.movePiece(moves[r.nextInt(numMoves)]);
+                }
+            }
+            positions[i] = s;
+        }
+        
+        return positions;
+    }
+    
+    /**
+     * Search every position of the suite iteratively from depth 1 to maxDepth
+     * with a fresh transposition table per position and get the number of 
+     * nodes whose heuristic was computed to complete each depth.
+     * 
+     * @param positions The positions to search.
+     * @param maxDepth The maximum depth to search.
+     * @param config The config of the search.
+     * @return The number of nodes of each depth, indexed by depth.
+     */
+    public static long[] nodesPerDepth(Status[] positions, int maxDepth, SearchConfig config) {
+        long[] nodes = new long[maxDepth+1];
+        
+        for (Status s : positions) {
+            TT tt = new TT(1 << 20);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                RunnableFutureMiniMax search = new RunnableFutureMiniMax(depth, s.getCurrentPlayerColor(), tt, s, true, config);
+                search.run();
+                try {
+                    nodes[depth] += search.get().nodesWithComputedHeuristic;
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+        }
+        
+        return nodes;
+    }
+    
+    /**
+     * Search every position of the suite directly at the given depth with a 
+     * fresh transposition table per position, as it happens after the table 
+     * has been overwritten, and get the results of the searches.
+     * 
+     * @param positions The positions to search.
+     * @param depth The depth to search.
+     * @param config The config of the search.
+     * @return The results of the searches, indexed as the positions.
+     */
+    public static RunnableFutureMiniMax.Result[] coldSearch(Status[] positions, int depth, SearchConfig config) {
+        RunnableFutureMiniMax.Result[] results = new RunnableFutureMiniMax.Result[positions.length];
+        
+        for (int i = 0; i < positions.length; i++) {
+            Status s = positions[i];
+            RunnableFutureMiniMax search = new RunnableFutureMiniMax(depth, s.getCurrentPlayerColor(), new TT(1 << 20), s, true, config);
+            search.run();
+            try {
+                results[i] = search.get();
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        
+        return results;
+    }
+    
+    /**
+     * Search every position of the suite iteratively from depth 1 to maxDepth
+     * with the young brothers wait concept and a fresh transposition table 
+     * per position, and get the results of the last depth.
+     * 
+     * @param positions The positions to search.
+     * @param maxDepth The maximum depth to search.
+     * @param config The config of the search.
+     * @param numThreads The number of threads to search with.
+     * @return The results of the searches, indexed as the positions.
+     */
+    public static RunnableFutureMiniMax.Result[] ybwcSearch(Status[] positions, int maxDepth, SearchConfig config, int numThreads) {
+        RunnableFutureMiniMax.Result[] results = new RunnableFutureMiniMax.Result[positions.length];
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(numThreads);
+        
+        for (int i = 0; i < positions.length; i++) {
+            Status s = positions[i];
+            int index = i;
+            TT tt = new TT(1 << 20);
+            CancellationToken cancelToken = new CancellationToken();
+            YBWCCoordinator ybwc = new YBWCCoordinator(s.getCurrentPlayerColor(), tt, config, cancelToken);
+            CountDownLatch done = pool.submit((workerIndex, scratch) -> {
+                if(workerIndex != 0) {
+                    ybwc.help(scratch);
+                    return;
+                }
+                
+                try {
+                    for (int depth = 1; depth <= maxDepth; depth++) {
+                        RunnableFutureMiniMax search = new RunnableFutureMiniMax(depth, s.getCurrentPlayerColor(), tt, s, true, config, cancelToken, scratch);
+                        search.setYBWCCoordinator(ybwc);
+                        search.run();
+                        results[index] = search.get();
+                    }
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                } finally {
+                    ybwc.finish();
+                }
+            });
+            
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+        }
+        
+        pool.close();
+        return results;
+    }
+    
+    /**
+     * Search every position of the suite with several threads sharing a fresh
+     * transposition table per position until one of them completes maxDepth,
+     * and get the statistics of the completed tasks. The tasks of the threads
+     * are diversified with a LazySMP policy.
+     * 
+     * @param positions The positions to search.
+     * @param maxDepth The depth to complete.
+     * @param config The config of the search.
+     * @param numThreads The number of threads to search with.
+     * @param policy The policy to diversify the tasks of the threads with.
+     * @return The number of nodes whose heuristic was computed, the number of
+     * deferred movements and the number of collisions in the transposition
+     * tables, in this order.
+     */
+    public static long[] sharedSearch(Status[] positions, int maxDepth, SearchConfig config, int numThreads, LazySMPPolicy policy) {
+        return sharedSearch(positions, maxDepth, config, numThreads, policy, new byte[positions.length]);
+    }
+    
+    /**
+     * Search every position of the suite with several threads sharing a fresh
+     * transposition table per position until one of them completes maxDepth,
+     * and get the statistics of the completed tasks and the selected 
+     * movements. The tasks of the threads are diversified with a LazySMP 
+     * policy, which also decides how the selected movement is chosen.
+     * 
+     * @param positions The positions to search.
+     * @param maxDepth The depth to complete.
+     * @param config The config of the search.
+     * @param numThreads The number of threads to search with.
+     * @param policy The policy to diversify the tasks of the threads with.
+     * @param selectedMovements The array to store the selected movement of 
+     * each position in, indexed as the positions.
+     * @return The number of nodes whose heuristic was computed, the number of
+     * deferred movements and the number of collisions in the transposition
+     * tables, in this order.
+     */
+    public static long[] sharedSearch(Status[] positions, int maxDepth, SearchConfig config, int numThreads, LazySMPPolicy policy, byte[] selectedMovements) {
+        long[] stats = new long[3];
+        LazySMPWorkerPool pool = new LazySMPWorkerPool(numThreads);
+        
+        for (int i = 0; i < positions.length; i++) {
+            Status s = positions[i];
+            TT tt = new TT(1 << 20);
+            CancellationToken cancelToken = new CancellationToken();
+            byte[] movements = new byte[numThreads];
+            float[] heuristics = new float[numThreads];
+            int[] depths = new int[numThreads];
+            CountDownLatch done = pool.submit((workerIndex, scratch) -> {
+                int depth = policy.getFirstDepth(workerIndex, numThreads);
+                
+                while(true) {
+                    RunnableFutureMiniMax search = new RunnableFutureMiniMax(Math.min(depth, maxDepth), s.getCurrentPlayerColor(), tt, s, policy.getRegularOrder(workerIndex), config, cancelToken, scratch);
+                    search.setOrderSeed(policy.getOrderSeed(workerIndex));
+                    search.run();
+                    RunnableFutureMiniMax.Result result;
+                    try {
+                        result = search.get();
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                    if(result == null)
+                        return;
+                    
+                    synchronized(stats) {
+                        stats[0] += result.nodesWithComputedHeuristic;
+                        stats[1] += result.abdadaDeferrals;
+                        movements[workerIndex] = result.lastSelectedMovement;
+                        heuristics[workerIndex] = result.lastSelectedHeuristic;
+                        depths[workerIndex] = search.getMaxDepth();
+                    }
+                    if(maxDepth <= depth) {
+                        cancelToken.cancel();
+                        return;
+                    }
+                    depth = policy.getNextDepth(workerIndex, numThreads, depth);
+                }
+            });
+            
+            try {
+                done.await();
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            stats[2] += tt.getNumCollisions();
+            
+            // Select the movement of the deepest result or vote it
+            int selected = 0;
+            if(policy.getVoting()) {
+                selected = LazySMPPolicy.selectByVotes(movements, heuristics, depths, numThreads);
+            } else {
+                for (int j = 1; j < numThreads; j++) {
+                    if(depths[selected] < depths[j]) {
+                        selected = j;
+                    }
+                }
+            }
+            selectedMovements[i] = movements[selected];
+        }
+        
+        pool.close();
+        return stats;
+    }
+    
+    /**
+     * Search every position of the suite iteratively from depth 1 to maxDepth
+     * with Jamboree and a fresh transposition table per position, and get the
+     * searches of the last depth.
+     * 
+     * @param positions The positions to search.
+     * @param maxDepth The maximum depth to search.
+     * @param config The config of the search.
+     * @param numThreads The number of threads to search with.
+     * @return The searches, indexed as the positions.
+     */
+    public static JamboreeSearch[] jamboreeSearch(Status[] positions, int maxDepth, SearchConfig config, int numThreads) {
+        JamboreeSearch[] searches = new JamboreeSearch[positions.length];
+        ForkJoinPool pool = new ForkJoinPool(numThreads);
+        ThreadLocal<SearchScratch> scratch = ThreadLocal.withInitial(SearchScratch::new);
+        
+        for (int i = 0; i < positions.length; i++) {
+            Status s = positions[i];
+            TT tt = new TT(1 << 20);
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                searches[i] = new JamboreeSearch(tt, config, s.getCurrentPlayerColor(), new CancellationToken(), scratch);
+                searches[i].search(pool, s, depth);
+            }
+        }
+        
+        pool.shutdown();
+        return searches;
+    }
+}
@@ -0,0 +1,150 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the future semantics of RunnableFutureMiniMax.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class RunnableFutureMiniMaxTest {
+    /**
+     * Create a search of the given depth from a midgame position.
+     * 
+     * @param depth The depth of the search.
+     * @return The search.
+     */
+    private RunnableFutureMiniMax newSearch(int depth) {
+        return newSearch(depth, new CancellationToken());
+    }
+    
+    /**
+     * Create a search of the given depth from a midgame position that is
+     * stopped with the given token.
+     * 
+     * @param depth The depth of the search.
+     * @param cancelToken The token to stop the search.
+     * @return The search.
+     */
+    private RunnableFutureMiniMax newSearch(int depth, CancellationToken cancelToken) {
+        Status s = PositionSuite.generate(PositionSuite.DEFAULT_SEED, 1, 20, 0)[0];
+        return new RunnableFutureMiniMax(depth, s.getCurrentPlayerColor(), new TT(1 << 16), s, true, new SearchConfig(), cancelToken, new SearchScratch());
+    }
+    
+    /**
+     * Check that get blocks until a search running on another thread ends.
+     */
+    @Test
+    public void testGetWaitsForTheSearch() throws Exception {
+        RunnableFutureMiniMax search = newSearch(6);
+        Thread t = new Thread(search);
+        t.start();
+        
+        RunnableFutureMiniMax.Result result = search.get();
+        
+        assertNotNull(result);
+        assertTrue(search.isDone());
+        assertFalse(search.isCancelled());
+        assertEquals(0, search.getCancelLatency());
+        t.join();
+    }
+    
+    /**
+     * Check that get does not block on a search cancelled before starting and
+     * that the search does not run afterwards.
+     */
+    @Test
+    public void testCancelBeforeStart() throws Exception {
+        RunnableFutureMiniMax search = newSearch(6);
+        
+        assertTrue(search.cancel(false));
+        assertTrue(search.isDone());
+        assertTrue(search.isCancelled());
+        assertNull(search.get(1, TimeUnit.SECONDS));
+        
+        search.run();
+        assertNull(search.get());
+    }
+    
+    /**
+     * Check that the tasks copied from a search share its cancellation token.
+     */
+    @Test
+    public void testCancelReleasesCopies() throws Exception {
+        RunnableFutureMiniMax search = newSearch(6);
+        RunnableFutureMiniMax copy = new RunnableFutureMiniMax(search, 1);
+        
+        search.cancel(false);
+        
+        assertTrue(copy.isCancelled());
+        assertNull(copy.get(1, TimeUnit.SECONDS));
+    }
+    
+    /**
+     * Check that get with a timeout throws if a search does not end in time.
+     */
+    @Test
+    public void testGetTimeout() throws Exception {
+        RunnableFutureMiniMax search = newSearch(6);
+        
+        try {
+            search.get(10, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException ex) {}
+        
+        assertFalse(search.isDone());
+    }
+    
+    /**
+     * Check that a search returns at the poll of its token that finds the 
+     * deadline passed. The clock of the token advances a tick each time it is
+     * read, once per poll, so the latency is counted in polls, each one of 
+     * the cancel poll interval nodes, whatever the load of the machine.
+     */
+    @Test
+    public void testDeadlineLatency() throws Exception {
+        AtomicLong ticks = new AtomicLong();
+        CancellationToken token = new CancellationToken(ticks::incrementAndGet);
+        token.setDeadline(100);
+        RunnableFutureMiniMax search = newSearch(30, token);
+        
+        search.run();
+        
+        assertTrue(search.isCancelled());
+        assertNull(search.get());
+        
+        // No poll after the one at the deadline, only the read of the latency
+        assertEquals(101, ticks.get());
+        assertEquals(1, search.getCancelLatency());
+    }
+    
+    /**
+     * Check that a running search returns once it is cancelled from another
+     * thread and measures its latency. The clock of the token counts its 
+     * polls, so the search is known to be running before cancelling it.
+     */
+    @Test
+    public void testCancelLatency() throws Exception {
+        AtomicLong ticks = new AtomicLong();
+        CancellationToken token = new CancellationToken(ticks::incrementAndGet);
+        token.setDeadline(Long.MAX_VALUE);
+        RunnableFutureMiniMax search = newSearch(30, token);
+        Thread t = new Thread(search);
+        t.start();
+        while(ticks.get() < 100) {
+            Thread.onSpinWait();
+        }
+        
+        search.cancel(false);
+        
+        assertNull(search.get());
+        t.join();
+        assertTrue(search.isCancelled());
+        assertTrue(0 < search.getCancelLatency());
+    }
+}
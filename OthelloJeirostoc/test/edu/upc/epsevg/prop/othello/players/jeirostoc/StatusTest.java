@@ -340,6 +340,8 @@ public class StatusTest {
                 if(p != null) {
                     assertEquals(p.x, incremental.getLastMovement()/Status.SIZE);
                     assertEquals(p.y, incremental.getLastMovement()%Status.SIZE);
+                } else {
+                    assertEquals(-1, incremental.getLastMovement());
                 }
             }
         }
@@ -0,0 +1,358 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the binary dump of the transposition table.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TTFileTest {
+    /**
+     * Number of entries of the tables of the tests.
+     */
+    private static final int NUM_ENTRIES = 1 << 16;
+    
+    /**
+     * Get a table filled with the searches of the position suite.
+     * 
+     * @return The table.
+     */
+    private static TT searchedTable() {
+        TT tt = new TT(NUM_ENTRIES);
+        SearchConfig config = new SearchConfig();
+        for (Status s : PositionSuite.generate()) {
+            RunnableFutureMiniMax search = new RunnableFutureMiniMax(6, s.getCurrentPlayerColor(), tt, s, true, config);
+            search.run();
+        }
+        return tt;
+    }
+    
+    /**
+     * Get the number of valid entries of tt, checking that they are stored in
+     * the same slots of expected.
+     * 
+     * @param expected The table with the expected entries.
+     * @param tt The table to check.
+     * @return The number of valid entries.
+     */
+    private static long assertSameEntries(TT expected, TT tt) {
+        long numValid = 0;
+        for (long slot = 0; slot < expected.getNumEntries(); slot++) {
+            assertEquals(expected.getSlotEntry(slot), tt.getSlotEntry(slot));
+            assertEquals(expected.getSlotXoredKey(slot), tt.getSlotXoredKey(slot));
+            if(TT.extractIsValidEntry(expected.getSlotEntry(slot)))
+                numValid++;
+        }
+        return numValid;
+    }
+    
+    /**
+     * Check that a table written with and without compression is read back 
+     * with the same entries.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        TT tt = searchedTable();
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            for (boolean compress : new boolean[]{false, true}) {
+                long written = TTFile.write(tt, file, compress);
+                assertTrue(TTFile.isBinaryDump(file));
+                
+                TT read = new TT(NUM_ENTRIES);
+                assertEquals(written, TTFile.read(read, file));
+                assertEquals(written, assertSameEntries(tt, read));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Check that a table with most of its slots used is written as an image
+     * that is copied to the same slots of a table with the same geometry, 
+     * whatever the generations of the tables, and stored entry by entry in 
+     * other tables.
+     */
+    @Test
+    public void testImageRoundTrip() throws IOException {
+        TT tt = new TT(1 << 10);
+        tt.newGeneration();
+        tt.newGeneration();
+        SearchConfig config = new SearchConfig();
+        for (Status s : PositionSuite.generate()) {
+            RunnableFutureMiniMax search = new RunnableFutureMiniMax(6, s.getCurrentPlayerColor(), tt, s, true, config);
+            search.run();
+        }
+        
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            for (boolean compress : new boolean[]{false, true}) {
+                long written = TTFile.write(tt, file, compress);
+                if(!compress)
+                    assertEquals(TTFile.HEADER_BYTES + TTFile.BLOCK_HEADER_BYTES + tt.getNumEntries()*2*Long.BYTES, Files.size(file));
+                
+                // The off-heap tables have chunks smaller than a block
+                TT[] tables = {
+                    new TT(1 << 10), 
+                    new TT(1 << 10), 
+                    new TT(new TTStorage.Direct(tt.getNumEntries()*2, 9), TT.DEF_ENTRIES_PER_BUCKET),
+                    new TT(new TTStorage.Direct(tt.getNumEntries()*2, 9), TT.DEF_ENTRIES_PER_BUCKET)
+                };
+                for (int i = 0; i < tables.length; i++) {
+                    TT read = tables[i];
+                    int generation = i % 2;
+                    if(generation == 1)
+                        read.newGeneration();
+                    assertEquals(written, TTFile.read(read, file));
+                    for (long slot = 0; slot < tt.getNumEntries(); slot++) {
+                        long entry = read.getSlotEntry(slot);
+                        if(TT.extractIsValidEntry(entry)) {
+                            assertEquals(generation, TT.extractGeneration(entry));
+                            assertEquals(entry ^ read.getSlotXoredKey(slot), tt.getSlotEntry(slot) ^ tt.getSlotXoredKey(slot));
+                            assertEquals(TT.extractLowerBound(entry), TT.extractLowerBound(tt.getSlotEntry(slot)), 0);
+                        } else {
+                            assertFalse(TT.extractIsValidEntry(tt.getSlotEntry(slot)));
+                        }
+                    }
+                }
+                
+                TT bigger = new TT(1 << 12);
+                assertEquals(written, TTFile.read(bigger, file));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Check that a text dump is converted to the same entries.
+     */
+    @Test
+    public void testConvertTextDump() throws IOException {
+        TT tt = searchedTable();
+        StringWriter text = new StringWriter();
+        tt.dump(new BufferedWriter(text));
+        
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            long converted = TTFile.convertTextDump(new BufferedReader(new StringReader(text.toString())), file, true);
+            TT read = new TT(NUM_ENTRIES);
+            assertEquals(converted, TTFile.read(read, file));
+            assertEquals(converted, assertSameEntries(tt, read));
+            assertFalse(TTFile.isBinaryDump(Files.createTempFile("jeirostoc", ".data")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Get the line pair of a legacy text dump, written before the entries had
+     * bounds, with an entry of s.
+     * 
+     * @param s The status of the entry.
+     * @param heuristic The heuristic of the entry.
+     * @param depthBelow The depth explored below s.
+     * @param isExact The isExact flag of the entry.
+     * @param isAlpha The isAlpha flag of the entry.
+     * @return The lines of the entry.
+     */
+    private static String legacyDumpLines(Status s, float heuristic, int depthBelow, boolean isExact, boolean isAlpha) {
+        long entry = ((long)Float.floatToRawIntBits(heuristic) & 0xffffffffL) |
+                     0xffL << 32 |
+                     ((long)depthBelow & 0xffL) << 40 |
+                     (isExact ? 1L << 48 : 0L) |
+                     (isAlpha ? 1L << 49 : 0L) |
+                     1L << 50;
+        return (s.getMinZobristKey() ^ entry) + "\n" + entry + "\n";
+    }
+    
+    /**
+     * Check that a legacy text dump, without the header of the current entry
+     * format, is loaded and converted with its heuristics as bounds, and that
+     * a dump of an unknown format is not loaded.
+     */
+    @Test
+    public void testLegacyTextDump() throws IOException {
+        Status[] positions = PositionSuite.generate();
+        String legacyDump = 
+                legacyDumpLines(positions[0], 3.5f, 9, true, false) +
+                legacyDumpLines(positions[1], -2.25f, 7, false, true) +
+                legacyDumpLines(positions[2], 7, 5, false, false) +
+                (positions[3].getMinZobristKey() ^ 1L) + "\n1\n";
+        
+        TT filled = new TT(NUM_ENTRIES);
+        filled.fill(new BufferedReader(new StringReader(legacyDump)));
+        assertLegacyEntries(filled, positions);
+        
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            assertEquals(3, TTFile.convertTextDump(new BufferedReader(new StringReader(legacyDump)), file, true));
+            TT read = new TT(NUM_ENTRIES);
+            assertEquals(3, TTFile.read(read, file));
+            assertLegacyEntries(read, positions);
+            
+            try {
+                TTFile.convertTextDump(new BufferedReader(new StringReader("JeirostocTT entry format 1\n" + legacyDump)), file, true);
+                fail("A text dump of an unknown format has been converted");
+            } catch (IOException ex) {
+                // Expected
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Check the entries loaded from the legacy dump of testLegacyTextDump.
+     * 
+     * @param tt The table with the entries.
+     * @param positions The positions of the entries.
+     */
+    private static void assertLegacyEntries(TT tt, Status[] positions) {
+        long exact = tt.readEntry(positions[0]);
+        assertTrue(TT.extractIsExact(exact));
+        assertEquals(3.5f, TT.extractLowerBound(exact), 0);
+        assertEquals(3.5f, TT.extractUpperBound(exact), 0);
+        assertEquals(9, TT.extractDepthBelow(exact));
+        assertEquals(-1, TT.extractSelectedMovement(exact));
+        assertEquals(0, TT.extractPly(exact));
+        
+        long alpha = tt.readEntry(positions[1]);
+        assertEquals(Float.NEGATIVE_INFINITY, TT.extractLowerBound(alpha), 0);
+        assertEquals(-2.25f, TT.extractUpperBound(alpha), 0);
+        assertEquals(7, TT.extractDepthBelow(alpha));
+        
+        long other = tt.readEntry(positions[2]);
+        assertEquals(7, TT.extractLowerBound(other), 0);
+        assertEquals(Float.POSITIVE_INFINITY, TT.extractUpperBound(other), 0);
+        assertEquals(5, TT.extractDepthBelow(other));
+        
+        assertEquals(0, tt.readEntry(positions[3]));
+    }
+    
+    /**
+     * Check that a malformed text dump keeps the entries read before the
+     * malformed line.
+     */
+    @Test
+    public void testMalformedTextDump() {
+        TT tt = searchedTable();
+        StringWriter text = new StringWriter();
+        tt.dump(new BufferedWriter(text));
+        String[] lines = text.toString().split("\n");
+        StringBuilder malformed = new StringBuilder();
+        for (int i = 0; i < 21; i++) {
+            malformed.append(lines[i]).append('\n');
+        }
+        malformed.append("malformed\n");
+        
+        TT filled = new TT(NUM_ENTRIES);
+        filled.fill(new BufferedReader(new StringReader(malformed.toString())));
+        int numValid = 0;
+        for (long slot = 0; slot < filled.getNumEntries(); slot++) {
+            if(TT.extractIsValidEntry(filled.getSlotEntry(slot)))
+                numValid++;
+        }
+        assertEquals(10, numValid);
+    }
+    
+    /**
+     * Check that a damaged block only loses the entries from it on and that 
+     * a damaged header is rejected.
+     */
+    @Test
+    public void testDamagedFile() throws IOException {
+        TT tt = searchedTable();
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            long written = TTFile.write(tt, file, false);
+            assertTrue(4096 < written);
+            
+            // Damage the last entry
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{42}), Files.size(file) - 3);
+            }
+            long read = TTFile.read(new TT(NUM_ENTRIES), file);
+            assertTrue(4096 <= read && read < written);
+            
+            // Damage the header
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(ByteBuffer.wrap(new byte[]{42}), 20);
+            }
+            try {
+                TTFile.read(new TT(NUM_ENTRIES), file);
+                fail();
+            } catch (IOException ex) {}
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Check that an uncompressed image of a table loads at least 10 times 
+     * faster than its text dump, and print the size and the time to load 
+     * the table from each format. The times are the best of several rounds,
+     * once the code is compiled.
+     */
+    @Test
+    public void testLoadSpeed() throws IOException {
+        TT tt = new TT(1 << 17);
+        SearchConfig config = new SearchConfig();
+        for (Status s : PositionSuite.generate()) {
+            RunnableFutureMiniMax search = new RunnableFutureMiniMax(8, s.getCurrentPlayerColor(), tt, s, true, config);
+            search.run();
+        }
+        
+        StringWriter text = new StringWriter();
+        tt.dump(new BufferedWriter(text));
+        String dump = text.toString();
+        Path file = Files.createTempFile("jeirostoc", ".bin");
+        Path compressedFile = Files.createTempFile("jeirostoc", ".bin");
+        try {
+            long entries = TTFile.write(tt, file, false);
+            TTFile.write(tt, compressedFile, true);
+            
+            long textTime = Long.MAX_VALUE;
+            long binaryTime = Long.MAX_VALUE;
+            long compressedTime = Long.MAX_VALUE;
+            for (int round = 0; round < 10; round++) {
+                TT filled = new TT(1 << 17);
+                long start = System.nanoTime();
+                filled.fill(new BufferedReader(new StringReader(dump)));
+                textTime = Math.min(textTime, System.nanoTime() - start);
+                
+                filled = new TT(1 << 17);
+                start = System.nanoTime();
+                TTFile.read(filled, file);
+                binaryTime = Math.min(binaryTime, System.nanoTime() - start);
+                
+                filled = new TT(1 << 17);
+                start = System.nanoTime();
+                TTFile.read(filled, compressedFile);
+                compressedTime = Math.min(compressedTime, System.nanoTime() - start);
+            }
+            
+            System.out.println("text: " + dump.length() + " bytes, " + textTime/1000 + " us to load");
+            System.out.println("binary: " + Files.size(file) + " bytes for " + entries + " entries, " + binaryTime/1000 + " us to load, " + String.format("%.1f", (double)textTime/binaryTime) + "x faster");
+            System.out.println("deflate: " + Files.size(compressedFile) + " bytes for " + entries + " entries, " + compressedTime/1000 + " us to load, " + String.format("%.1f", (double)textTime/compressedTime) + "x faster");
+            assertTrue("The image loads only " + (double)textTime/binaryTime + " times faster", 10*binaryTime <= textTime);
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(compressedFile);
+        }
+    }
+}
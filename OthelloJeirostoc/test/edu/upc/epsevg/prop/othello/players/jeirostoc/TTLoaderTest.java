@@ -0,0 +1,78 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the background loading of the transposition table.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TTLoaderTest {
+    /**
+     * Check that a table can be searched while it is being filled in the 
+     * background and that it ends with the entries of the file, in the binary
+     * and in the text format.
+     */
+    @Test
+    public void testSearchWhileLoading() throws IOException, InterruptedException {
+        Status[] positions = PositionSuite.generate();
+        TT stored = new TT(1 << 18);
+        SearchConfig config = new SearchConfig();
+        for (Status s : positions) {
+            new RunnableFutureMiniMax(7, s.getCurrentPlayerColor(), stored, s, true, config).run();
+        }
+        
+        Path binaryFile = Files.createTempFile("jeirostoc", ".bin");
+        Path textFile = Files.createTempFile("jeirostoc", ".data");
+        Path missingFile = binaryFile.resolveSibling(binaryFile.getFileName() + ".missing");
+        try {
+            TTFile.write(stored, binaryFile, true);
+            try (BufferedWriter bw = Files.newBufferedWriter(textFile)) {
+                stored.dump(bw);
+            }
+            
+            Path[][] sources = {{binaryFile, textFile}, {missingFile, textFile}};
+            for (Path[] source : sources) {
+                TT tt = new TT(1 << 18);
+                TTLoader loader = new TTLoader(tt, source[0], source[1]);
+                assertEquals(0, loader.getProgress(), 0);
+                
+                Thread thread = new Thread(loader);
+                thread.start();
+                for (Status s : positions) {
+                    RunnableFutureMiniMax search = new RunnableFutureMiniMax(4, s.getCurrentPlayerColor(), tt, s, true, config);
+                    search.run();
+                    byte movement = search.get().lastSelectedMovement;
+                    assertTrue(s.canMovePiece(movement/Status.SIZE, movement%Status.SIZE));
+                    float progress = loader.getProgress();
+                    assertTrue(0 <= progress && progress <= 1);
+                }
+                loader.awaitDone();
+                
+                assertTrue(loader.isDone());
+                assertEquals(1, loader.getProgress(), 0);
+                for (Status s : positions) {
+                    long expected = stored.readEntry(s);
+                    long entry = tt.readEntry(s);
+                    assertEquals(TT.extractSelectedMovement(s, expected), TT.extractSelectedMovement(s, entry));
+                    assertTrue(TT.extractDepthBelow(expected) <= TT.extractDepthBelow(entry));
+                }
+            }
+            
+            TTLoader missing = new TTLoader(new TT(1 << 10), missingFile, missingFile);
+            missing.run();
+            assertEquals(1, missing.getProgress(), 0);
+        } catch (Exception ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            Files.deleteIfExists(binaryFile);
+            Files.deleteIfExists(textFile);
+        }
+    }
+}
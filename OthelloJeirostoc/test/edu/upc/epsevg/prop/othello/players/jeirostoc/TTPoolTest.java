@@ -0,0 +1,143 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the pool of transposition tables.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TTPoolTest {
+    /**
+     * Check that a released table keeps its entries for a user with the same
+     * settings and is cleared for a user with other settings.
+     */
+    @Test
+    public void testReuseReleasedTables() {
+        TTPool.clear();
+        String tableKey = TTPool.tableKey(TT.storageSize(1 << 12, TT.DEF_ENTRIES_PER_BUCKET), false);
+        String settings = TTPool.settingsKey(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT);
+        String otherSettings = TTPool.settingsKey(Status.STABLE_SCORE_DEFAULT + 1, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT);
+        Status s = PositionSuite.generate()[0];
+        
+        TT tt = TTPool.acquire(tableKey, settings, false, () -> new TT(1 << 12));
+        assertFalse(tt.isWarm());
+        tt.register(s, 7, (byte)-1, (byte)3, true, true);
+        int generation = tt.getGeneration();
+        TTPool.release(tt);
+        assertEquals(1, TTPool.getNumFreeTables());
+        
+        // Same settings: the entries are kept in a new generation
+        TT recycled = TTPool.acquire(tableKey, settings, false, () -> new TT(1 << 12));
+        assertTrue(tt == recycled);
+        assertTrue(recycled.isWarm());
+        assertEquals(7, TT.extractSelectedHeuristic(recycled.readEntry(s)), 0);
+        assertEquals(generation + 1, recycled.getGeneration());
+        assertEquals(0, TTPool.getNumFreeTables());
+        
+        // A table in use isn't handed to anyone else
+        TT other = TTPool.acquire(tableKey, settings, false, () -> new TT(1 << 12));
+        assertTrue(tt != other);
+        TTPool.release(other);
+        TTPool.release(recycled);
+        assertEquals(2, TTPool.getNumFreeTables());
+        
+        // Other settings: the entries are cleared
+        TT cleared = TTPool.acquire(tableKey, otherSettings, false, () -> new TT(1 << 12));
+        assertFalse(cleared.isWarm());
+        assertEquals(0, cleared.readEntry(s));
+        assertEquals(0, cleared.getGeneration());
+        TTPool.release(cleared);
+        
+        // Other sizes get a new table and the released ones are dropped
+        String otherTableKey = TTPool.tableKey(TT.storageSize(1 << 13, TT.DEF_ENTRIES_PER_BUCKET), false);
+        TT bigger = TTPool.acquire(otherTableKey, settings, false, () -> new TT(1 << 13));
+        assertEquals(1 << 13, bigger.getNumEntries());
+        assertEquals(0, TTPool.getNumFreeTables());
+        TTPool.release(bigger);
+        assertEquals(1, TTPool.getNumFreeTables());
+        
+        TTPool.clear();
+        assertEquals(0, TTPool.getNumFreeTables());
+    }
+    
+    /**
+     * Check that users with the same settings share a table until all of them
+     * release it.
+     */
+    @Test
+    public void testSharedTables() {
+        TTPool.clear();
+        String tableKey = TTPool.tableKey(TT.storageSize(1 << 12, TT.DEF_ENTRIES_PER_BUCKET), false);
+        String settings = TTPool.settingsKey(Status.STABLE_SCORE_DEFAULT, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT);
+        String otherSettings = TTPool.settingsKey(Status.STABLE_SCORE_DEFAULT + 1, Status.DISK_SCORES_DEFAULT, Status.NEIGHBOR_SCORES_DEFAULT);
+        
+        TT first = TTPool.acquire(tableKey, settings, true, () -> new TT(1 << 12));
+        TT second = TTPool.acquire(tableKey, settings, true, () -> new TT(1 << 12));
+        TT third = TTPool.acquire(tableKey, otherSettings, true, () -> new TT(1 << 12));
+        assertTrue(first == second);
+        assertTrue(first != third);
+        
+        TTPool.release(first);
+        assertEquals(0, TTPool.getNumFreeTables());
+        TTPool.release(second);
+        assertEquals(1, TTPool.getNumFreeTables());
+        TTPool.release(third);
+        assertEquals(2, TTPool.getNumFreeTables());
+        
+        TTPool.clear();
+    }
+    
+    /**
+     * Check that a closed player hands its table to the next player created
+     * and that closing it twice releases it once.
+     */
+    @Test
+    public void testPlayerClose() {
+        TTPool.clear();
+        PlayerIDSeq p1 = new PlayerIDSeq(1 << 12);
+        p1.close();
+        p1.close();
+        assertEquals(1, TTPool.getNumFreeTables());
+        
+        PlayerIDSeq p2 = new PlayerIDSeq(1 << 12);
+        PlayerIDSeq p3 = new PlayerIDSeq(1 << 12);
+        assertTrue(p1._tt == p2._tt);
+        assertTrue(p2._tt != p3._tt);
+        assertTrue(p2._tt.isWarm());
+        p2.close();
+        p3.close();
+        
+        PlayerBase.setShareTables(true);
+        try {
+            PlayerIDSeq p4 = new PlayerIDSeq(1 << 12);
+            PlayerIDSeq p5 = new PlayerIDSeq(1 << 12);
+            assertTrue(p4._tt == p5._tt);
+            p4.close();
+            p5.close();
+        } finally {
+            PlayerBase.setShareTables(false);
+        }
+        TTPool.clear();
+    }
+    
+    /**
+     * Check that the parallel clear of the storages sets every long to 0.
+     */
+    @Test
+    public void testParallelClear() {
+        long size = 3*(1 << 20) + 5;
+        TTStorage[] storages = {new TTStorage.Heap(size), new TTStorage.Direct(size, 20)};
+        for (TTStorage storage : storages) {
+            for (long i = 0; i < size; i++) {
+                storage.set(i, i + 1);
+            }
+            storage.clear();
+            for (long i = 0; i < size; i++) {
+                assertEquals(0, storage.get(i));
+            }
+        }
+    }
+}
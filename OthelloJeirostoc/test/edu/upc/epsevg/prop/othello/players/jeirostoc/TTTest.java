@@ -1,6 +1,12 @@
 package edu.upc.epsevg.prop.othello.players.jeirostoc;
 
 import java.awt.Point;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.LongBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Random;
 import org.junit.Test;
@@ -98,19 +104,21 @@ public class TTTest {
      */
     @Test
     public void testToEntryAndExtract1() {
-        float selectedHeuristic = 1.051f;
+        float lowerBound = 1.5f;
+        float upperBound = 2.25f;
         byte selectedMovementBitIndex = 53;
         byte depthBelow = 7;
-        boolean isExact = true;
-        boolean isAlpha = true;
         
-        long entry = TT.toEntry(selectedHeuristic, selectedMovementBitIndex, depthBelow, isExact, isAlpha);
+        long entry = TT.toEntry(lowerBound, upperBound, selectedMovementBitIndex, depthBelow);
         
-        assertEquals(TT.extractSelectedHeuristic(entry), selectedHeuristic, 0.0f);
+        assertEquals(TT.extractLowerBound(entry),        lowerBound, 0.0f);
+        assertEquals(TT.extractUpperBound(entry),        upperBound, 0.0f);
+        assertEquals(TT.extractSelectedHeuristic(entry), lowerBound, 0.0f);
         assertEquals(TT.extractSelectedMovement(entry),  selectedMovementBitIndex);
+        assertEquals(TT.extractLowerDepth(entry),        depthBelow);
+        assertEquals(TT.extractUpperDepth(entry),        depthBelow);
         assertEquals(TT.extractDepthBelow(entry),        depthBelow);
-        assertEquals(TT.extractIsExact(entry),           isExact);
-        assertEquals(TT.extractIsAlpha(entry),           isAlpha);
+        assertEquals(TT.extractIsExact(entry),           false);
         assertEquals(TT.extractIsValidEntry(entry),      true);
     }
     
@@ -120,20 +128,51 @@ public class TTTest {
      */
     @Test
     public void testToEntryAndExtract2() {
-        float selectedHeuristic = Float.POSITIVE_INFINITY;
+        float heuristic = Float.POSITIVE_INFINITY;
         byte selectedMovementBitIndex = 3;
         byte depthBelow = 10;
-        boolean isExact = false;
-        boolean isAlpha = false;
         
-        long entry = TT.toEntry(selectedHeuristic, selectedMovementBitIndex, depthBelow, isExact, isAlpha);
+        long entry = TT.toEntry(Float.NEGATIVE_INFINITY, heuristic, selectedMovementBitIndex, depthBelow);
         
-        assertEquals(TT.extractSelectedHeuristic(entry), selectedHeuristic, 0.0f);
+        assertEquals(TT.extractLowerBound(entry),        Float.NEGATIVE_INFINITY, 0.0f);
+        assertEquals(TT.extractUpperBound(entry),        heuristic, 0.0f);
         assertEquals(TT.extractSelectedMovement(entry),  selectedMovementBitIndex);
-        assertEquals(TT.extractDepthBelow(entry),        depthBelow);
-        assertEquals(TT.extractIsExact(entry),           isExact);
-        assertEquals(TT.extractIsAlpha(entry),           isAlpha);
+        assertEquals(TT.extractDepthBelow(entry),        0);
+        assertEquals(TT.extractIsExact(entry),           false);
         assertEquals(TT.extractIsValidEntry(entry),      true);
+        
+        entry = TT.toEntry(heuristic, heuristic, selectedMovementBitIndex, depthBelow);
+        
+        assertEquals(TT.extractSelectedHeuristic(entry), heuristic, 0.0f);
+        assertEquals(TT.extractLowerDepth(entry),        depthBelow);
+        assertEquals(TT.extractUpperDepth(entry),        0);
+        assertEquals(TT.extractIsExact(entry),           true);
+    }
+    
+    /**
+     * Check that the bounds are rounded outwards to the stored precision and
+     * that the bounds out of range are stored as no bound.
+     */
+    @Test
+    public void testToEntryRounding() {
+        long entry = TT.toEntry(1.051f, 1.051f, (byte)-1, (byte)5);
+        assertEquals(1, TT.extractLowerBound(entry), 0.0f);
+        assertEquals(1.0625f, TT.extractUpperBound(entry), 0.0f);
+        assertFalse(TT.extractIsExact(entry));
+        
+        entry = TT.toEntry(-1.051f, -1.051f, (byte)-1, (byte)5);
+        assertEquals(-1.0625f, TT.extractLowerBound(entry), 0.0f);
+        assertEquals(-1, TT.extractUpperBound(entry), 0.0f);
+        
+        entry = TT.toEntry(-1e6f, 1e6f, (byte)-1, (byte)5);
+        assertEquals(Float.NEGATIVE_INFINITY, TT.extractLowerBound(entry), 0.0f);
+        assertEquals(Float.POSITIVE_INFINITY, TT.extractUpperBound(entry), 0.0f);
+        assertEquals(0, TT.extractDepthBelow(entry));
+        
+        entry = TT.toEntry(1e6f, 1e6f, (byte)-1, (byte)100);
+        assertEquals(2047.875f, TT.extractLowerBound(entry), 0.0f);
+        assertEquals(Float.POSITIVE_INFINITY, TT.extractUpperBound(entry), 0.0f);
+        assertEquals(63, TT.extractDepthBelow(entry));
     }
     
     /**
@@ -226,4 +265,429 @@ public class TTTest {
             }
         }
     }
+    
+    /**
+     * Test that a bucket keeps the deepest entry when other statuses collide
+     * with it and that a directly mapped table doesn't.
+     */
+    @Test
+    public void testBucketKeepsDeepEntries() {
+        Status[] positions = PositionSuite.generate();
+        TT bucketed = new TT(4, 4);
+        TT direct = new TT(1, 1);
+        
+        for (TT tt : new TT[]{bucketed, direct}) {
+            tt.register(positions[0], 1, (byte)-1, (byte)10, true, true);
+            for (int i = 1; i <= 4; i++) {
+                tt.register(positions[i], 1, (byte)-1, (byte)1, true, true);
+            }
+        }
+        
+        assertEquals(10, TT.extractDepthBelow(bucketed.readEntry(positions[0])));
+        assertEquals(1, TT.extractDepthBelow(bucketed.readEntry(positions[4])));
+        assertEquals(0, direct.readEntry(positions[0]));
+        assertEquals(4, bucketed.getEntriesPerBucket());
+        assertEquals(1, bucketed.getNumCollisions());
+        assertEquals(4, direct.getNumCollisions());
+        
+        // Shallower entries of the same status don't replace deeper ones
+        bucketed.register(positions[0], 2, (byte)-1, (byte)3, true, true);
+        assertEquals(1, TT.extractSelectedHeuristic(bucketed.readEntry(positions[0])), 0);
+        bucketed.register(positions[0], 2, (byte)-1, (byte)10, true, true);
+        assertEquals(2, TT.extractSelectedHeuristic(bucketed.readEntry(positions[0])), 0);
+        assertEquals(2, bucketed.getNumOverwrites());
+        assertEquals(7, bucketed.getNumRegisters());
+    }
+    
+    /**
+     * Test that the lower and upper bounds of a status are kept at their own
+     * depths, that a stored bound contradicting a new one is dropped and that
+     * the bounds are seen from the point of view of each player.
+     */
+    @Test
+    public void testTwoBoundEntries() {
+        Status s = PositionSuite.generate()[0];
+        TT tt = new TT(4, 4);
+        
+        // A fail high and a fail low of the same status
+        tt.registerBounds(s, 3, Float.POSITIVE_INFINITY, 1, (byte)-1, (byte)6);
+        tt.registerBounds(s, Float.NEGATIVE_INFINITY, 5, 1, (byte)-1, (byte)4);
+        long entry = tt.readEntry(s);
+        assertEquals(3, TT.extractLowerBound(entry), 0);
+        assertEquals(5, TT.extractUpperBound(entry), 0);
+        assertEquals(6, TT.extractLowerDepth(entry));
+        assertEquals(4, TT.extractUpperDepth(entry));
+        assertFalse(TT.extractIsExact(entry));
+        
+        // Each bound can only be used with its depth
+        assertEquals(3, TT.extractLowerBound(entry, 5, 1), 0);
+        assertEquals(Float.POSITIVE_INFINITY, TT.extractUpperBound(entry, 5, 1), 0);
+        assertEquals(5, TT.extractUpperBound(entry, 4, 1), 0);
+        
+        // The other player sees the bounds negated and swapped
+        assertEquals(-5, TT.extractLowerBound(entry, 4, -1), 0);
+        assertEquals(-3, TT.extractUpperBound(entry, 4, -1), 0);
+        assertEquals(Float.NEGATIVE_INFINITY, TT.extractLowerBound(entry, 5, -1), 0);
+        tt.registerBounds(s, -4, Float.POSITIVE_INFINITY, -1, (byte)-1, (byte)4);
+        assertEquals(4, TT.extractUpperBound(tt.readEntry(s)), 0);
+        
+        // A shallower bound doesn't replace a deeper one
+        tt.registerBounds(s, 3.5f, Float.POSITIVE_INFINITY, 1, (byte)-1, (byte)2);
+        assertEquals(3, TT.extractLowerBound(tt.readEntry(s)), 0);
+        
+        // A contradicting bound drops the stored one
+        tt.registerBounds(s, Float.NEGATIVE_INFINITY, 2, 1, (byte)-1, (byte)8);
+        entry = tt.readEntry(s);
+        assertEquals(Float.NEGATIVE_INFINITY, TT.extractLowerBound(entry), 0);
+        assertEquals(2, TT.extractUpperBound(entry), 0);
+        assertEquals(8, TT.extractDepthBelow(entry));
+        
+        // Equal bounds make an exact heuristic
+        tt.registerBounds(s, 2, Float.POSITIVE_INFINITY, 1, (byte)-1, (byte)8);
+        entry = tt.readEntry(s);
+        assertTrue(TT.extractIsExact(entry));
+        assertEquals(2, TT.extractSelectedHeuristic(entry), 0);
+    }
+    
+    /**
+     * Test that the entries of statuses with less movements than the root 
+     * are replaced before deeper ones.
+     */
+    @Test
+    public void testStaleEntriesReplacedFirst() {
+        Status[] positions = PositionSuite.generate();
+        TT tt = new TT(4, 4);
+        
+        tt.register(positions[0], 1, (byte)-1, (byte)20, true, true);
+        for (int i = 1; i < 4; i++) {
+            tt.register(positions[i], 1, (byte)-1, (byte)10, true, true);
+        }
+        assertEquals(positions[0].getNumMovements(), TT.extractPly(tt.readEntry(positions[0])));
+        
+        tt.setMinPly(positions[1].getNumMovements());
+        tt.register(positions[4], 1, (byte)-1, (byte)1, true, true);
+        assertEquals(0, tt.readEntry(positions[0]));
+        for (int i = 1; i <= 4; i++) {
+            assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[i])));
+        }
+    }
+    
+    /**
+     * Test that the entries without the number of movements, as the ones of
+     * the books written before it was stored, are not taken as unreachable.
+     */
+    @Test
+    public void testEntriesWithoutPlyKept() {
+        Status[] positions = PositionSuite.generate();
+        TT source = new TT(4, 4);
+        source.register(positions[0], 1, (byte)-1, (byte)20, true, true);
+        long entry = source.readEntry(positions[0]) & ~(0x3fL << 53);
+        assertEquals(0, TT.extractPly(entry));
+        
+        TT tt = new TT(4, 4);
+        tt.storeEntry(positions[0].getMinZobristKey() ^ entry, entry);
+        for (int i = 1; i < 4; i++) {
+            tt.register(positions[i], 1, (byte)-1, (byte)10, true, true);
+        }
+        
+        tt.setMinPly(positions[1].getNumMovements());
+        tt.register(positions[4], 1, (byte)-1, (byte)1, true, true);
+        assertEquals(20, TT.extractDepthBelow(tt.readEntry(positions[0])));
+        assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[4])));
+    }
+    
+    /**
+     * Test that the entries of older searches are replaced before deeper 
+     * ones of the current search and that a deeper entry of an older search
+     * moves to the current generation when its status is registered again.
+     */
+    @Test
+    public void testOldGenerationsReplacedFirst() {
+        Status[] positions = PositionSuite.generate();
+        TT tt = new TT(4, 4);
+        
+        tt.register(positions[0], 1, (byte)-1, (byte)20, true, true);
+        tt.register(positions[1], 1, (byte)-1, (byte)20, true, true);
+        tt.newGeneration();
+        tt.newGeneration();
+        assertEquals(2, tt.getGeneration());
+        tt.register(positions[1], 2, (byte)-1, (byte)5, true, true);
+        assertEquals(2, TT.extractGeneration(tt.readEntry(positions[1])));
+        assertEquals(20, TT.extractDepthBelow(tt.readEntry(positions[1])));
+        assertEquals(0, TT.extractGeneration(tt.readEntry(positions[0])));
+        
+        for (int i = 2; i < 5; i++) {
+            tt.register(positions[i], 1, (byte)-1, (byte)10, true, true);
+        }
+        assertEquals(0, tt.readEntry(positions[0]));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[i])));
+        }
+        
+        for (int i = 0; i < 200; i++) {
+            tt.newGeneration();
+            assertTrue(0 <= tt.getGeneration() && tt.getGeneration() < 32);
+        }
+    }
+    
+    /**
+     * Test that a deep entry of a search a whole cycle of generations ago 
+     * doesn't look current once the generation wraps around, so it is still
+     * replaced before shallow entries of the current search.
+     */
+    @Test
+    public void testGenerationWrapAround() {
+        Status[] positions = PositionSuite.generate();
+        TT tt = new TT(4, 4);
+        
+        tt.register(positions[0], 1, (byte)-1, (byte)20, true, true);
+        for (int i = 0; i < 32; i++) {
+            tt.newGeneration();
+        }
+        assertEquals(0, tt.getGeneration());
+        long entry = tt.readEntry(positions[0]);
+        assertTrue(TT.extractIsValidEntry(entry));
+        assertFalse(TT.extractGeneration(entry) == tt.getGeneration());
+        
+        for (int i = 1; i < 5; i++) {
+            tt.register(positions[i], 1, (byte)-1, (byte)1, true, true);
+        }
+        assertEquals(0, tt.readEntry(positions[0]));
+        for (int i = 1; i < 5; i++) {
+            assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[i])));
+        }
+    }
+    
+    /**
+     * Test that the entries of the opening book are kept over deeper and 
+     * newer ones, and that they are the only ones dumped with their maximum 
+     * number of movements.
+     */
+    @Test
+    public void testBookEntriesKept() throws IOException {
+        Status[] positions = PositionSuite.generate();
+        int bookMaxPly = positions[0].getNumMovements();
+        
+        for (boolean book : new boolean[]{true, false}) {
+            TT tt = new TT(4, 4);
+            tt.setBookMaxPly(book ? bookMaxPly : -1);
+            
+            tt.register(positions[0], 1, (byte)-1, (byte)1, true, true);
+            for (int i = 1; i < 4; i++) {
+                tt.register(positions[i], 1, (byte)-1, (byte)10, true, true);
+            }
+            tt.setMinPly(positions[2].getNumMovements());
+            tt.newGeneration();
+            tt.register(positions[4], 1, (byte)-1, (byte)20, true, true);
+            tt.register(positions[5], 1, (byte)-1, (byte)20, true, true);
+            
+            assertEquals(book, TT.extractIsValidEntry(tt.readEntry(positions[0])));
+            assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[4])));
+            assertTrue(TT.extractIsValidEntry(tt.readEntry(positions[5])));
+            
+            StringWriter sw = new StringWriter();
+            tt.dump(new BufferedWriter(sw), bookMaxPly);
+            String[] lines = sw.toString().split("\n");
+            assertEquals(TT.TEXT_DUMP_HEADER, lines[0]);
+            if(book) {
+                assertEquals(3, lines.length);
+                assertEquals(bookMaxPly, TT.extractPly(Long.parseLong(lines[2])));
+            } else {
+                assertEquals(1, lines.length);
+            }
+            
+            sw = new StringWriter();
+            tt.dump(new BufferedWriter(sw));
+            assertEquals(9, sw.toString().split("\n").length);
+        }
+    }
+    
+    /**
+     * Test that the off-heap storage keeps the longs across its chunks and 
+     * that a table on it searches the same as one on the heap.
+     */
+    @Test
+    public void testOffHeapStorage() {
+        TTStorage storage = new TTStorage.Direct(100, 4);
+        assertEquals(100, storage.size());
+        for (long i = 0; i < storage.size(); i++) {
+            storage.set(i, -i*31);
+        }
+        for (long i = 0; i < storage.size(); i++) {
+            assertEquals(-i*31, storage.get(i));
+        }
+        storage.clear();
+        assertEquals(0, storage.get(99));
+        
+        // The bulk copies span several chunks
+        long[] longs = new long[90];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = i + 1;
+        }
+        for (TTStorage target : new TTStorage[]{storage, new TTStorage.Heap(100)}) {
+            LongBuffer src = LongBuffer.wrap(longs, 10, 80);
+            target.put(5, src);
+            assertFalse(src.hasRemaining());
+            assertEquals(0, target.get(4));
+            for (int i = 5; i < 85; i++) {
+                assertEquals(i + 6, target.get(i));
+            }
+            assertEquals(0, target.get(85));
+        }
+        storage.clear();
+        
+        try {
+            new TTStorage.Heap(1L << 32);
+            fail();
+        } catch (IllegalArgumentException ex) {}
+        
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        for (Status s : positions) {
+            TT heap = new TT(1 << 12, TT.DEF_ENTRIES_PER_BUCKET, false);
+            TT offHeap = new TT(new TTStorage.Direct(TT.storageSize(1 << 12, TT.DEF_ENTRIES_PER_BUCKET), 7), TT.DEF_ENTRIES_PER_BUCKET);
+            assertEquals(heap.getNumEntries(), offHeap.getNumEntries());
+            
+            RunnableFutureMiniMax.Result[] results = new RunnableFutureMiniMax.Result[2];
+            TT[] tables = {heap, offHeap};
+            for (int i = 0; i < 2; i++) {
+                RunnableFutureMiniMax search = new RunnableFutureMiniMax(5, s.getCurrentPlayerColor(), tables[i], s, true, config);
+                search.run();
+                try {
+                    results[i] = search.get();
+                } catch (Exception ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+            assertEquals(results[0].nodesWithComputedHeuristic, results[1].nodesWithComputedHeuristic);
+            assertEquals(results[0].lastSelectedMovement, results[1].lastSelectedMovement);
+            assertEquals(heap.getNumCollisions(), offHeap.getNumCollisions());
+        }
+    }
+    
+    /**
+     * Test that a table mapped to a file keeps its entries for the next table
+     * that maps it, and that a file of another size is replaced without 
+     * affecting the tables that map it.
+     */
+    @Test
+    public void testMappedStorage() throws IOException {
+        Path file = Files.createTempFile("jeirostoc", ".tt");
+        try {
+            Status[] positions = PositionSuite.generate();
+            long size = TT.storageSize(1 << 10, TT.DEF_ENTRIES_PER_BUCKET);
+            
+            TT tt = new TT(new TTStorage.Mapped(file, size, TT.layout(TT.DEF_ENTRIES_PER_BUCKET), 5), TT.DEF_ENTRIES_PER_BUCKET);
+            assertFalse(tt.isWarm());
+            for (int i = 0; i < positions.length; i++) {
+                tt.register(positions[i], i, (byte)-1, (byte)i, true, true);
+            }
+            tt.checkpoint();
+            
+            TT reopened = new TT(new TTStorage.Mapped(file, size, TT.layout(TT.DEF_ENTRIES_PER_BUCKET), 5), TT.DEF_ENTRIES_PER_BUCKET);
+            assertTrue(reopened.isWarm());
+            for (int i = 0; i < positions.length; i++) {
+                assertEquals(i, TT.extractSelectedHeuristic(reopened.readEntry(positions[i])), 0);
+            }
+            
+            TT resized = new TT(new TTStorage.Mapped(file, 2*size, TT.layout(TT.DEF_ENTRIES_PER_BUCKET), 5), TT.DEF_ENTRIES_PER_BUCKET);
+            assertFalse(resized.isWarm());
+            for (Status s : positions) {
+                assertEquals(0, resized.readEntry(s));
+            }
+            assertEquals(64 + 2*size*Long.BYTES, Files.size(file));
+            
+            // The tables that mapped the replaced file keep their entries
+            for (int i = 0; i < positions.length; i++) {
+                assertEquals(i, TT.extractSelectedHeuristic(tt.readEntry(positions[i])), 0);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+    
+    /**
+     * Print the collision and overwrite rates and the nodes needed to search
+     * the position suite with a directly mapped table and with buckets of 
+     * the default size, both with the same memory.
+     */
+    @Test
+    public void testBucketRates() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        
+        for (int entriesPerBucket : new int[]{1, TT.DEF_ENTRIES_PER_BUCKET}) {
+            long nodes = 0;
+            long collisions = 0;
+            long overwrites = 0;
+            long registers = 0;
+            for (Status s : positions) {
+                TT tt = new TT(1 << 12, entriesPerBucket);
+                tt.setMinPly(s.getNumMovements());
+                for (int depth = 1; depth <= 6; depth++) {
+                    RunnableFutureMiniMax search = new RunnableFutureMiniMax(depth, s.getCurrentPlayerColor(), tt, s, true, config);
+                    search.run();
+                    try {
+                        nodes += search.get().nodesWithComputedHeuristic;
+                    } catch (Exception ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+                collisions += tt.getNumCollisions();
+                overwrites += tt.getNumOverwrites();
+                registers += tt.getNumRegisters();
+            }
+            
+            assertTrue(collisions + overwrites <= registers);
+            System.out.println(
+                entriesPerBucket + " entries per bucket: " + nodes + " nodes, " +
+                String.format("%.3f", (double)collisions/registers) + " collisions per register, " +
+                String.format("%.3f", (double)overwrites/registers) + " overwrites per register"
+            );
+        }
+    }
+    
+    /**
+     * Test that the tables are sized to a power of 2 number of buckets that
+     * fits in the memory budget, and that every entry of a table sized from
+     * the budget can be written and read.
+     */
+    @Test
+    public void testMemoryBudgetSizing() {
+        // A bucket of the default size takes 64 bytes
+        assertEquals(1 << 16, TT.numEntriesForMemory(1 << 20, TT.DEF_ENTRIES_PER_BUCKET));
+        assertEquals(1 << 15, TT.numEntriesForMemory((1 << 20) - 1, TT.DEF_ENTRIES_PER_BUCKET));
+        assertEquals(1 << 17, TT.numEntriesForMemory(1 << 21, 1));
+        assertEquals(TT.DEF_ENTRIES_PER_BUCKET, TT.numEntriesForMemory(0, TT.DEF_ENTRIES_PER_BUCKET));
+        
+        long maxBytes = Runtime.getRuntime().maxMemory();
+        long defEntries = TT.numEntriesForHeapFraction(TT.DEF_HEAP_FRACTION, TT.DEF_ENTRIES_PER_BUCKET);
+        assertEquals(TT.DEF_NUM_ENTRIES, defEntries);
+        assertEquals(1, Long.bitCount(defEntries/TT.DEF_ENTRIES_PER_BUCKET));
+        assertTrue(defEntries*16 <= maxBytes*TT.DEF_HEAP_FRACTION);
+        
+        // The tables that live at once share the budget
+        assertEquals(defEntries, TT.numEntriesPerTable(1));
+        assertEquals(defEntries, TT.numEntriesPerTable(2));
+        for (int numTables = 1; numTables <= 8; numTables++) {
+            long entries = TT.numEntriesPerTable(numTables);
+            assertTrue(numTables*entries*16 <= maxBytes*TT.MAX_TABLES_HEAP_FRACTION);
+        }
+        assertTrue(TT.numEntriesPerTable(8) < defEntries);
+        
+        assertEquals(1 << 12, new TT(5000).getNumEntries());
+        assertEquals(1 << 12, new TT(new TTStorage.Heap(10000), TT.DEF_ENTRIES_PER_BUCKET).getNumEntries());
+        
+        Status[] positions = PositionSuite.generate();
+        TT tt = new TT(TT.numEntriesForMemory(1 << 16, TT.DEF_ENTRIES_PER_BUCKET), TT.DEF_ENTRIES_PER_BUCKET, false);
+        for (int i = 0; i < positions.length; i++) {
+            tt.register(positions[i], i, (byte)-1, (byte)1, true, true);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            long entry = tt.readEntry(positions[i]);
+            if(entry != 0) {
+                assertEquals(i, TT.extractSelectedHeuristic(entry), 0);
+            }
+        }
+    }
 }
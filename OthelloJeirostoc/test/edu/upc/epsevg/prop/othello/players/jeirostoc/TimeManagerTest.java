@@ -0,0 +1,139 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the TimeManager and its use by the players. The time managers 
+ * read a clock of the test instead of System.nanoTime(), so the results don't
+ * depend on the load of the machine.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class TimeManagerTest {
+    /**
+     * Check that without game time nor move time limit the moves are not
+     * bounded.
+     */
+    @Test
+    public void testUnboundedByDefault() {
+        TimeManager tm = new TimeManager();
+        tm.startMove(new Status());
+        
+        assertEquals(Long.MAX_VALUE, tm.getAllocatedTime());
+        assertEquals(0, tm.getHardDeadline());
+        assertTrue(tm.canStartIteration());
+    }
+    
+    /**
+     * Check that the midgame moves get more time than the opening ones and
+     * that the move time limit caps the allocated time.
+     */
+    @Test
+    public void testAllocationByPhase() {
+        Status[] positions = PositionSuite.generate(PositionSuite.DEFAULT_SEED, 2, 4, 20);
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        TimeManager tm = new TimeManager();
+        tm.setClock(now::get);
+        tm.setGameTime(60000);
+        
+        tm.startMove(positions[0]);
+        long opening = tm.getAllocatedTime();
+        tm.startMove(positions[1]);
+        long midgame = tm.getAllocatedTime();
+        
+        assertTrue(opening < midgame);
+        
+        tm.setMoveTimeLimit(1000);
+        tm.startMove(positions[1]);
+        assertTrue(tm.getAllocatedTime() <= TimeUnit.MILLISECONDS.toNanos(1000 - TimeManager.SAFETY_MARGIN_DEFAULT));
+        assertTrue(tm.getHardDeadline() - now.get() <= TimeUnit.MILLISECONDS.toNanos(1000 - TimeManager.SAFETY_MARGIN_DEFAULT));
+    }
+    
+    /**
+     * Check that an iteration predicted to end after the allocated time is not
+     * started.
+     */
+    @Test
+    public void testStopBeforeIterationThatCannotFinish() {
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        TimeManager tm = new TimeManager();
+        tm.setClock(now::get);
+        tm.setSafetyMargin(0);
+        tm.setMoveTimeLimit(1000);
+        tm.startMove(new Status());
+        
+        // Branching factor 4: the next iteration would end at 420 ms
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(20));
+        tm.iterationCompleted();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(80));
+        tm.iterationCompleted();
+        assertTrue(tm.canStartIteration());
+        
+        // The next iteration would end at 1700 ms
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(320));
+        tm.iterationCompleted();
+        assertFalse(tm.canStartIteration());
+    }
+    
+    /**
+     * Check that the time of a move is discounted from the game time.
+     */
+    @Test
+    public void testEndMoveDiscountsGameTime() {
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        TimeManager tm = new TimeManager();
+        tm.setClock(now::get);
+        tm.setGameTime(10000);
+        tm.startMove(new Status());
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(50));
+        tm.endMove();
+        
+        assertEquals(9950, tm.getGameTime());
+    }
+    
+    /**
+     * Check that the players do not search positions with a single movement
+     * and that the sequential player stops before the move time limit. The 
+     * clock of the player advances a millisecond each time it is read, so the
+     * time of the move is counted in reads of the clock.
+     */
+    @Test
+    public void testPlayerMoveTime() {
+        // Find a position with a single movement
+        Random r = new Random(PositionSuite.DEFAULT_SEED);
+        GameStatus gs = new GameStatus();
+        while (gs.getMoves().size() != 1) {
+            ArrayList<Point> moves = gs.getMoves();
+            if (moves.isEmpty() || gs.isGameOver()) {
+                gs = new GameStatus();
+            } else {
+                gs.movePiece(moves.get(r.nextInt(moves.size())));
+            }
+        }
+        
+        AtomicLong now = new AtomicLong(TimeUnit.SECONDS.toNanos(1));
+        PlayerIDSeq p = new PlayerIDSeq(1 << 16);
+        p.getTimeManager().setClock(() -> now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1)));
+        p.getTimeManager().setMoveTimeLimit(500);
+        Move m = p.move(gs);
+        assertEquals(gs.getMoves().get(0), m.getTo());
+        assertEquals(0, m.getNumerOfNodesExplored());
+        
+        // Search a position with several movements without external timeout
+        long start = now.get();
+        m = p.move(new GameStatus());
+        long elapsed = now.get() - start;
+        System.out.println("Depth " + m.getMaxDepthReached() + " in " + elapsed/1000000 + " ms");
+        assertNotNull(m.getTo());
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(500));
+    }
+}
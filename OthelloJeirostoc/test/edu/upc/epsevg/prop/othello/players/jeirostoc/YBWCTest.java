@@ -0,0 +1,84 @@
+package edu.upc.epsevg.prop.othello.players.jeirostoc;
+
+import edu.upc.epsevg.prop.othello.GameStatus;
+import edu.upc.epsevg.prop.othello.Move;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the young brothers wait concept search.
+ * 
+ * @author raul
+ * @author josep
+ */
+public class YBWCTest {
+    /**
+     * Check that splitting every node among several threads gives the same
+     * heuristics as searching with a single thread, which never splits.
+     */
+    @Test
+    public void testSameHeuristicAsSingleThread() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        config.setLateMoveReductions(SearchConfig.generateNoReductionTable());
+        config.setIIDMinDepth(SearchConfig.MAX_DEPTH + 1);
+        config.setYBWCMinSplitDepth(1);
+        
+        RunnableFutureMiniMax.Result[] sequential = PositionSuite.ybwcSearch(positions, 5, config, 1);
+        RunnableFutureMiniMax.Result[] parallel = PositionSuite.ybwcSearch(positions, 5, config, 4);
+        
+        for (int i = 0; i < positions.length; i++) {
+            assertEquals(sequential[i].lastSelectedHeuristic, parallel[i].lastSelectedHeuristic, 0);
+            byte move = parallel[i].lastSelectedMovement;
+            assertTrue(positions[i].canMovePiece(move/Status.SIZE, move%Status.SIZE));
+        }
+    }
+    
+    /**
+     * Print the time to search the position suite to a fixed depth from 1 to
+     * the number of available processors.
+     */
+    @Test
+    public void testSpeedupPositionSuite() {
+        Status[] positions = PositionSuite.generate();
+        SearchConfig config = new SearchConfig();
+        int maxThreads = Math.max(2, Runtime.getRuntime().availableProcessors());
+        
+        // Warm up
+        PositionSuite.ybwcSearch(positions, 6, config, maxThreads);
+        
+        long baseline = 0;
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads++) {
+            long start = System.nanoTime();
+            RunnableFutureMiniMax.Result[] results = PositionSuite.ybwcSearch(positions, 8, config, numThreads);
+            long elapsed = System.nanoTime() - start;
+            
+            long nodes = 0;
+            for (RunnableFutureMiniMax.Result result : results) {
+                assertNotNull(result);
+                nodes += result.nodesWithComputedHeuristic;
+            }
+            if(numThreads == 1) {
+                baseline = elapsed;
+            }
+            System.out.println(numThreads + " threads: " + elapsed/1000000 + " ms, " + nodes + " nodes, speedup " + String.format("%.2f", (double)baseline/elapsed));
+        }
+    }
+    
+    /**
+     * Check that the player returns a movement within the move time limit.
+     */
+    @Test
+    public void testPlayerMove() {
+        PlayerIDYBWC p = new PlayerIDYBWC(1 << 16, 4);
+        p.getTimeManager().setMoveTimeLimit(300);
+        
+        GameStatus gs = new GameStatus();
+        for (int i = 0; i < 4; i++) {
+            Move m = p.move(gs);
+            assertNotNull(m.getTo());
+            assertTrue(gs.canMove(m.getTo(), gs.getCurrentPlayer()));
+            gs.movePiece(m.getTo());
+        }
+    }
+}